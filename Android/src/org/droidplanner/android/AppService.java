@@ -89,7 +89,7 @@ public class AppService extends Service {
         GAUtils.initGATracker(dpApp);
         GAUtils.startNewSession(context);
 
-        notificationHandler = new NotificationHandler(context, drone);
+        notificationHandler = new NotificationHandler(context, drone, dpApp.getEventBus(), dpApp.getFlightJournal());
 
         if (drone.isConnected()) {
             notificationHandler.init();
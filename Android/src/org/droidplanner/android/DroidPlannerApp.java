@@ -19,23 +19,29 @@ import com.o3dr.android.client.apis.VehicleApi;
 import com.o3dr.android.client.interfaces.DroneListener;
 import com.o3dr.android.client.interfaces.TowerListener;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
+import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
 import com.o3dr.services.android.lib.drone.connection.ConnectionResult;
 import com.o3dr.services.android.lib.drone.connection.ConnectionType;
 import com.o3dr.services.android.lib.drone.connection.DroneSharePrefs;
+import com.o3dr.services.android.lib.drone.property.State;
 import com.o3dr.services.android.lib.model.AbstractCommandListener;
 
 import org.droidplanner.android.activities.helpers.BluetoothDevicesActivity;
+import org.droidplanner.android.events.DroneEventBus;
+import org.droidplanner.android.events.FlightJournal;
+import org.droidplanner.android.events.FlightJournalReader;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.utils.LogToFileTree;
 import org.droidplanner.android.utils.Utils;
+import org.droidplanner.android.utils.file.FileStream;
 import org.droidplanner.android.utils.file.IO.ExceptionWriter;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.fabric.sdk.android.Fabric;
@@ -60,6 +66,16 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
     private static final long EVENTS_DISPATCHING_PERIOD = 200L; //MS
 
+    /**
+     * High rate events whose receivers all subscribe to the event bus, and which are not
+     * broadcast.
+     */
+    private static final String[] BUS_ONLY_EVENTS = {
+            AttributeEvent.ATTITUDE_UPDATED,
+            AttributeEvent.SPEED_UPDATED,
+            AttributeEvent.GPS_POSITION
+    };
+
     private static final AtomicBoolean isCellularNetworkOn = new AtomicBoolean(false);
 
     private final BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
@@ -116,30 +132,6 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
         }
     };
 
-    private final Runnable eventsDispatcher = new Runnable() {
-        @Override
-        public void run() {
-            handler.removeCallbacks(this);
-
-            //Go through the events buffer and empty it
-            for(Map.Entry<String, Bundle> entry: eventsBuffer.entrySet()){
-                String event = entry.getKey();
-                Bundle extras = entry.getValue();
-
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
-            }
-
-            eventsBuffer.clear();
-
-            handler.postDelayed(this, EVENTS_DISPATCHING_PERIOD);
-        }
-    };
-
-    private final Map<String, Bundle> eventsBuffer = new LinkedHashMap<>(200);
-
     private final Handler handler = new Handler();
     private final List<ApiListener> apiListeners = new ArrayList<ApiListener>();
 
@@ -151,6 +143,9 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
     private MissionProxy missionProxy;
     private DroidPlannerPrefs dpPrefs;
     private LocalBroadcastManager lbm;
+    private DroneEventBus eventBus;
+    private FlightJournal flightJournal;
+    private FlightJournalReader.Replay flightJournalReplay;
 
     private LogToFileTree logToFileTree;
 
@@ -184,10 +179,14 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
         dpPrefs = DroidPlannerPrefs.getInstance(context);
         lbm = LocalBroadcastManager.getInstance(context);
+        eventBus = new DroneEventBus(lbm, EVENTS_DISPATCHING_PERIOD);
+        eventBus.setBusOnly(BUS_ONLY_EVENTS);
+        flightJournal = new FlightJournal();
+        eventBus.setDispatchObserver(flightJournal);
 
         controlTower = new ControlTower(context);
         drone = new Drone(context);
-        missionProxy = new MissionProxy(context, this.drone);
+        missionProxy = new MissionProxy(context, this.drone, flightJournal);
 
         final IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction(ACTION_TOGGLE_DRONE_CONNECTION);
@@ -291,6 +290,41 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
         return this.missionProxy;
     }
 
+    public DroneEventBus getEventBus() {
+        return this.eventBus;
+    }
+
+    public FlightJournal getFlightJournal() {
+        return this.flightJournal;
+    }
+
+    /**
+     * Replays the vehicle events of a recorded flight journal into the event bus, with their
+     * recorded timing, to reproduce a session without a vehicle. Any previous replay is cancelled.
+     * The replay is refused while a vehicle is connected, and stops when one connects.
+     *
+     * @param speed replay speed, relatively to the recorded timing. 0 replays the events without
+     *              delay.
+     * @return false if the journal couldn't be read, or a vehicle is connected.
+     */
+    public boolean replayFlightJournal(File journalFile, float speed) {
+        cancelFlightJournalReplay();
+
+        try {
+            flightJournalReplay = new FlightJournalReader(journalFile).replay(eventBus, drone, speed);
+        } catch (IOException e) {
+            Timber.e(e, "Unable to read the flight journal %s", journalFile);
+        }
+        return flightJournalReplay != null;
+    }
+
+    public void cancelFlightJournalReplay() {
+        if (flightJournalReplay != null) {
+            flightJournalReplay.cancel();
+            flightJournalReplay = null;
+        }
+    }
+
     private ConnectionParameter retrieveConnectionParameters() {
         final int connectionType = dpPrefs.getConnectionParameterType();
         Bundle extraParams = new Bundle();
@@ -357,6 +391,13 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
     @Override
     public void onDroneEvent(String event, Bundle extras) {
+        if (AttributeEvent.STATE_CONNECTED.equals(event)) {
+            cancelFlightJournalReplay();
+
+            //Start a new journal for each connection.
+            flightJournal.open(FileStream.getFlightJournalFile());
+        }
+
         switch (event) {
             case AttributeEvent.STATE_CONNECTED: {
                 handler.removeCallbacks(disconnectionTask);
@@ -380,31 +421,34 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
                     }
                 });
 
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
-
-                handler.postDelayed(eventsDispatcher, EVENTS_DISPATCHING_PERIOD);
+                eventBus.postNow(event, extras);
+                eventBus.start();
                 break;
             }
 
             case AttributeEvent.STATE_DISCONNECTED: {
-                handler.removeCallbacks(eventsDispatcher);
+                eventBus.stop();
 
                 shouldWeTerminate();
 
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
+                eventBus.postNow(event, extras);
+                flightJournal.close();
+                break;
+            }
+
+            case AttributeEvent.STATE_VEHICLE_MODE: {
+                final State vehicleState = drone.getAttribute(AttributeType.STATE);
+                if (vehicleState != null)
+                    flightJournal.recordModeChange(vehicleState.getVehicleMode());
+
+                eventBus.post(event, extras);
                 break;
             }
 
             default: {
                 //Buffer the remaining events, and only fire them at 30hz
                 //TODO: remove this once the buffer is placed on the 3DR Services side
-                eventsBuffer.put(event, extras);
+                eventBus.post(event, extras);
                 break;
             }
         }
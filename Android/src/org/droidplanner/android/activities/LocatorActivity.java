@@ -24,14 +24,17 @@ import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.LocatorListFragment;
 import org.droidplanner.android.fragments.LocatorMapFragment;
+import org.droidplanner.android.utils.file.IO.TLogIndex;
+import org.droidplanner.android.utils.file.IO.TLogIndexer;
+import org.droidplanner.android.utils.file.IO.TLogMessageFilter;
+import org.droidplanner.android.utils.file.IO.TLogPositionStore;
 import org.droidplanner.android.utils.file.IO.TLogReader;
-import org.droidplanner.android.utils.file.IO.TLogReader.Event;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.unit.providers.length.LengthUnitProvider;
 
 import java.lang.ref.WeakReference;
-import java.util.LinkedList;
-import java.util.List;
+
+import timber.log.Timber;
 
 /**
  * This implements the map locator activity. The map locator activity allows the user to find
@@ -43,7 +46,7 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     private static final String STATE_LAST_SELECTED_POSITION = "STATE_LAST_SELECTED_POSITION";
     private static final int TLOG_PICKER_REQUEST_CODE = 101;
 
-    private final static List<TLogReader.Event> lastPositions = new LinkedList<>();
+    private final static TLogPositionStore lastPositions = new TLogPositionStore();
 
     private OpenTLogFileAsyncTask tlogOpener;
 
@@ -55,12 +58,12 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     private LinearLayout statusView;
     private TextView latView, lonView, distanceView, azimuthView, altitudeView;
 
-    private msg_global_position_int selectedMsg;
+    private int selectedPosition = -1;
     private LatLong lastGCSPosition;
     private float lastGCSBearingTo = Float.MAX_VALUE;
     private double lastGCSAzimuth = Double.MAX_VALUE;
 
-    public List<Event> getLastPositions() {
+    public TLogPositionStore getLastPositions() {
         return lastPositions;
     }
 
@@ -143,8 +146,7 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
 
-        final int lastSelectedPosition = lastPositions.indexOf(selectedMsg);
-        outState.putInt(STATE_LAST_SELECTED_POSITION, lastSelectedPosition);
+        outState.putInt(STATE_LAST_SELECTED_POSITION, selectedPosition);
     }
 
     @Override
@@ -153,7 +155,7 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
 
         final int lastSelectedPosition = savedInstanceState.getInt(STATE_LAST_SELECTED_POSITION, -1);
         if (lastSelectedPosition != -1 && lastSelectedPosition < lastPositions.size())
-            setSelectedMsg((msg_global_position_int) lastPositions.get(lastSelectedPosition).getMavLinkMessage());
+            setSelectedPosition(lastSelectedPosition);
     }
 
     @Override
@@ -201,16 +203,19 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     /*
     Copy all messages with non-zero coords -> lastPositions
      */
-    private void loadLastPositions(List<TLogReader.Event> logEvents) {
+    private void loadLastPositions(TLogPositionStore positions) {
         lastPositions.clear();
 
-        for (TLogReader.Event event : logEvents) {
-            final msg_global_position_int message = (msg_global_position_int) event.getMavLinkMessage();
-            if (message.lat != 0 || message.lon != 0)
-                lastPositions.add(event);
+        for (int i = 0; i < positions.size(); i++) {
+            final int lat = positions.getLatitudeE7(i);
+            final int lon = positions.getLongitudeE7(i);
+            if (lat != 0 || lon != 0) {
+                lastPositions.add(positions.getTimestamp(i), lat, lon, positions.getAltitude(i),
+                        positions.getHeading(i));
+            }
         }
 
-        setSelectedMsg(null);
+        setSelectedPosition(-1);
         locatorListFragment.notifyDataSetChanged();
 
         updateInfo();
@@ -225,7 +230,7 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     private void updateMapPadding() {
         int bottomPadding = 0;
 
-        if (lastPositions.size() > 0) {
+        if (!lastPositions.isEmpty()) {
             bottomPadding = locatorListFragment.getView().getHeight();
         }
 
@@ -239,36 +244,36 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     }
 
     @Override
-    public void onItemClick(msg_global_position_int msg) {
-        setSelectedMsg(msg);
+    public void onItemClick(int position) {
+        setSelectedPosition(position);
 
         locatorMapFragment.zoomToFit();
         updateInfo();
     }
 
-    public void setSelectedMsg(msg_global_position_int msg) {
-        selectedMsg = msg;
+    public void setSelectedPosition(int position) {
+        selectedPosition = position;
 
         final LatLong msgCoord;
-        if (msg != null)
-            msgCoord = coordFromMsgGlobalPositionInt(selectedMsg);
+        if (hasSelectedPosition())
+            msgCoord = lastPositions.getCoordinate(selectedPosition);
         else
             msgCoord = new LatLong(0, 0);
         locatorMapFragment.updateLastPosition(msgCoord);
     }
 
     private void updateInfo() {
-        if (selectedMsg != null) {
+        if (hasSelectedPosition()) {
             statusView.setVisibility(View.VISIBLE);
 
             final LengthUnitProvider lengthUnitProvider = unitSystem.getLengthUnitProvider();
 
-            final double altitude = selectedMsg.alt / 1000; //meters
+            final double altitude = lastPositions.getAltitude(selectedPosition); //meters
             LengthUnit convertedAltitude = lengthUnitProvider.boxBaseValueToTarget(altitude);
             altitudeView.setText("Altitude: " + convertedAltitude.toString());
 
             // coords
-            final LatLong msgCoord = coordFromMsgGlobalPositionInt(selectedMsg);
+            final LatLong msgCoord = lastPositions.getCoordinate(selectedPosition);
 
             // distance
             if (lastGCSPosition == null || lastGCSPosition.getLatitude() == 0 || lastGCSPosition.getLongitude() == 0) {
@@ -303,14 +308,8 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
         }
     }
 
-    private static LatLong coordFromMsgGlobalPositionInt(msg_global_position_int msg) {
-        double lat = msg.lat;
-        lat /= 1E7;
-
-        double lon = msg.lon;
-        lon /= 1E7;
-
-        return new LatLong(lat, lon);
+    private boolean hasSelectedPosition() {
+        return selectedPosition >= 0 && selectedPosition < lastPositions.size();
     }
 
     @Override
@@ -318,8 +317,8 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
         lastGCSPosition = new LatLong(location.getLatitude(), location.getLongitude());
         lastGCSAzimuth = location.getBearing();
 
-        if (selectedMsg != null) {
-            final LatLong msgCoord = coordFromMsgGlobalPositionInt(selectedMsg);
+        if (hasSelectedPosition()) {
+            final LatLong msgCoord = lastPositions.getCoordinate(selectedPosition);
 
             final Location target = new Location(location);
             target.setLatitude(msgCoord.getLatitude());
@@ -346,7 +345,9 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
     public void onProviderDisabled(String provider) {
     }
 
-    private static class OpenTLogFileAsyncTask extends AsyncTask<String, Void, List<TLogReader.Event>> {
+    private static class OpenTLogFileAsyncTask extends AsyncTask<String, Integer, TLogPositionStore> {
+
+        private static final int PROGRESS_MAX = 100;
 
         private final WeakReference<LocatorActivity> activityRef;
         private final ProgressDialog progressDialog;
@@ -356,7 +357,9 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
             progressDialog = new ProgressDialog(activity);
             progressDialog.setTitle("Loading data...");
             progressDialog.setMessage("Please wait.");
-            progressDialog.setIndeterminate(true);
+            progressDialog.setIndeterminate(false);
+            progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+            progressDialog.setMax(PROGRESS_MAX);
         }
 
         @Override
@@ -365,13 +368,33 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
         }
 
         @Override
-        protected List<TLogReader.Event> doInBackground(String... params) {
+        protected TLogPositionStore doInBackground(String... params) {
             final String filename = params[0];
 
-            TLogReader tlogReader = new TLogReader(msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT);
-            tlogReader.openTLog(filename);
+            final TLogMessageFilter filter = new TLogMessageFilter()
+                    .addMessage(msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT);
+
+            final TLogPositionStore positions = new TLogPositionStore();
+            try {
+                final TLogIndex index = TLogReader.openIndex(filename, filter, new TLogIndexer.ProgressListener() {
+                    @Override
+                    public void onProgress(float fraction) {
+                        publishProgress((int) (fraction * PROGRESS_MAX));
+                    }
+                });
+
+                if (index != null && index.hasPositions() && !isCancelled())
+                    index.readPositions(filter, positions);
+            } catch (InterruptedException e) {
+                Timber.e(e, "Interrupted while indexing tlog file %s", filename);
+            }
+
+            return positions;
+        }
 
-            return tlogReader.getLogEvents();
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            progressDialog.setProgress(values[values.length - 1]);
         }
 
         @Override
@@ -380,13 +403,13 @@ public class LocatorActivity extends DrawerNavigationUI implements LocatorListFr
         }
 
         @Override
-        protected void onPostExecute(List<TLogReader.Event> events) {
+        protected void onPostExecute(TLogPositionStore positions) {
             progressDialog.dismiss();
             final LocatorActivity activity = activityRef.get();
             if (activity == null)
                 return;
 
-            activity.loadLastPositions(events);
+            activity.loadLastPositions(positions);
             activity.locatorMapFragment.zoomToFit();
         }
     }
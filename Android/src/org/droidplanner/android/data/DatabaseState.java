@@ -3,6 +3,8 @@ package org.droidplanner.android.data;
 import android.content.Context;
 import android.text.TextUtils;
 
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineTileCache;
 import org.droidplanner.android.maps.providers.google_map.tiles.offline.db.OfflineDatabaseHandler;
 
 import java.util.Locale;
@@ -26,6 +28,31 @@ public class DatabaseState {
         return dbh;
     }
 
+    /**
+     * Returns the data of the given tile, from the shared in-memory cache when available, or from
+     * the map's offline database.
+     *
+     * @return the tile data, or null if the tile is not available offline.
+     */
+    public static byte[] getTileData(Context context, String mapId, int zoom, int x, int y) {
+        final OfflineTileCache tileCache = OfflineTileCache.getInstance(context);
+        byte[] data = tileCache.get(mapId, zoom, x, y);
+        if (data == null) {
+            data = getOfflineDatabaseHandlerForMapId(context, mapId).dataForTile(zoom, x, y);
+            tileCache.put(mapId, zoom, x, y, data);
+        }
+        return data;
+    }
+
+    /**
+     * Writes a tile fetched by an online tile provider to the map's offline database, and to the
+     * in-memory cache.
+     */
+    public static void saveTileData(Context context, String mapId, OfflineResource tile, byte[] data) {
+        getOfflineDatabaseHandlerForMapId(context, mapId).saveTile(tile, data);
+        OfflineTileCache.getInstance(context).put(mapId, tile.getZoom(), tile.getX(), tile.getY(), data);
+    }
+
     public static void deleteDatabase(Context context, String dbName){
         if(context == null || TextUtils.isEmpty(dbName))
             return;
@@ -36,5 +63,6 @@ public class DatabaseState {
             dbHandler.close();
 
         context.deleteDatabase(lowerMapId);
+        OfflineTileCache.getInstance(context).evict(lowerMapId);
     }
 }
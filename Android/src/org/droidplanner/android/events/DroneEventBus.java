@@ -0,0 +1,406 @@
+package org.droidplanner.android.events;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import timber.log.Timber;
+
+/**
+ * In process bus for the drone events.
+ *
+ * Subscribers register for the {@link com.o3dr.services.android.lib.drone.attribute.AttributeEvent}s
+ * they care about, and get them through a direct callback, without the intent creation and
+ * filtering of a broadcast. The telemetry events are coalesced, and dispatched at a fixed period;
+ * only the last occurrence of each event is dispatched in a period. Each subscriber has its own
+ * mailbox, drained on the thread of its choice.
+ *
+ * Subscriptions go through a {@link Lane}, and can declare a maximum delivery rate. Each lane and
+ * rate pair of a subscriber gets its own mailbox, so a rate limited subscription doesn't throttle
+ * the other ones. The events are coalesced per mailbox until its next delivery, so a slow
+ * subscriber only gets the last occurrence of each event.
+ *
+ * The bus records the latency and throughput of the events in its {@link TelemetryStats}, when
+ * enabled. A {@link #setDispatchObserver(Subscriber) dispatch observer} gets every dispatched
+ * event, after the coalescing.
+ *
+ * The dispatched events are also broadcast through the {@link LocalBroadcastManager}, for the
+ * receivers which have not moved to the bus. The events whose receivers all moved to the bus are
+ * declared with {@link #setBusOnly(String...)}, and skip the broadcast.
+ *
+ * The events are posted, and the subscriptions updated, from the main thread.
+ */
+public class DroneEventBus {
+
+    public interface Subscriber {
+        /**
+         * Called on the subscriber thread.
+         *
+         * @param event  the {@link com.o3dr.services.android.lib.drone.attribute.AttributeEvent} action.
+         * @param extras the event extras, if any.
+         */
+        void onDroneEvent(String event, Bundle extras);
+    }
+
+    /**
+     * Priority of a subscription.
+     */
+    public enum Lane {
+        /**
+         * Failsafes, arming, heartbeat... The events skip the coalescing buffer, are delivered ahead
+         * of the other pending work of the subscriber thread, and are never rate limited.
+         */
+        CRITICAL,
+
+        /**
+         * Telemetry. The events are dispatched with the coalescing buffer.
+         */
+        NORMAL,
+
+        /**
+         * Statistics, status displays... Like {@link #NORMAL}, but delivered at most once every
+         * {@link #BACKGROUND_MIN_DELIVERY_PERIOD}.
+         */
+        BACKGROUND
+    }
+
+    static final long BACKGROUND_MIN_DELIVERY_PERIOD = 1000L; //ms
+
+    /**
+     * Upper bound on the number of distinct events going through the bus.
+     */
+    static final int MAX_EVENT_TYPES = 256;
+
+    /**
+     * Name of the broadcast bridge stage in the statistics.
+     */
+    public static final String BROADCAST_STAGE = "stage:broadcast_bridge";
+
+    private static final EventMailbox[] NO_MAILBOXES = new EventMailbox[0];
+
+    private static final Map<String, Integer> eventIds = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<String> eventNames = new AtomicReferenceArray<>(MAX_EVENT_TYPES);
+
+    /**
+     * @return the id of the given event, or -1 if the bus ran out of event ids.
+     */
+    static int getEventId(String event) {
+        final Integer id = eventIds.get(event);
+        if (id != null)
+            return id;
+
+        synchronized (eventIds) {
+            Integer newId = eventIds.get(event);
+            if (newId == null) {
+                final int count = eventIds.size();
+                if (count == MAX_EVENT_TYPES) {
+                    Timber.w("No event id left for %s.", event);
+                    return -1;
+                }
+
+                newId = count;
+                eventNames.set(count, event);
+                eventIds.put(event, newId);
+            }
+            return newId;
+        }
+    }
+
+    static String getEventName(int eventId) {
+        return eventNames.get(eventId);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LocalBroadcastManager lbm;
+    private final long dispatchPeriod;
+    private final TelemetryStats stats = new TelemetryStats();
+
+    private final Runnable eventsDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            handler.removeCallbacks(this);
+            dispatchPendingEvents();
+            handler.postDelayed(this, dispatchPeriod);
+        }
+    };
+
+    /*
+     * Coalescing buffer, indexed by event id. The ids are kept in arrival order.
+     */
+    private final boolean[] isPending = new boolean[MAX_EVENT_TYPES];
+    private final Bundle[] pendingExtras = new Bundle[MAX_EVENT_TYPES];
+    private final long[] pendingPostTimes = new long[MAX_EVENT_TYPES];
+    private final int[] pendingOrder = new int[MAX_EVENT_TYPES];
+    private int pendingCount;
+
+    /**
+     * Events which are not broadcast, indexed by event id.
+     */
+    private final boolean[] isBusOnly = new boolean[MAX_EVENT_TYPES];
+
+    /**
+     * Mailboxes of the subscribers to each event id. The arrays are replaced, never modified, so
+     * they can be iterated while the subscriptions change.
+     */
+    private final SparseArray<EventMailbox[]> mailboxesByEvent = new SparseArray<>();
+    private final Map<Subscriber, List<EventMailbox>> mailboxes = new HashMap<>();
+
+    private Subscriber dispatchObserver;
+
+    public DroneEventBus(LocalBroadcastManager lbm, long dispatchPeriod) {
+        this.lbm = lbm;
+        this.dispatchPeriod = dispatchPeriod;
+    }
+
+    public TelemetryStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Sets the subscriber called, on the main thread, with every dispatched event, once coalesced.
+     * It must return quickly.
+     *
+     * @param observer the observer, or null to remove it.
+     */
+    public void setDispatchObserver(Subscriber observer) {
+        dispatchObserver = observer;
+    }
+
+    /**
+     * Stops broadcasting the given events through the {@link LocalBroadcastManager}. Only the bus
+     * subscribers get them from then on.
+     */
+    public void setBusOnly(String... events) {
+        for (String event : events) {
+            final int eventId = getEventId(event);
+            if (eventId != -1)
+                isBusOnly[eventId] = true;
+        }
+    }
+
+    /**
+     * Delivers the given events to the subscriber on the main thread, in the normal lane, without
+     * rate limit.
+     */
+    public void subscribe(Subscriber subscriber, String... events) {
+        subscribe(subscriber, handler, Lane.NORMAL, 0, events);
+    }
+
+    /**
+     * Delivers the given events to the subscriber on the main thread.
+     *
+     * @param maxRate maximum number of deliveries per second, or 0 for no limit.
+     */
+    public void subscribe(Subscriber subscriber, Lane lane, float maxRate, String... events) {
+        subscribe(subscriber, handler, lane, maxRate, events);
+    }
+
+    /**
+     * Delivers the given events to the subscriber on the thread of the given handler. A subscriber
+     * can subscribe several times, to add events, lanes or rates. Its subscriptions with the same
+     * handler, lane and effective rate share a mailbox; the other ones are delivered, and rate
+     * limited, independently.
+     *
+     * @param maxRate maximum number of deliveries per second, or 0 for no limit.
+     */
+    public void subscribe(Subscriber subscriber, Handler deliveryHandler, Lane lane, float maxRate,
+                          String... events) {
+        final long minDeliveryPeriod = EventMailbox.getMinDeliveryPeriod(lane,
+                maxRate > 0 ? (long) (1000 / maxRate) : 0L);
+
+        List<EventMailbox> subscriberMailboxes = mailboxes.get(subscriber);
+        if (subscriberMailboxes == null) {
+            subscriberMailboxes = new ArrayList<>(Lane.values().length);
+            mailboxes.put(subscriber, subscriberMailboxes);
+        }
+
+        EventMailbox mailbox = null;
+        for (EventMailbox candidate : subscriberMailboxes) {
+            if (candidate.getLane() == lane && candidate.getHandler() == deliveryHandler
+                    && candidate.getMinDeliveryPeriod() == minDeliveryPeriod) {
+                mailbox = candidate;
+                break;
+            }
+        }
+
+        if (mailbox == null) {
+            mailbox = new EventMailbox(subscriber, deliveryHandler, lane, minDeliveryPeriod, stats);
+            subscriberMailboxes.add(mailbox);
+        }
+
+        for (String event : events) {
+            final int eventId = getEventId(event);
+            if (eventId == -1)
+                continue;
+
+            final EventMailbox[] current = mailboxesByEvent.get(eventId, NO_MAILBOXES);
+            if (indexOf(current, mailbox) != -1)
+                continue;
+
+            for (EventMailbox other : current) {
+                if (subscriberMailboxes.contains(other)) {
+                    Timber.w("%s is already subscribed to %s in the %s lane, every %d ms.", subscriber,
+                            event, other.getLane(), other.getMinDeliveryPeriod());
+                }
+            }
+
+            final EventMailbox[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = mailbox;
+            mailboxesByEvent.put(eventId, updated);
+        }
+    }
+
+    /**
+     * Removes all the subscriptions of the given subscriber. Its undelivered events are dropped.
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        final List<EventMailbox> subscriberMailboxes = mailboxes.remove(subscriber);
+        if (subscriberMailboxes == null)
+            return;
+
+        for (EventMailbox mailbox : subscriberMailboxes) {
+            removeMailbox(mailbox);
+        }
+    }
+
+    private void removeMailbox(EventMailbox mailbox) {
+        mailbox.close();
+        for (int i = 0; i < mailboxesByEvent.size(); i++) {
+            final EventMailbox[] current = mailboxesByEvent.valueAt(i);
+            final int index = indexOf(current, mailbox);
+            if (index == -1)
+                continue;
+
+            final EventMailbox[] updated = new EventMailbox[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, updated.length - index);
+            mailboxesByEvent.setValueAt(i, updated);
+        }
+    }
+
+    /**
+     * Buffers the event until the next dispatch. Replaces the previous occurrence of the event, if
+     * it was not dispatched yet. The critical subscribers get it right away.
+     */
+    public void post(String event, Bundle extras) {
+        final int eventId = getEventId(event);
+        if (eventId == -1) {
+            dispatch(eventId, event, extras);
+            return;
+        }
+
+        final long postTime = System.nanoTime();
+        stats.recordEvent(eventId);
+
+        final EventMailbox[] subscribers = mailboxesByEvent.get(eventId, NO_MAILBOXES);
+        for (EventMailbox mailbox : subscribers) {
+            if (mailbox.getLane() == Lane.CRITICAL)
+                mailbox.offer(eventId, extras, postTime);
+        }
+
+        if (!isPending[eventId]) {
+            isPending[eventId] = true;
+            pendingOrder[pendingCount++] = eventId;
+        }
+        pendingExtras[eventId] = extras;
+        pendingPostTimes[eventId] = postTime;
+    }
+
+    /**
+     * Dispatches the event right away, bypassing the buffer.
+     */
+    public void postNow(String event, Bundle extras) {
+        dispatch(getEventId(event), event, extras);
+    }
+
+    /**
+     * Starts the periodic dispatch of the buffered events.
+     */
+    public void start() {
+        handler.removeCallbacks(eventsDispatcher);
+        handler.postDelayed(eventsDispatcher, dispatchPeriod);
+    }
+
+    /**
+     * Stops the periodic dispatch. The buffered events are kept until the next start.
+     */
+    public void stop() {
+        handler.removeCallbacks(eventsDispatcher);
+    }
+
+    private void dispatchPendingEvents() {
+        for (int i = 0; i < pendingCount; i++) {
+            final int eventId = pendingOrder[i];
+            final Bundle extras = pendingExtras[eventId];
+            final long postTime = pendingPostTimes[eventId];
+
+            isPending[eventId] = false;
+            pendingExtras[eventId] = null;
+
+            // The critical subscribers already got the event when it was posted.
+            final EventMailbox[] subscribers = mailboxesByEvent.get(eventId, NO_MAILBOXES);
+            for (EventMailbox mailbox : subscribers) {
+                if (mailbox.getLane() != Lane.CRITICAL)
+                    mailbox.offer(eventId, extras, postTime);
+            }
+
+            final String event = getEventName(eventId);
+            if (dispatchObserver != null)
+                dispatchObserver.onDroneEvent(event, extras);
+
+            if (!isBusOnly[eventId])
+                broadcast(event, extras);
+        }
+        pendingCount = 0;
+    }
+
+    private void dispatch(int eventId, String event, Bundle extras) {
+        if (dispatchObserver != null)
+            dispatchObserver.onDroneEvent(event, extras);
+
+        if (eventId != -1) {
+            final long postTime = System.nanoTime();
+            stats.recordEvent(eventId);
+
+            final EventMailbox[] subscribers = mailboxesByEvent.get(eventId, NO_MAILBOXES);
+            for (EventMailbox mailbox : subscribers) {
+                mailbox.offer(eventId, extras, postTime);
+            }
+
+            if (isBusOnly[eventId])
+                return;
+        }
+
+        broadcast(event, extras);
+    }
+
+    private void broadcast(String event, Bundle extras) {
+        final long startTime = System.nanoTime();
+
+        final Intent droneIntent = new Intent(event);
+        if (extras != null)
+            droneIntent.putExtras(extras);
+        lbm.sendBroadcast(droneIntent);
+
+        stats.recordStage(BROADCAST_STAGE, 0, System.nanoTime() - startTime);
+    }
+
+    private static int indexOf(EventMailbox[] mailboxes, EventMailbox mailbox) {
+        for (int i = 0; i < mailboxes.length; i++) {
+            if (mailboxes[i] == mailbox)
+                return i;
+        }
+        return -1;
+    }
+}
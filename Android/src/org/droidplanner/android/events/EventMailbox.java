@@ -0,0 +1,154 @@
+package org.droidplanner.android.events;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free mailbox holding the events not yet delivered to a subscriber.
+ *
+ * The mailbox has a single producer, the bus dispatcher, and a single consumer, the subscriber
+ * handler. It keeps the last extras of each pending event in a slot indexed by the event id, and
+ * the pending event ids in a ring. An event id is queued in the ring only when its slot goes from
+ * empty to filled, so it's there at most once, and the ring never holds more than
+ * {@link DroneEventBus#MAX_EVENT_TYPES} ids.
+ *
+ * The deliveries are spaced by the minimum delivery period of the mailbox; the events offered in
+ * between are coalesced in the slots.
+ */
+final class EventMailbox implements Runnable {
+
+    /**
+     * Fills the slot of the events without extras.
+     */
+    private static final Object NO_EXTRAS = new Object();
+
+    private static final int RING_MASK = DroneEventBus.MAX_EVENT_TYPES - 1;
+
+    private final DroneEventBus.Subscriber subscriber;
+    private final Handler handler;
+    private final DroneEventBus.Lane lane;
+    private final TelemetryStats stats;
+
+    private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(DroneEventBus.MAX_EVENT_TYPES);
+    private final AtomicLongArray postTimes = new AtomicLongArray(DroneEventBus.MAX_EVENT_TYPES);
+    private final int[] ring = new int[DroneEventBus.MAX_EVENT_TYPES];
+    private final AtomicInteger ringHead = new AtomicInteger();
+    private final AtomicInteger ringTail = new AtomicInteger();
+
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    private volatile boolean isClosed;
+
+    private final long minDeliveryPeriod;
+    private volatile long lastDeliveryTime;
+
+    EventMailbox(DroneEventBus.Subscriber subscriber, Handler handler, DroneEventBus.Lane lane,
+                 long minDeliveryPeriod, TelemetryStats stats) {
+        this.subscriber = subscriber;
+        this.handler = handler;
+        this.lane = lane;
+        this.stats = stats;
+        this.minDeliveryPeriod = getMinDeliveryPeriod(lane, minDeliveryPeriod);
+    }
+
+    DroneEventBus.Lane getLane() {
+        return lane;
+    }
+
+    Handler getHandler() {
+        return handler;
+    }
+
+    long getMinDeliveryPeriod() {
+        return minDeliveryPeriod;
+    }
+
+    /**
+     * @return the delivery period actually applied in the given lane, for the requested one.
+     */
+    static long getMinDeliveryPeriod(DroneEventBus.Lane lane, long period) {
+        switch (lane) {
+            case CRITICAL:
+                return 0;
+
+            case BACKGROUND:
+                return Math.max(period, DroneEventBus.BACKGROUND_MIN_DELIVERY_PERIOD);
+
+            default:
+                return period;
+        }
+    }
+
+    /**
+     * Stores the event, replacing its undelivered occurrence if any, and schedules the delivery.
+     * Called by the producer.
+     *
+     * @param postTime {@link System#nanoTime()} when the event was posted to the bus.
+     */
+    void offer(int eventId, Bundle extras, long postTime) {
+        if (isClosed)
+            return;
+
+        postTimes.set(eventId, postTime);
+        if (slots.getAndSet(eventId, extras == null ? NO_EXTRAS : extras) == null) {
+            final int tail = ringTail.get();
+            ring[tail & RING_MASK] = eventId;
+            ringTail.lazySet(tail + 1);
+        }
+
+        if (isScheduled.compareAndSet(false, true))
+            scheduleDelivery();
+    }
+
+    private void scheduleDelivery() {
+        if (lane == DroneEventBus.Lane.CRITICAL) {
+            handler.postAtFrontOfQueue(this);
+            return;
+        }
+
+        final long delay = lastDeliveryTime + minDeliveryPeriod - SystemClock.uptimeMillis();
+        if (delay > 0)
+            handler.postDelayed(this, delay);
+        else
+            handler.post(this);
+    }
+
+    void close() {
+        isClosed = true;
+        handler.removeCallbacks(this);
+    }
+
+    /**
+     * Delivers the pending events. Called by the consumer.
+     */
+    @Override
+    public void run() {
+        // Cleared first, so an event offered while draining schedules a new delivery.
+        isScheduled.set(false);
+        lastDeliveryTime = SystemClock.uptimeMillis();
+
+        int head = ringHead.get();
+        while (!isClosed && head != ringTail.get()) {
+            final int eventId = ring[head & RING_MASK];
+            ringHead.lazySet(++head);
+
+            final Object extras = slots.getAndSet(eventId, null);
+            if (extras != null) {
+                final long postTime = postTimes.get(eventId);
+                final long deliveryTime = System.nanoTime();
+                subscriber.onDroneEvent(DroneEventBus.getEventName(eventId),
+                        extras == NO_EXTRAS ? null : (Bundle) extras);
+
+                if (stats.isEnabled()) {
+                    stats.recordDelivery(eventId, deliveryTime - postTime,
+                            System.nanoTime() - deliveryTime);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package org.droidplanner.android.events;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.o3dr.services.android.lib.drone.property.VehicleMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Compact binary journal of the app level events of a session.
+ *
+ * The journal is a sequence of fixed size records, appended through a memory mapped file. The
+ * records are encoded on the calling thread, and written by the journal thread, which also opens,
+ * extends and closes the file. The mapped region grows by {@link #MAPPED_REGION_SIZE} steps, and is
+ * forced to the storage every {@link #FORCE_PERIOD}, so a crash loses at most that much of the
+ * journal.
+ *
+ * Record layout, little endian, {@link #RECORD_SIZE} bytes:
+ * <pre>
+ *   0  long   timestamp, ms since epoch
+ *   8  short  record type
+ *  10  short  payload length
+ *  12  int    key, depending on the record type
+ *  16  byte[] payload, at most {@link #PAYLOAD_CAPACITY} bytes
+ * </pre>
+ * The first record is the journal header. Event and extra names are written once, in a
+ * {@link #TYPE_EVENT_NAME} or {@link #TYPE_EXTRA_NAME} record, and referred to by their key
+ * afterward. A record type of 0 marks the end of the journal.
+ *
+ * The extras of a vehicle event are encoded as a sequence of entries:
+ * <pre>
+ *   short  extra key
+ *   byte   value type, one of the VALUE_* constants
+ *   value  1 byte boolean, 4 bytes int or float, 8 bytes long or double,
+ *          or short length followed by the UTF-8 bytes of a string
+ * </pre>
+ * The other values, like parcelables or arrays, are not recorded.
+ *
+ * The vehicle events are recorded as dispatched by the {@link DroneEventBus}, once coalesced.
+ *
+ * See {@link FlightJournalReader} to read a journal.
+ */
+public class FlightJournal implements DroneEventBus.Subscriber {
+
+    static final int MAGIC = 0x4A525754; // "TWRJ"
+    static final int VERSION = 2;
+
+    static final int RECORD_SIZE = 128;
+    static final int HEADER_SIZE = 16;
+    static final int PAYLOAD_CAPACITY = RECORD_SIZE - HEADER_SIZE;
+
+    static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Journal header. Key: journal version. Payload: int magic, int record size.
+     */
+    public static final short TYPE_HEADER = 1;
+
+    /**
+     * Event name definition. Key: event key. Payload: the event name.
+     */
+    public static final short TYPE_EVENT_NAME = 2;
+
+    /**
+     * Vehicle event. Key: event key. Payload: the encoded extras, if they fit.
+     */
+    public static final short TYPE_VEHICLE_EVENT = 3;
+
+    /**
+     * Vehicle mode change. Key: the mode number. Payload: the mode label.
+     */
+    public static final short TYPE_MODE_CHANGE = 4;
+
+    /**
+     * Mission upload. Key: the number of mission items. Payload: double mission length in meters,
+     * followed by the type ordinal of each item, one byte each, as many as fit.
+     */
+    public static final short TYPE_MISSION_UPLOAD = 5;
+
+    /**
+     * Spoken alert. Key: 1 for the periodic status, 0 otherwise. Payload: the spoken text.
+     */
+    public static final short TYPE_TTS_ALERT = 6;
+
+    /**
+     * Extra name definition. Key: extra key. Payload: the extra name.
+     */
+    public static final short TYPE_EXTRA_NAME = 7;
+
+    /**
+     * Set in the payload length of a vehicle event whose extras didn't fit in the record.
+     */
+    public static final short PAYLOAD_DROPPED = -1;
+
+    static final byte VALUE_BOOLEAN = 1;
+    static final byte VALUE_INT = 2;
+    static final byte VALUE_LONG = 3;
+    static final byte VALUE_FLOAT = 4;
+    static final byte VALUE_DOUBLE = 5;
+    static final byte VALUE_STRING = 6;
+
+    private static final long MAPPED_REGION_SIZE = 1024 * RECORD_SIZE;
+    private static final long FORCE_PERIOD = 1000L; //ms
+
+    /*
+     * Encoding state, guarded by this instance.
+     */
+    private final Map<String, Integer> eventKeys = new HashMap<>();
+    private final Map<String, Integer> extraKeys = new HashMap<>();
+    private boolean isOpen;
+    private Handler journalHandler;
+
+    /*
+     * Writing state, only accessed from the journal thread.
+     */
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer mappedRegion;
+    private long mappedRegionStart;
+
+    private final Runnable forceTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mappedRegion == null)
+                return;
+
+            mappedRegion.force();
+            journalHandler.postDelayed(this, FORCE_PERIOD);
+        }
+    };
+
+    public synchronized boolean isOpen() {
+        return isOpen;
+    }
+
+    /**
+     * Starts a new journal in the given file.
+     */
+    public synchronized void open(final File journalFile) {
+        close();
+
+        if (journalHandler == null) {
+            final HandlerThread journalThread = new HandlerThread("FlightJournal");
+            journalThread.start();
+            journalHandler = new Handler(journalThread.getLooper());
+        }
+
+        journalHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                openFile(journalFile);
+            }
+        });
+        isOpen = true;
+
+        final ByteBuffer record = beginRecord(VERSION);
+        record.putInt(MAGIC);
+        record.putInt(RECORD_SIZE);
+        endRecord(TYPE_HEADER, record, 8);
+    }
+
+    public synchronized void close() {
+        if (!isOpen)
+            return;
+
+        isOpen = false;
+        eventKeys.clear();
+        extraKeys.clear();
+
+        journalHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                closeFile();
+            }
+        });
+    }
+
+    /**
+     * Records the events dispatched by the bus.
+     */
+    @Override
+    public void onDroneEvent(String event, Bundle extras) {
+        recordVehicleEvent(event, extras);
+    }
+
+    public synchronized void recordVehicleEvent(String event, Bundle extras) {
+        if (!isOpen)
+            return;
+
+        final int eventKey = getEventKey(event);
+        final ByteBuffer record = beginRecord(eventKey);
+        final int payloadLength = extras == null ? 0 : putExtras(record, extras);
+        endRecord(TYPE_VEHICLE_EVENT, record, payloadLength);
+    }
+
+    public synchronized void recordModeChange(VehicleMode mode) {
+        if (!isOpen || mode == null)
+            return;
+
+        final ByteBuffer record = beginRecord(mode.getMode());
+        endRecord(TYPE_MODE_CHANGE, record, putString(record, mode.getLabel()));
+    }
+
+    /**
+     * @param itemTypes type ordinal of each mission item.
+     */
+    public synchronized void recordMissionUpload(double missionLength, int[] itemTypes) {
+        if (!isOpen)
+            return;
+
+        final ByteBuffer record = beginRecord(itemTypes.length);
+        record.putDouble(missionLength);
+
+        final int typesCount = Math.min(itemTypes.length, PAYLOAD_CAPACITY - 8);
+        for (int i = 0; i < typesCount; i++) {
+            record.put((byte) itemTypes[i]);
+        }
+        endRecord(TYPE_MISSION_UPLOAD, record, 8 + typesCount);
+    }
+
+    public synchronized void recordTtsAlert(String text, boolean isPeriodicStatus) {
+        if (!isOpen || text == null)
+            return;
+
+        final ByteBuffer record = beginRecord(isPeriodicStatus ? 1 : 0);
+        endRecord(TYPE_TTS_ALERT, record, putString(record, text));
+    }
+
+    private int getEventKey(String event) {
+        return getKey(eventKeys, TYPE_EVENT_NAME, event);
+    }
+
+    private int getExtraKey(String extra) {
+        return getKey(extraKeys, TYPE_EXTRA_NAME, extra);
+    }
+
+    /**
+     * Returns the key of the given name, and writes its definition the first time.
+     */
+    private int getKey(Map<String, Integer> keys, short definitionType, String name) {
+        Integer key = keys.get(name);
+        if (key == null) {
+            key = keys.size();
+            keys.put(name, key);
+
+            final ByteBuffer record = beginRecord(key);
+            endRecord(definitionType, record, putString(record, name));
+        }
+        return key;
+    }
+
+    /**
+     * Encodes the supported extras in the record payload.
+     *
+     * @return the payload length, or {@link #PAYLOAD_DROPPED} if the extras didn't fit.
+     */
+    private int putExtras(ByteBuffer record, Bundle extras) {
+        try {
+            for (String name : extras.keySet()) {
+                final Object value = extras.get(name);
+                final byte valueType = getValueType(value);
+                if (valueType == 0)
+                    continue;
+
+                record.putShort((short) getExtraKey(name));
+                record.put(valueType);
+                switch (valueType) {
+                    case VALUE_BOOLEAN:
+                        record.put((byte) ((Boolean) value ? 1 : 0));
+                        break;
+
+                    case VALUE_INT:
+                        record.putInt((Integer) value);
+                        break;
+
+                    case VALUE_LONG:
+                        record.putLong((Long) value);
+                        break;
+
+                    case VALUE_FLOAT:
+                        record.putFloat((Float) value);
+                        break;
+
+                    case VALUE_DOUBLE:
+                        record.putDouble((Double) value);
+                        break;
+
+                    case VALUE_STRING:
+                        final byte[] bytes = ((String) value).getBytes(CHARSET);
+                        record.putShort((short) bytes.length);
+                        record.put(bytes);
+                        break;
+                }
+            }
+        } catch (BufferOverflowException e) {
+            return PAYLOAD_DROPPED;
+        } catch (RuntimeException e) {
+            // The extras hold values which can't be unparceled.
+            Timber.w(e, "Unable to read the event extras.");
+            return PAYLOAD_DROPPED;
+        }
+
+        return record.position() - HEADER_SIZE;
+    }
+
+    /**
+     * @return the VALUE_* type of the given extra value, or 0 if it's not recorded.
+     */
+    private static byte getValueType(Object value) {
+        if (value instanceof Boolean)
+            return VALUE_BOOLEAN;
+        if (value instanceof Integer)
+            return VALUE_INT;
+        if (value instanceof Long)
+            return VALUE_LONG;
+        if (value instanceof Float)
+            return VALUE_FLOAT;
+        if (value instanceof Double)
+            return VALUE_DOUBLE;
+        if (value instanceof String)
+            return VALUE_STRING;
+        return 0;
+    }
+
+    /**
+     * Writes the record header, and positions the record at the start of the payload.
+     */
+    private static ByteBuffer beginRecord(int key) {
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        record.putLong(System.currentTimeMillis());
+        // The type is set when the record is written.
+        record.putShort((short) 0);
+        record.putShort((short) 0);
+        record.putInt(key);
+        return record;
+    }
+
+    /**
+     * Hands the record over to the journal thread.
+     */
+    private void endRecord(final short type, ByteBuffer record, int payloadLength) {
+        record.putShort(10, (short) payloadLength);
+
+        final byte[] bytes = record.array();
+        journalHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                writeRecord(type, bytes);
+            }
+        });
+    }
+
+    private static short putString(ByteBuffer record, String value) {
+        final byte[] bytes = value.getBytes(CHARSET);
+        final int length = Math.min(bytes.length, PAYLOAD_CAPACITY);
+        record.put(bytes, 0, length);
+        return (short) length;
+    }
+
+    private void openFile(File journalFile) {
+        closeFile();
+
+        try {
+            journalFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(journalFile, "rw");
+            file.setLength(0);
+            channel = file.getChannel();
+            mapRegion(0);
+
+            journalHandler.postDelayed(forceTask, FORCE_PERIOD);
+        } catch (IOException e) {
+            Timber.e(e, "Unable to open the flight journal %s", journalFile);
+            closeFile();
+        }
+    }
+
+    private void closeFile() {
+        journalHandler.removeCallbacks(forceTask);
+
+        if (mappedRegion != null) {
+            mappedRegion.force();
+            mappedRegion = null;
+        }
+
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                Timber.w(e, "Unable to close the flight journal.");
+            }
+            file = null;
+            channel = null;
+        }
+    }
+
+    private void writeRecord(short type, byte[] record) {
+        if (mappedRegion == null)
+            return;
+
+        if (mappedRegion.remaining() < RECORD_SIZE) {
+            try {
+                mapRegion(mappedRegionStart + mappedRegion.position());
+            } catch (IOException e) {
+                Timber.e(e, "Unable to extend the flight journal.");
+                closeFile();
+                return;
+            }
+        }
+
+        final int start = mappedRegion.position();
+        mappedRegion.put(record);
+        // The type is written last, once the record is complete.
+        mappedRegion.putShort(start + 8, type);
+    }
+
+    private void mapRegion(long regionStart) throws IOException {
+        if (mappedRegion != null)
+            mappedRegion.force();
+
+        final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, MAPPED_REGION_SIZE);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        mappedRegionStart = regionStart;
+        mappedRegion = region;
+    }
+}
@@ -0,0 +1,287 @@
+package org.droidplanner.android.events;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import com.o3dr.android.client.Drone;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * Reads the records of a {@link FlightJournal}, and replays its vehicle events into a
+ * {@link DroneEventBus}.
+ *
+ * Records are read one at a time with {@link #next()}; the reader fields then describe the current
+ * record.
+ *
+ * See {@code DroidPlannerApp#replayFlightJournal(File, float)} for the replay entry point.
+ */
+public class FlightJournalReader {
+
+    private final MappedByteBuffer journal;
+    private final SparseArray<String> eventNames = new SparseArray<>();
+    private final SparseArray<String> extraNames = new SparseArray<>();
+
+    private long timestamp;
+    private short type;
+    private int key;
+    private final byte[] payload = new byte[FlightJournal.PAYLOAD_CAPACITY];
+    private int payloadLength;
+
+    public FlightJournalReader(File journalFile) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            journal = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            journal.order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            file.close();
+        }
+
+        if (!next() || type != FlightJournal.TYPE_HEADER || journal.getInt(FlightJournal.HEADER_SIZE) != FlightJournal.MAGIC)
+            throw new IOException("Not a flight journal: " + journalFile);
+
+        if (key != FlightJournal.VERSION)
+            throw new IOException("Unsupported flight journal version: " + key);
+    }
+
+    /**
+     * Moves to the next record, skipping the event and extra name definitions.
+     *
+     * @return false when the end of the journal is reached.
+     */
+    public boolean next() {
+        while (journal.remaining() >= FlightJournal.RECORD_SIZE) {
+            final int start = journal.position();
+            timestamp = journal.getLong(start);
+            type = journal.getShort(start + 8);
+            payloadLength = journal.getShort(start + 10);
+            key = journal.getInt(start + 12);
+
+            if (type == 0)
+                return false;
+
+            if (payloadLength > 0) {
+                journal.position(start + FlightJournal.HEADER_SIZE);
+                journal.get(payload, 0, payloadLength);
+            }
+            journal.position(start + FlightJournal.RECORD_SIZE);
+
+            if (type == FlightJournal.TYPE_EVENT_NAME) {
+                eventNames.put(key, getPayloadString());
+                continue;
+            }
+
+            if (type == FlightJournal.TYPE_EXTRA_NAME) {
+                extraNames.put(key, getPayloadString());
+                continue;
+            }
+
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return timestamp of the current record, in ms since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return type of the current record, one of the FlightJournal.TYPE_* constants.
+     */
+    public short getType() {
+        return type;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    /**
+     * @return the event name of the current vehicle event record.
+     */
+    public String getEventName() {
+        return eventNames.get(key);
+    }
+
+    /**
+     * @return the recorded extras of the current vehicle event record, or null if it had none, or
+     * they didn't fit in the record.
+     */
+    public Bundle getEventExtras() {
+        if (payloadLength <= 0)
+            return null;
+
+        final Bundle extras = new Bundle();
+        final ByteBuffer entries = ByteBuffer.wrap(payload, 0, payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (entries.hasRemaining()) {
+                final String name = extraNames.get(entries.getShort());
+                final byte valueType = entries.get();
+                switch (valueType) {
+                    case FlightJournal.VALUE_BOOLEAN:
+                        extras.putBoolean(name, entries.get() != 0);
+                        break;
+
+                    case FlightJournal.VALUE_INT:
+                        extras.putInt(name, entries.getInt());
+                        break;
+
+                    case FlightJournal.VALUE_LONG:
+                        extras.putLong(name, entries.getLong());
+                        break;
+
+                    case FlightJournal.VALUE_FLOAT:
+                        extras.putFloat(name, entries.getFloat());
+                        break;
+
+                    case FlightJournal.VALUE_DOUBLE:
+                        extras.putDouble(name, entries.getDouble());
+                        break;
+
+                    case FlightJournal.VALUE_STRING:
+                        final byte[] bytes = new byte[entries.getShort()];
+                        entries.get(bytes);
+                        extras.putString(name, new String(bytes, FlightJournal.CHARSET));
+                        break;
+
+                    default:
+                        Timber.w("Unknown extra value type %d.", valueType);
+                        return extras;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            Timber.w(e, "Truncated event extras.");
+        }
+        return extras;
+    }
+
+    /**
+     * @return true if the current vehicle event record had extras which didn't fit in the record.
+     */
+    public boolean areEventExtrasDropped() {
+        return payloadLength == FlightJournal.PAYLOAD_DROPPED;
+    }
+
+    /**
+     * @return the text of the current mode change or tts alert record.
+     */
+    public String getPayloadString() {
+        return new String(payload, 0, Math.max(0, payloadLength), FlightJournal.CHARSET);
+    }
+
+    /**
+     * @return the mission length of the current mission upload record.
+     */
+    public double getMissionLength() {
+        return ByteBuffer.wrap(payload, 0, 8).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+    }
+
+    /**
+     * @return the item type ordinals of the current mission upload record, as many as fit in it.
+     */
+    public int[] getMissionItemTypes() {
+        final int[] itemTypes = new int[Math.max(0, payloadLength - 8)];
+        for (int i = 0; i < itemTypes.length; i++) {
+            itemTypes[i] = payload[8 + i];
+        }
+        return itemTypes;
+    }
+
+    /**
+     * Replays the remaining vehicle events of the journal into the given bus, on the main thread.
+     * The other records are skipped.
+     *
+     * Only the events, and their extras, are replayed; the subscribers reading the vehicle
+     * attributes still get the current ones. The replayed events would mix with the live ones, so
+     * the replay is refused while the vehicle is connected, and stops when it connects.
+     *
+     * @param drone  vehicle whose connection state guards the replay.
+     * @param speed  replay speed, relatively to the recorded timing. 0 replays the events without
+     *               delay.
+     * @return the replay, which can be cancelled, or null if the vehicle is connected.
+     */
+    public Replay replay(DroneEventBus eventBus, Drone drone, float speed) {
+        if (drone.isConnected()) {
+            Timber.w("Not replaying the flight journal while the vehicle is connected.");
+            return null;
+        }
+
+        final Replay replay = new Replay(eventBus, drone, speed);
+        replay.scheduleNext();
+        return replay;
+    }
+
+    public class Replay implements Runnable {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final DroneEventBus eventBus;
+        private final Drone drone;
+        private final float speed;
+
+        private long firstTimestamp = -1;
+        private long startTime;
+        private volatile boolean isCancelled;
+
+        private Replay(DroneEventBus eventBus, Drone drone, float speed) {
+            this.eventBus = eventBus;
+            this.drone = drone;
+            this.speed = speed;
+        }
+
+        public void cancel() {
+            isCancelled = true;
+            handler.removeCallbacks(this);
+        }
+
+        /**
+         * Moves to the next vehicle event, and schedules its dispatch.
+         */
+        private void scheduleNext() {
+            while (next()) {
+                if (type != FlightJournal.TYPE_VEHICLE_EVENT || getEventName() == null)
+                    continue;
+
+                if (firstTimestamp == -1) {
+                    firstTimestamp = timestamp;
+                    startTime = SystemClock.uptimeMillis();
+                }
+
+                final long delay = speed > 0 ? (long) ((timestamp - firstTimestamp) / speed) : 0;
+                handler.postAtTime(this, startTime + delay);
+                return;
+            }
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled)
+                return;
+
+            if (drone.isConnected()) {
+                Timber.w("Vehicle connected, stopping the flight journal replay.");
+                cancel();
+                return;
+            }
+
+            // The periodic dispatch only runs while a vehicle is connected.
+            eventBus.postNow(getEventName(), getEventExtras());
+            scheduleNext();
+        }
+    }
+}
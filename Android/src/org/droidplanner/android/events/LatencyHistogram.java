@@ -0,0 +1,111 @@
+package org.droidplanner.android.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations, in microseconds.
+ *
+ * Like HdrHistogram, the values are counted in log-linear buckets: values below
+ * {@link #SUB_BUCKET_COUNT} are exact, and larger values are held with a relative precision of
+ * 1 / {@link #HALF_SUB_BUCKET_COUNT} (about 3%), in a fixed amount of memory. Values above
+ * {@link #MAX_VALUE} are clamped.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * About 35 minutes.
+     */
+    public static final long MAX_VALUE = (1L << 31) - 1;
+
+    private static final int BUCKETS_COUNT = getBucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        // Shift bringing the value in [HALF_SUB_BUCKET_COUNT, SUB_BUCKET_COUNT).
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >> shift);
+    }
+
+    /**
+     * @return the highest value counted in the given bucket.
+     */
+    private static long getBucketHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        final int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        final long subBucket = index - shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void recordValue(long value) {
+        if (value < 0)
+            value = 0;
+        else if (value > MAX_VALUE)
+            value = MAX_VALUE;
+
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(value);
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        final long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the value below which the given percentage of the recorded values fall, within the
+     * histogram precision.
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long count = totalCount.get();
+        if (count == 0)
+            return 0;
+
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long cumulatedCount = 0;
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            cumulatedCount += counts.get(i);
+            if (cumulatedCount >= countAtPercentile)
+                return Math.min(getBucketHighestValue(i), maxValue.get());
+        }
+
+        return maxValue.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalValue.set(0);
+        maxValue.set(0);
+    }
+}
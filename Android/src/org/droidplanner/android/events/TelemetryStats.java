@@ -0,0 +1,173 @@
+package org.droidplanner.android.events;
+
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency and throughput statistics of the telemetry pipeline, per event type.
+ *
+ * For each event, the queue time goes from the moment the event is posted to the bus, to the
+ * moment a subscriber starts handling it; it covers the coalescing buffer, the mailbox and the
+ * subscriber thread queue. The handler time is the time spent in the subscriber callback. Stages
+ * past the subscribers, like the map frame, are recorded under their own name.
+ *
+ * Recording is disabled by default.
+ */
+public class TelemetryStats {
+
+    public static final class Entry {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final LatencyHistogram queueTime = new LatencyHistogram();
+        private final LatencyHistogram handlerTime = new LatencyHistogram();
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of occurrences of the event, before coalescing.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return queue time histogram, in microseconds.
+         */
+        public LatencyHistogram getQueueTime() {
+            return queueTime;
+        }
+
+        /**
+         * @return handler time histogram, in microseconds.
+         */
+        public LatencyHistogram getHandlerTime() {
+            return handlerTime;
+        }
+
+        private void reset() {
+            count.set(0);
+            queueTime.reset();
+            handlerTime.reset();
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(DroneEventBus.MAX_EVENT_TYPES);
+
+    private volatile boolean isEnabled;
+    private volatile long startTime = SystemClock.elapsedRealtime();
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    /**
+     * Counts an occurrence of the given event.
+     */
+    void recordEvent(int eventId) {
+        if (isEnabled && eventId != -1)
+            getEntry(eventId).count.incrementAndGet();
+    }
+
+    /**
+     * Records the delivery of the given event to a subscriber.
+     */
+    void recordDelivery(int eventId, long queueTimeNanos, long handlerTimeNanos) {
+        if (!isEnabled || eventId == -1)
+            return;
+
+        final Entry entry = getEntry(eventId);
+        entry.queueTime.recordValue(queueTimeNanos / 1000);
+        entry.handlerTime.recordValue(handlerTimeNanos / 1000);
+    }
+
+    /**
+     * Records a pass through the given stage of the pipeline.
+     *
+     * @param queueTimeNanos   time since the stage was requested.
+     * @param handlerTimeNanos time spent in the stage.
+     */
+    public void recordStage(String stage, long queueTimeNanos, long handlerTimeNanos) {
+        if (!isEnabled)
+            return;
+
+        final int stageId = DroneEventBus.getEventId(stage);
+        recordEvent(stageId);
+        recordDelivery(stageId, queueTimeNanos, handlerTimeNanos);
+    }
+
+    private Entry getEntry(int eventId) {
+        Entry entry = entries.get(eventId);
+        if (entry == null) {
+            entries.compareAndSet(eventId, null, new Entry(DroneEventBus.getEventName(eventId)));
+            entry = entries.get(eventId);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the entries of the events recorded so far.
+     */
+    public List<Entry> getEntries() {
+        final List<Entry> recorded = new ArrayList<>();
+        for (int i = 0; i < entries.length(); i++) {
+            final Entry entry = entries.get(i);
+            if (entry != null && entry.getCount() > 0)
+                recorded.add(entry);
+        }
+        return recorded;
+    }
+
+    /**
+     * @return time elapsed since the last reset, in milliseconds.
+     */
+    public long getElapsedTime() {
+        return SystemClock.elapsedRealtime() - startTime;
+    }
+
+    public void reset() {
+        for (int i = 0; i < entries.length(); i++) {
+            final Entry entry = entries.get(i);
+            if (entry != null)
+                entry.reset();
+        }
+        startTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Writes the statistics as csv, with the durations in microseconds.
+     */
+    public void writeCsv(Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("event,count,events_per_s,queue_mean,queue_p50,queue_p99,queue_max,handler_mean,handler_p50,handler_p99,handler_max");
+
+        final double elapsedSeconds = Math.max(1, getElapsedTime()) / 1000d;
+        for (Entry entry : getEntries()) {
+            final LatencyHistogram queueTime = entry.getQueueTime();
+            final LatencyHistogram handlerTime = entry.getHandlerTime();
+            out.println(String.format(Locale.US, "%s,%d,%.2f,%.0f,%d,%d,%d,%.0f,%d,%d,%d",
+                    entry.getName(), entry.getCount(), entry.getCount() / elapsedSeconds,
+                    queueTime.getMean(), queueTime.getValueAtPercentile(50),
+                    queueTime.getValueAtPercentile(99), queueTime.getMaxValue(),
+                    handlerTime.getMean(), handlerTime.getValueAtPercentile(50),
+                    handlerTime.getValueAtPercentile(99), handlerTime.getMaxValue()));
+        }
+        out.flush();
+    }
+}
@@ -1,10 +1,7 @@
 package org.droidplanner.android.fragments;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,6 +11,7 @@ import android.widget.ExpandableListView;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment;
 import org.droidplanner.android.view.checklist.CheckListAdapter;
 import org.droidplanner.android.view.checklist.CheckListAdapter.OnCheckListItemUpdateListener;
@@ -29,21 +27,20 @@ import java.util.List;
 public class ChecklistFragment extends ApiListenerFragment implements OnXmlParserError,
 		OnCheckListItemUpdateListener {
 
-    private final static IntentFilter intentFilter = new IntentFilter();
-	static {
-		intentFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-		intentFilter.addAction(AttributeEvent.GPS_COUNT);
-		intentFilter.addAction(AttributeEvent.GPS_FIX);
-		intentFilter.addAction(AttributeEvent.GPS_POSITION);
-		intentFilter.addAction(AttributeEvent.STATE_CONNECTED);
-		intentFilter.addAction(AttributeEvent.STATE_DISCONNECTED);
-		intentFilter.addAction(AttributeEvent.STATE_UPDATED);
-		intentFilter.addAction(AttributeEvent.STATE_ARMING);
-	}
-
-    private final BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
+	private static final String[] DRONE_EVENTS = {
+			AttributeEvent.BATTERY_UPDATED,
+			AttributeEvent.GPS_COUNT,
+			AttributeEvent.GPS_FIX,
+			AttributeEvent.GPS_POSITION,
+			AttributeEvent.STATE_CONNECTED,
+			AttributeEvent.STATE_DISCONNECTED,
+			AttributeEvent.STATE_UPDATED,
+			AttributeEvent.STATE_ARMING
+	};
+
+    private final DroneEventBus.Subscriber droneEventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onDroneEvent(String event, Bundle extras) {
 			onInfoUpdate();
         }
     };
@@ -91,12 +88,12 @@ public class ChecklistFragment extends ApiListenerFragment implements OnXmlParse
     @Override
     public void onApiConnected(){
         sysLink = new CheckListSysLink(getActivity().getApplicationContext(), getDrone());
-        getBroadcastManager().registerReceiver(broadcastReceiver, intentFilter);
+        getEventBus().subscribe(droneEventSubscriber, DRONE_EVENTS);
     }
 
     @Override
     public void onApiDisconnected(){
-        getBroadcastManager().unregisterReceiver(broadcastReceiver);
+        getEventBus().unsubscribe(droneEventSubscriber);
     }
 
 	public void onInfoUpdate() {
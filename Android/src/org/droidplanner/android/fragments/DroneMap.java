@@ -6,7 +6,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Bundle;
-import android.os.Handler;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.view.LayoutInflater;
@@ -21,11 +20,13 @@ import com.o3dr.services.android.lib.drone.property.CameraProxy;
 import com.o3dr.services.android.lib.drone.property.Gps;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment;
 import org.droidplanner.android.graphic.map.GraphicDrone;
 import org.droidplanner.android.graphic.map.GraphicGuided;
 import org.droidplanner.android.graphic.map.GraphicHome;
 import org.droidplanner.android.maps.DPMap;
+import org.droidplanner.android.maps.MapUpdateScheduler;
 import org.droidplanner.android.maps.MarkerInfo;
 import org.droidplanner.android.maps.providers.DPMapProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
@@ -36,6 +37,7 @@ import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -47,19 +49,22 @@ public abstract class DroneMap extends ApiListenerFragment {
 	private static final IntentFilter eventFilter = new IntentFilter();
 	static {
 		eventFilter.addAction(MissionProxy.ACTION_MISSION_PROXY_UPDATE);
-		eventFilter.addAction(AttributeEvent.GPS_POSITION);
-		eventFilter.addAction(AttributeEvent.GUIDED_POINT_UPDATED);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_FIRST);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_RESTORED);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_TIMEOUT);
-		eventFilter.addAction(AttributeEvent.STATE_CONNECTED);
-		eventFilter.addAction(AttributeEvent.STATE_DISCONNECTED);
-		eventFilter.addAction(AttributeEvent.CAMERA_FOOTPRINTS_UPDATED);
-		eventFilter.addAction(AttributeEvent.ATTITUDE_UPDATED);
-		eventFilter.addAction(AttributeEvent.HOME_UPDATED);
         eventFilter.addAction(ACTION_UPDATE_MAP);
 	}
 
+	private static final String[] DRONE_EVENTS = {
+			AttributeEvent.GPS_POSITION,
+			AttributeEvent.GUIDED_POINT_UPDATED,
+			AttributeEvent.HEARTBEAT_FIRST,
+			AttributeEvent.HEARTBEAT_RESTORED,
+			AttributeEvent.HEARTBEAT_TIMEOUT,
+			AttributeEvent.STATE_CONNECTED,
+			AttributeEvent.STATE_DISCONNECTED,
+			AttributeEvent.CAMERA_FOOTPRINTS_UPDATED,
+			AttributeEvent.ATTITUDE_UPDATED,
+			AttributeEvent.HOME_UPDATED
+	};
+
     private static final List<MarkerInfo> NO_EXTERNAL_MARKERS = Collections.emptyList();
 
     private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
@@ -71,35 +76,41 @@ public abstract class DroneMap extends ApiListenerFragment {
 			final String action = intent.getAction();
             switch (action) {
                 case ACTION_UPDATE_MAP:
-				case AttributeEvent.HOME_UPDATED:
                 case MissionProxy.ACTION_MISSION_PROXY_UPDATE:
                     postUpdate();
                     break;
+            }
+		}
+	};
 
-                case AttributeEvent.GPS_POSITION: {
-                    mMapFragment.updateMarker(graphicDrone);
-                    mMapFragment.updateDroneLeashPath(guided);
-                    final Gps droneGps = drone.getAttribute(AttributeType.GPS);
-                    if (droneGps != null && droneGps.isValid()) {
-                        mMapFragment.addFlightPathPoint(droneGps.getPosition());
-                    }
+	private final DroneEventBus.Subscriber droneEventSubscriber = new DroneEventBus.Subscriber() {
+		@Override
+		public void onDroneEvent(String event, Bundle extras) {
+			if (!isResumed())
+				return;
+
+			switch (event) {
+				case AttributeEvent.HOME_UPDATED:
+					postUpdate();
+					break;
+
+                case AttributeEvent.GPS_POSITION:
+                    scheduleDroneUpdate(UPDATE_DRONE | UPDATE_LEASH | UPDATE_FLIGHT_PATH);
                     break;
-                }
 
                 case AttributeEvent.GUIDED_POINT_UPDATED:
-                    mMapFragment.updateMarker(guided);
-                    mMapFragment.updateDroneLeashPath(guided);
+                    scheduleDroneUpdate(UPDATE_GUIDED | UPDATE_LEASH);
                     break;
 
                 case AttributeEvent.HEARTBEAT_FIRST:
                 case AttributeEvent.HEARTBEAT_RESTORED:
 				case AttributeEvent.STATE_CONNECTED:
-                    mMapFragment.updateMarker(graphicDrone);
+                    scheduleDroneUpdate(UPDATE_DRONE);
                     break;
 
                 case AttributeEvent.STATE_DISCONNECTED:
                 case AttributeEvent.HEARTBEAT_TIMEOUT:
-                    mMapFragment.updateMarker(graphicDrone);
+                    scheduleDroneUpdate(UPDATE_DRONE);
                     break;
 
                 case AttributeEvent.CAMERA_FOOTPRINTS_UPDATED: {
@@ -130,69 +141,126 @@ public abstract class DroneMap extends ApiListenerFragment {
 		}
 	};
 
-	private final Handler mHandler = new Handler();
+	/*
+	 * Map updates, coalesced until the next frame.
+	 */
+	private static final int UPDATE_MAP = 1;
+	private static final int UPDATE_DRONE = 1 << 1;
+	private static final int UPDATE_GUIDED = 1 << 2;
+	private static final int UPDATE_LEASH = 1 << 3;
+	private static final int UPDATE_FLIGHT_PATH = 1 << 4;
+
+	/**
+	 * Name of the map frame stage in the telemetry statistics.
+	 */
+	private static final String MAP_FRAME_STAGE = "stage:map_frame";
+
+	/**
+	 * {@link System#nanoTime()} of the first drone update requested since the last frame, or 0.
+	 */
+	private long mDroneUpdateRequestTime;
 
-	private final Runnable mUpdateMap = new Runnable() {
+	private final MapUpdateScheduler mMapUpdates = new MapUpdateScheduler(new MapUpdateScheduler.Callback() {
 		@Override
-		public void run() {
+		public void onMapUpdate(int updates) {
 			if (getActivity() == null && mMapFragment == null)
 				return;
 
-			final List<MarkerInfo> missionMarkerInfos = missionProxy.getMarkersInfos();
-            final List<MarkerInfo> externalMarkers = collectMarkersFromProviders();
+			final long frameStartTime = System.nanoTime();
 
-			final boolean isThereMissionMarkers = !missionMarkerInfos.isEmpty();
-            final boolean isThereExternalMarkers = !externalMarkers.isEmpty();
-			final boolean isHomeValid = home.isValid();
-			final boolean isGuidedVisible = guided.isVisible();
+			if ((updates & UPDATE_MAP) != 0) {
+				updateMap();
+			} else if ((updates & UPDATE_GUIDED) != 0) {
+				mMapFragment.updateMarker(guided);
+			}
 
-			// Get the list of markers currently on the map.
-			final Set<MarkerInfo> markersOnTheMap = mMapFragment.getMarkerInfoList();
+			if ((updates & UPDATE_DRONE) != 0)
+				mMapFragment.updateMarker(graphicDrone);
 
-			if (!markersOnTheMap.isEmpty()) {
-				if (isHomeValid) {
-					markersOnTheMap.remove(home);
-				}
+			if ((updates & UPDATE_LEASH) != 0)
+				mMapFragment.updateDroneLeashPath(guided);
 
-				if (isGuidedVisible) {
-					markersOnTheMap.remove(guided);
+			if ((updates & UPDATE_FLIGHT_PATH) != 0) {
+				// Only the latest position of the frame is added to the flight path.
+				final Gps droneGps = drone.getAttribute(AttributeType.GPS);
+				if (droneGps != null && droneGps.isValid()) {
+					mMapFragment.addFlightPathPoint(droneGps.getPosition());
 				}
+			}
 
-				if (isThereMissionMarkers) {
-					markersOnTheMap.removeAll(missionMarkerInfos);
-				}
+			if (mDroneUpdateRequestTime != 0) {
+				getEventBus().getStats().recordStage(MAP_FRAME_STAGE,
+						frameStartTime - mDroneUpdateRequestTime, System.nanoTime() - frameStartTime);
+				mDroneUpdateRequestTime = 0;
+			}
+		}
+	});
 
-                if(isThereExternalMarkers)
-                    markersOnTheMap.removeAll(externalMarkers);
+	private void scheduleDroneUpdate(int updates) {
+		if (mDroneUpdateRequestTime == 0)
+			mDroneUpdateRequestTime = System.nanoTime();
+		mMapUpdates.schedule(updates);
+	}
 
-				mMapFragment.removeMarkers(markersOnTheMap);
-			}
+	private void updateMap() {
+		final List<MarkerInfo> missionMarkerInfos = missionProxy.getMarkersInfos();
+        final List<MarkerInfo> externalMarkers = collectMarkersFromProviders();
 
-			if (isHomeValid) {
-				mMapFragment.updateMarker(home);
-			}
+		final boolean isThereMissionMarkers = !missionMarkerInfos.isEmpty();
+        final boolean isThereExternalMarkers = !externalMarkers.isEmpty();
+		final boolean isHomeValid = home.isValid();
+		final boolean isGuidedVisible = guided.isVisible();
 
-			if (isGuidedVisible) {
-				mMapFragment.updateMarker(guided);
-			}
+		// Only remove the markers which were displayed by the previous pass, and are gone.
+		final Set<MarkerInfo> currentMarkers = mNextMarkers;
+		currentMarkers.clear();
+		if (isHomeValid)
+			currentMarkers.add(home);
 
-			if (isThereMissionMarkers) {
-				mMapFragment.updateMarkers(missionMarkerInfos, isMissionDraggable());
-			}
+		if (isGuidedVisible)
+			currentMarkers.add(guided);
 
-            if(isThereExternalMarkers)
-                mMapFragment.updateMarkers(externalMarkers, false);
+		currentMarkers.addAll(missionMarkerInfos);
+		currentMarkers.addAll(externalMarkers);
 
-			mMapFragment.updateMissionPath(missionProxy);
+		final Set<MarkerInfo> staleMarkers = mDisplayedMarkers;
+		staleMarkers.removeAll(currentMarkers);
+		if (!staleMarkers.isEmpty()) {
+			mMapFragment.removeMarkers(staleMarkers);
+			staleMarkers.clear();
+		}
 
-			mMapFragment.updatePolygonsPaths(missionProxy.getPolygonsPath());
+		mNextMarkers = staleMarkers;
+		mDisplayedMarkers = currentMarkers;
 
-			mHandler.removeCallbacks(this);
+		if (isHomeValid) {
+			mMapFragment.updateMarker(home);
 		}
-	};
+
+		if (isGuidedVisible) {
+			mMapFragment.updateMarker(guided);
+		}
+
+		if (isThereMissionMarkers) {
+			mMapFragment.updateMarkers(missionMarkerInfos, isMissionDraggable());
+		}
+
+        if(isThereExternalMarkers)
+            mMapFragment.updateMarkers(externalMarkers, false);
+
+		mMapFragment.updateMissionPath(missionProxy);
+
+		mMapFragment.updatePolygonsPaths(missionProxy.getPolygonsPath());
+	}
 
     private final ConcurrentLinkedQueue<MapMarkerProvider> markerProviders = new ConcurrentLinkedQueue<>();
 
+	/**
+	 * Markers displayed by the last map update. The sets are swapped on each update.
+	 */
+	private Set<MarkerInfo> mDisplayedMarkers = new HashSet<>();
+	private Set<MarkerInfo> mNextMarkers = new HashSet<>();
+
 	protected DPMap mMapFragment;
 
 	protected DroidPlannerPrefs mAppPrefs;
@@ -222,15 +290,18 @@ public abstract class DroneMap extends ApiListenerFragment {
 	@Override
 	public void onDetach() {
 		super.onDetach();
-		mHandler.removeCallbacksAndMessages(null);
+		mMapUpdates.cancel();
+		mDroneUpdateRequestTime = 0;
 	}
 
 	@Override
 	public void onApiConnected() {
 		if (mMapFragment != null)
 			mMapFragment.clearMarkers();
+		mDisplayedMarkers.clear();
 
 		getBroadcastManager().registerReceiver(eventReceiver, eventFilter);
+		getEventBus().subscribe(droneEventSubscriber, DRONE_EVENTS);
 
 		drone = getDrone();
 		missionProxy = getMissionProxy();
@@ -252,6 +323,7 @@ public abstract class DroneMap extends ApiListenerFragment {
 	@Override
 	public void onApiDisconnected() {
 		getBroadcastManager().unregisterReceiver(eventReceiver);
+		getEventBus().unsubscribe(droneEventSubscriber);
 	}
 
 	private void updateMapFragment() {
@@ -292,7 +364,8 @@ public abstract class DroneMap extends ApiListenerFragment {
 	@Override
 	public void onStop() {
 		super.onStop();
-		mHandler.removeCallbacksAndMessages(null);
+		mMapUpdates.cancel();
+		mDroneUpdateRequestTime = 0;
 	}
 
 	@Override
@@ -303,7 +376,7 @@ public abstract class DroneMap extends ApiListenerFragment {
 	}
 
 	public final void postUpdate() {
-		mHandler.post(mUpdateMap);
+		mMapUpdates.schedule(UPDATE_MAP);
 	}
 
 	protected int getMaxFlightPathSize() {
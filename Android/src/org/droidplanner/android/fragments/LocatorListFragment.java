@@ -9,8 +9,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.MAVLink.common.msg_global_position_int;
-
 import org.droidplanner.android.R;
 import org.droidplanner.android.activities.LocatorActivity;
 import org.droidplanner.android.view.adapterViews.LocatorItemAdapter;
@@ -22,7 +20,11 @@ public class LocatorListFragment extends Fragment {
     private OnLocatorListListener listener;
 
     public interface OnLocatorListListener {
-        void onItemClick(msg_global_position_int message);
+        /**
+         * @param position index of the selected position in the locator store, or -1 if the
+         *                 selection was cleared.
+         */
+        void onItemClick(int position);
     }
 
     @Override
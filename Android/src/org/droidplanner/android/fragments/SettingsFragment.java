@@ -88,6 +88,9 @@ public class SettingsFragment extends PreferenceFragment implements OnSharedPref
     public static final String ACTION_MAP_ROTATION_PREFERENCE_UPDATED = PACKAGE_NAME +
             ".ACTION_MAP_ROTATION_PREFERENCE_UPDATED";
 
+    public static final String ACTION_FOOTPRINTS_HEATMAP_PREFERENCE_UPDATED = PACKAGE_NAME +
+            ".ACTION_FOOTPRINTS_HEATMAP_PREFERENCE_UPDATED";
+
     public static final String ACTION_WIDGET_PREFERENCE_UPDATED = PACKAGE_NAME + ".ACTION_WIDGET_PREFERENCE_UPDATED";
     public static final String EXTRA_ADD_WIDGET = "extra_add_widget";
     public static final String EXTRA_WIDGET_PREF_KEY = "extra_widget_pref_key";
@@ -309,6 +312,17 @@ public class SettingsFragment extends PreferenceFragment implements OnSharedPref
                 return true;
             }
         });
+
+        final CheckBoxPreference footprintsHeatmap = (CheckBoxPreference) findPreference(DroidPlannerPrefs.PREF_UI_FOOTPRINTS_HEATMAP);
+        if (footprintsHeatmap != null) {
+            footprintsHeatmap.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+                @Override
+                public boolean onPreferenceChange(Preference preference, Object newValue) {
+                    lbm.sendBroadcast(new Intent(ACTION_FOOTPRINTS_HEATMAP_PREFERENCE_UPDATED));
+                    return true;
+                }
+            });
+        }
     }
 
     private void setupImminentGroundCollisionWarningPreference(){
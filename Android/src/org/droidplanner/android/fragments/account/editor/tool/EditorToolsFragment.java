@@ -200,6 +200,19 @@ public class EditorToolsFragment extends ApiListenerFragment implements OnClickL
                 }
             }
         });
+        buttonUndo.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                setTool(EditorTools.NONE);
+
+                if (mMissionProxy.canRedoMission())
+                    mMissionProxy.redoMission();
+                else {
+                    Toast.makeText(getContext(), "No operation left to redo.", Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            }
+        });
 
         if (mMissionProxy != null) {
             for (EditorToolsImpl toolImpl : editorToolsImpls)
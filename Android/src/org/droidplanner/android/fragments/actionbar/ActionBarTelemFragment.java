@@ -27,6 +27,7 @@ import com.o3dr.services.android.lib.util.MathUtils;
 import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.R;
 import org.droidplanner.android.dialogs.SelectionListDialog;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment;
 import org.droidplanner.android.utils.Utils;
@@ -42,25 +43,27 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
     private final static IntentFilter eventFilter = new IntentFilter();
 
     static {
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_CONNECTED);
-        eventFilter.addAction(AttributeEvent.STATE_DISCONNECTED);
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
-        eventFilter.addAction(AttributeEvent.GPS_COUNT);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.SIGNAL_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.TYPE_UPDATED);
-        eventFilter.addAction(AttributeEvent.ALTITUDE_UPDATED);
-
         eventFilter.addAction(SettingsFragment.ACTION_PREF_HDOP_UPDATE);
         eventFilter.addAction(SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE);
 
         eventFilter.addAction(DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED);
-        eventFilter.addAction(AttributeEvent.RETURN_TO_ME_STATE_UPDATE);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
     }
 
+    private static final String[] DRONE_EVENTS = {
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.STATE_CONNECTED,
+            AttributeEvent.STATE_DISCONNECTED,
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.SIGNAL_UPDATED,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.TYPE_UPDATED,
+            AttributeEvent.ALTITUDE_UPDATED,
+            AttributeEvent.RETURN_TO_ME_STATE_UPDATE,
+            AttributeEvent.HOME_UPDATED
+    };
+
     private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -68,6 +71,31 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
                 return;
 
             switch (intent.getAction()) {
+                case DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED:
+                    updateHomeTelem();
+                    break;
+
+                case SettingsFragment.ACTION_PREF_HDOP_UPDATE:
+                    updateGpsTelem();
+                    break;
+
+                case SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE:
+                    updateHomeTelem();
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    };
+
+    private final DroneEventBus.Subscriber droneEventSubscriber = new DroneEventBus.Subscriber() {
+        @Override
+        public void onDroneEvent(String event, Bundle extras) {
+            if (getActivity() == null)
+                return;
+
+            switch (event) {
                 case AttributeEvent.BATTERY_UPDATED:
                     updateBatteryTelem();
                     break;
@@ -82,7 +110,6 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
                     updateAllTelem();
                     break;
 
-                case DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED:
                 case AttributeEvent.RETURN_TO_ME_STATE_UPDATE:
                 case AttributeEvent.GPS_POSITION:
                 case AttributeEvent.HOME_UPDATED:
@@ -103,14 +130,6 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
                     updateFlightModeTelem();
                     break;
 
-                case SettingsFragment.ACTION_PREF_HDOP_UPDATE:
-                    updateGpsTelem();
-                    break;
-
-                case SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE:
-                    updateHomeTelem();
-                    break;
-
                 case AttributeEvent.ALTITUDE_UPDATED:
                     updateAltitudeTelem();
                     break;
@@ -245,11 +264,13 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
 
         updateAllTelem();
         getBroadcastManager().registerReceiver(eventReceiver, eventFilter);
+        getEventBus().subscribe(droneEventSubscriber, DRONE_EVENTS);
     }
 
     @Override
     public void onApiDisconnected() {
         getBroadcastManager().unregisterReceiver(eventReceiver);
+        getEventBus().unsubscribe(droneEventSubscriber);
     }
 
     private void updateAllTelem() {
@@ -11,6 +11,7 @@ import android.support.v4.content.LocalBroadcastManager;
 import com.o3dr.android.client.Drone;
 
 import org.droidplanner.android.DroidPlannerApp;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
@@ -62,6 +63,10 @@ public abstract class ApiListenerFragment extends Fragment implements DroidPlann
 		return broadcastManager;
 	}
 
+	protected DroneEventBus getEventBus() {
+		return dpApp.getEventBus();
+	}
+
 	@Override
 	public void onAttach(Activity activity) {
 		super.onAttach(activity);
@@ -1,13 +1,8 @@
 package org.droidplanner.android.fragments.mode;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
-import android.support.v4.content.LocalBroadcastManager;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -30,6 +25,7 @@ import com.o3dr.services.android.lib.util.MathUtils;
 
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.proxy.mission.item.markers.MissionItemMarkerInfo;
 import org.droidplanner.android.view.spinnerWheel.CardWheelHorizontalView;
@@ -41,25 +37,23 @@ import java.util.List;
 public class ModeAutoFragment extends Fragment implements View.OnClickListener, CardWheelHorizontalView.OnCardWheelScrollListener<Integer> {
     private Drone drone;
 
-    private static final IntentFilter eventFilter = new IntentFilter();
-    static{
-        eventFilter.addAction(AttributeEvent.MISSION_ITEM_UPDATED);
-        eventFilter.addAction(AttributeEvent.PARAMETER_RECEIVED);
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
-        eventFilter.addAction(AttributeEvent.MISSION_UPDATED);
-        eventFilter.addAction(AttributeEvent.MISSION_RECEIVED);
-    }
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private static final String[] DRONE_EVENTS = {
+            AttributeEvent.MISSION_ITEM_UPDATED,
+            AttributeEvent.PARAMETER_RECEIVED,
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.MISSION_UPDATED,
+            AttributeEvent.MISSION_RECEIVED
+    };
+    private final DroneEventBus.Subscriber droneEventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            final String action = intent.getAction();
-            switch (action){
+        public void onDroneEvent(String event, Bundle extras) {
+            switch (event){
                 case AttributeEvent.MISSION_RECEIVED:
                 case AttributeEvent.MISSION_UPDATED:
                     final MissionProxy missionProxy = getMissionProxy();
                     if(missionProxy != null) {
                         mission = drone.getAttribute(AttributeType.MISSION);
-                        waypointSelectorAdapter = new NumericWheelAdapter(context, R.layout.wheel_text_centered,
+                        waypointSelectorAdapter = new NumericWheelAdapter(getActivity().getApplicationContext(), R.layout.wheel_text_centered,
                                 missionProxy.getFirstWaypoint(), missionProxy.getLastWaypoint(), "%3d");
                         waypointSelector.setViewAdapter(waypointSelectorAdapter);
                     }
@@ -67,7 +61,7 @@ public class ModeAutoFragment extends Fragment implements View.OnClickListener,
 
                 case AttributeEvent.MISSION_ITEM_UPDATED:
                     mission = drone.getAttribute(AttributeType.MISSION);
-                    nextWaypoint = intent.getIntExtra(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
+                    nextWaypoint = extras == null ? 0 : extras.getInt(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
                     waypointSelector.setCurrentValue(nextWaypoint);
                     break;
                 case AttributeEvent.GPS_POSITION:
@@ -109,6 +103,10 @@ public class ModeAutoFragment extends Fragment implements View.OnClickListener,
         waypointSelector.setViewAdapter(waypointSelectorAdapter);
     }
 
+    private DroneEventBus getEventBus(){
+        return ((DroidPlannerApp) getActivity().getApplication()).getEventBus();
+    }
+
     private MissionProxy getMissionProxy(){
         final Activity activity = getActivity();
         if(activity == null)
@@ -137,13 +135,13 @@ public class ModeAutoFragment extends Fragment implements View.OnClickListener,
     @Override
     public void onStart() {
         super.onStart();
-        LocalBroadcastManager.getInstance(getActivity().getApplicationContext()).registerReceiver(eventReceiver, eventFilter);
+        getEventBus().subscribe(droneEventSubscriber, DRONE_EVENTS);
     }
 
     @Override
     public void onStop() {
         super.onStop();
-        LocalBroadcastManager.getInstance(getActivity().getApplicationContext()).unregisterReceiver(eventReceiver);
+        getEventBus().unsubscribe(droneEventSubscriber);
     }
 
     private void gotoMissionItem(final int waypoint){
@@ -6,6 +6,7 @@ import android.support.annotation.StringRes
 import org.droidplanner.android.R
 import org.droidplanner.android.fragments.widget.diagnostics.FullWidgetDiagnostics
 import org.droidplanner.android.fragments.widget.diagnostics.MiniWidgetDiagnostics
+import org.droidplanner.android.fragments.widget.diagnostics.MiniWidgetTelemetryStats
 import org.droidplanner.android.fragments.widget.telemetry.MiniWidgetFlightTimer
 import org.droidplanner.android.fragments.widget.telemetry.MiniWidgetGeoInfo
 import org.droidplanner.android.fragments.widget.telemetry.MiniWidgetAttitudeSpeedInfo
@@ -68,6 +69,10 @@ public enum class TowerWidgets(@IdRes val idRes: Int, @StringRes val labelResId:
 
     GEO_INFO(R.id.tower_widget_geo_info, R.string.label_widget_geo_info, R.string.description_widget_geo_info, "pref_widget_geo_info"){
         override fun getMinimizedFragment() = MiniWidgetGeoInfo()
+    },
+
+    TELEMETRY_STATS(R.id.tower_widget_telemetry_stats, R.string.label_widget_telemetry_stats, R.string.description_widget_telemetry_stats, "pref_widget_telemetry_stats"){
+        override fun getMinimizedFragment() = MiniWidgetTelemetryStats()
     }
     ;
 
@@ -92,6 +97,7 @@ public enum class TowerWidgets(@IdRes val idRes: Int, @StringRes val labelResId:
                 UVC_VIDEO.idRes -> UVC_VIDEO
                 VEHICLE_DIAGNOSTICS.idRes -> VEHICLE_DIAGNOSTICS
                 GEO_INFO.idRes -> GEO_INFO
+                TELEMETRY_STATS.idRes -> TELEMETRY_STATS
                 else -> null
             }
         }
@@ -104,6 +110,7 @@ public enum class TowerWidgets(@IdRes val idRes: Int, @StringRes val labelResId:
                 UVC_VIDEO.prefKey -> UVC_VIDEO
                 VEHICLE_DIAGNOSTICS.prefKey -> VEHICLE_DIAGNOSTICS
                 GEO_INFO.prefKey -> GEO_INFO
+                TELEMETRY_STATS.prefKey -> TELEMETRY_STATS
                 else -> null
             }
         }
@@ -0,0 +1,128 @@
+package org.droidplanner.android.fragments.widget.diagnostics
+
+import android.os.Bundle
+import android.os.Handler
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.TextView
+import android.widget.Toast
+import org.droidplanner.android.R
+import org.droidplanner.android.events.TelemetryStats
+import org.droidplanner.android.fragments.widget.TowerWidget
+import org.droidplanner.android.fragments.widget.TowerWidgets
+import org.droidplanner.android.utils.file.FileStream
+import timber.log.Timber
+import java.io.FileWriter
+import java.io.IOException
+import java.util.*
+
+/**
+ * Debug widget displaying the latency and rate of the telemetry events, from the event bus
+ * statistics. The statistics are recorded while the widget is shown.
+ */
+public class MiniWidgetTelemetryStats : TowerWidget() {
+
+    companion object {
+        private val REFRESH_PERIOD = 1000L //ms
+
+        private val MAX_DISPLAYED_EVENTS = 8
+    }
+
+    private val handler = Handler()
+
+    private val statsUpdater = object : Runnable {
+        override fun run() {
+            handler.removeCallbacks(this)
+            updateStats()
+            handler.postDelayed(this, REFRESH_PERIOD)
+        }
+    }
+
+    /**
+     * Event counts at the previous refresh, to compute the current rates.
+     */
+    private val previousCounts = HashMap<kotlin.String, Long>()
+    private var previousRefreshTime = 0L
+
+    private var statsView: TextView? = null
+
+    override fun onCreateView(inflater: LayoutInflater?, container: ViewGroup?, savedInstanceState: Bundle?): View? {
+        return inflater?.inflate(R.layout.fragment_mini_widget_telemetry_stats, container, false)
+    }
+
+    override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+        super.onViewCreated(view, savedInstanceState)
+
+        statsView = view.findViewById(R.id.telemetry_stats) as TextView?
+
+        view.findViewById(R.id.telemetry_stats_reset)?.setOnClickListener {
+            eventBus.stats.reset()
+            previousCounts.clear()
+            updateStats()
+        }
+
+        view.findViewById(R.id.telemetry_stats_export)?.setOnClickListener { exportStats() }
+    }
+
+    override fun getWidgetType() = TowerWidgets.TELEMETRY_STATS
+
+    override fun onApiConnected() {
+        eventBus.stats.isEnabled = true
+        previousCounts.clear()
+        statsUpdater.run()
+    }
+
+    override fun onApiDisconnected() {
+        handler.removeCallbacks(statsUpdater)
+        eventBus.stats.isEnabled = false
+    }
+
+    private fun updateStats() {
+        val now = System.currentTimeMillis()
+        val elapsedSeconds = Math.max(1L, now - previousRefreshTime) / 1000.0
+        previousRefreshTime = now
+
+        val entries = eventBus.stats.entries
+        if (entries.isEmpty()) {
+            statsView?.setText(R.string.label_telemetry_stats_empty)
+            return
+        }
+
+        val rates = HashMap<TelemetryStats.Entry, Double>()
+        for (entry in entries) {
+            val previousCount = previousCounts[entry.name] ?: entry.count
+            rates.put(entry, (entry.count - previousCount) / elapsedSeconds)
+            previousCounts.put(entry.name, entry.count)
+        }
+
+        val builder = StringBuilder()
+        for (entry in entries.sortedByDescending { rates[it] }.take(MAX_DISPLAYED_EVENTS)) {
+            if (builder.length > 0)
+                builder.append('\n')
+
+            builder.append(String.format(Locale.US, "%-9.9s %5.1f  %5.1f/%-6.1f  %5.2f",
+                    entry.name.substringAfterLast('.').substringAfterLast(':'),
+                    rates[entry],
+                    entry.queueTime.getValueAtPercentile(50.0) / 1000.0,
+                    entry.queueTime.getValueAtPercentile(99.0) / 1000.0,
+                    entry.handlerTime.getValueAtPercentile(99.0) / 1000.0))
+        }
+
+        statsView?.text = builder.toString()
+    }
+
+    private fun exportStats() {
+        val context = activity?.applicationContext ?: return
+
+        val statsFile = FileStream.getTelemetryStatsFile()
+        try {
+            FileWriter(statsFile).use { eventBus.stats.writeCsv(it) }
+            Toast.makeText(context, getString(R.string.toast_telemetry_stats_exported, statsFile.absolutePath),
+                    Toast.LENGTH_LONG).show()
+        } catch (e: IOException) {
+            Timber.e(e, "Unable to export the telemetry stats.")
+            Toast.makeText(context, R.string.toast_telemetry_stats_export_failed, Toast.LENGTH_LONG).show()
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package org.droidplanner.android.fragments.widget.telemetry
 
-import android.content.BroadcastReceiver
-import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
 import android.os.Bundle
 import android.preference.PreferenceManager
 import android.view.LayoutInflater
@@ -15,6 +11,7 @@ import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.Attitude
 import com.o3dr.services.android.lib.drone.property.Speed
 import org.droidplanner.android.R
+import org.droidplanner.android.events.DroneEventBus
 import org.droidplanner.android.fragments.widget.TowerWidget
 import org.droidplanner.android.fragments.widget.TowerWidgets
 import org.droidplanner.android.view.AttitudeIndicator
@@ -27,21 +24,14 @@ import java.util.*
 public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
     companion object {
-        private val filter = initFilter()
-
-        private fun initFilter(): IntentFilter {
-            val temp = IntentFilter()
-            temp.addAction(AttributeEvent.ATTITUDE_UPDATED)
-            temp.addAction(AttributeEvent.SPEED_UPDATED)
-            temp.addAction(AttributeEvent.GPS_POSITION)
-            temp.addAction(AttributeEvent.HOME_UPDATED)
-            return temp
-        }
+        private val events = arrayOf(
+                AttributeEvent.ATTITUDE_UPDATED,
+                AttributeEvent.SPEED_UPDATED)
     }
 
-    private val receiver = object : BroadcastReceiver() {
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
+    private val subscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: kotlin.String, extras: Bundle?) {
+            when (event) {
                 AttributeEvent.ATTITUDE_UPDATED -> onOrientationUpdate()
                 AttributeEvent.SPEED_UPDATED -> onSpeedUpdate()
             }
@@ -86,11 +76,11 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
     override fun onApiConnected() {
         updateAllTelem()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(subscriber, *events)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(subscriber)
     }
 
     private fun updateAllTelem() {
@@ -1,6 +1,8 @@
 package org.droidplanner.android.fragments.widget.telemetry
 
-import android.content.*
+import android.content.ClipData
+import android.content.ClipboardManager
+import android.content.Context
 import android.location.Location
 import android.os.Bundle
 import android.view.LayoutInflater
@@ -12,6 +14,7 @@ import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
 import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.Gps
 import org.droidplanner.android.R
+import org.droidplanner.android.events.DroneEventBus
 import org.droidplanner.android.fragments.widget.TowerWidget
 import org.droidplanner.android.fragments.widget.TowerWidgets
 
@@ -21,19 +24,14 @@ import org.droidplanner.android.fragments.widget.TowerWidgets
 public class MiniWidgetGeoInfo : TowerWidget() {
 
     companion object {
-        private val filter = initFilter()
-
-        private fun initFilter(): IntentFilter {
-            val temp = IntentFilter()
-            temp.addAction(AttributeEvent.GPS_POSITION)
-            temp.addAction(AttributeEvent.HOME_UPDATED)
-            return temp
-        }
+        private val events = arrayOf(
+                AttributeEvent.GPS_POSITION,
+                AttributeEvent.HOME_UPDATED)
     }
 
-    private val receiver = object : BroadcastReceiver() {
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
+    private val subscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: String, extras: Bundle?) {
+            when (event) {
                 AttributeEvent.GPS_POSITION, AttributeEvent.HOME_UPDATED -> onPositionUpdate()
             }
         }
@@ -76,11 +74,11 @@ public class MiniWidgetGeoInfo : TowerWidget() {
 
     override fun onApiConnected() {
         onPositionUpdate()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(subscriber, *events)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(subscriber)
     }
 
     private fun onPositionUpdate() {
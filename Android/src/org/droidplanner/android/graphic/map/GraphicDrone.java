@@ -1,11 +1,11 @@
 package org.droidplanner.android.graphic.map;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
@@ -40,9 +40,9 @@ public class GraphicDrone extends MarkerInfo.SimpleMarkerInfo {
 	@Override
 	public Bitmap getIcon(Resources res) {
 		if (drone.isConnected()) {
-			return BitmapFactory.decodeResource(res, R.drawable.quad);
+			return MarkerIconCache.getResourceIcon(res, R.drawable.quad);
 		}
-		return BitmapFactory.decodeResource(res, R.drawable.quad_disconnect);
+		return MarkerIconCache.getResourceIcon(res, R.drawable.quad_disconnect);
 
 	}
 
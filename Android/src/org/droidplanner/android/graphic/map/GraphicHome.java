@@ -1,12 +1,12 @@
 package org.droidplanner.android.graphic.map;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
 
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.widget.Toast;
 
 import com.o3dr.android.client.Drone;
@@ -46,7 +46,7 @@ public class GraphicHome extends MarkerInfo.SimpleMarkerInfo {
 
 	@Override
 	public Bitmap getIcon(Resources res) {
-		return BitmapFactory.decodeResource(res, R.drawable.ic_wp_home);
+		return MarkerIconCache.getResourceIcon(res, R.drawable.ic_wp_home);
 	}
 
 	@Override
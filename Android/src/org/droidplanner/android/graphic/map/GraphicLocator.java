@@ -2,11 +2,11 @@ package org.droidplanner.android.graphic.map;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
 
 public class GraphicLocator extends MarkerInfo.SimpleMarkerInfo {
@@ -30,7 +30,7 @@ public class GraphicLocator extends MarkerInfo.SimpleMarkerInfo {
 
 	@Override
 	public Bitmap getIcon(Resources res) {
-		return BitmapFactory.decodeResource(res, R.drawable.quad);
+		return MarkerIconCache.getResourceIcon(res, R.drawable.quad);
 	}
 
 	@Override
@@ -2,13 +2,13 @@ package org.droidplanner.android.graphic.map;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.mode.ModeFollowFragment;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
 
 /**
@@ -40,7 +40,7 @@ public class GuidedScanROIMarkerInfo extends MarkerInfo.SimpleMarkerInfo {
 
     @Override
     public Bitmap getIcon(Resources res){
-        return BitmapFactory.decodeResource(res, R.drawable.ic_roi);
+        return MarkerIconCache.getResourceIcon(res, R.drawable.ic_roi);
     }
 
     @Override
@@ -14,6 +14,7 @@ import org.droidplanner.android.utils.prefs.AutoPanMode;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -420,9 +421,12 @@ public interface DPMap {
 	
 	/**
 	 * Updates the polygons on the map.
-	 * 
+	 *
+	 * @param paths
+	 *            polygons to draw, keyed by their owner. Polygons whose owner is not in the map
+	 *            anymore are removed.
 	 */
-	void updatePolygonsPaths(List<List<LatLong>> paths);
+	void updatePolygonsPaths(Map<?, List<LatLong>> paths);
 
 	/**
 	 * Zoom to fit coordinates on map
@@ -0,0 +1,86 @@
+package org.droidplanner.android.maps;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+/**
+ * Ring buffer holding the last positions of the vehicle.
+ *
+ * Every position gets a sequence index, which keeps increasing as positions are added. Only the
+ * positions with an index between {@link #getFirstIndex()} (included) and {@link #getEndIndex()}
+ * (excluded) are held by the trail.
+ */
+public class FlightTrail {
+
+	private final double[] latitudes;
+	private final double[] longitudes;
+
+	private long endIndex;
+	private int size;
+
+	public FlightTrail(int capacity) {
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+	}
+
+	public int capacity() {
+		return latitudes.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a position to the trail, dropping the oldest one if the trail is full.
+	 *
+	 * @return the index of the added position.
+	 */
+	public long add(LatLong position) {
+		final int slot = (int) (endIndex % latitudes.length);
+		latitudes[slot] = position.getLatitude();
+		longitudes[slot] = position.getLongitude();
+
+		if (size < latitudes.length)
+			size++;
+
+		return endIndex++;
+	}
+
+	public void clear() {
+		endIndex = 0;
+		size = 0;
+	}
+
+	/**
+	 * @return the index of the oldest position in the trail.
+	 */
+	public long getFirstIndex() {
+		return endIndex - size;
+	}
+
+	/**
+	 * @return the index following the most recent position in the trail.
+	 */
+	public long getEndIndex() {
+		return endIndex;
+	}
+
+	public double getLatitude(long index) {
+		return latitudes[getSlot(index)];
+	}
+
+	public double getLongitude(long index) {
+		return longitudes[getSlot(index)];
+	}
+
+	private int getSlot(long index) {
+		if (index < getFirstIndex() || index >= endIndex)
+			throw new IndexOutOfBoundsException("Index " + index + " is not in the trail.");
+
+		return (int) (index % latitudes.length);
+	}
+}
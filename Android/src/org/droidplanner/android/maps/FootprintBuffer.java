@@ -0,0 +1,152 @@
+package org.droidplanner.android.maps;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append only store of camera footprints, backed by primitive arrays.
+ *
+ * The footprints are added from the main thread, and read from the map rendering threads through
+ * {@link Snapshot} instances.
+ */
+public class FootprintBuffer {
+
+	private static final int INITIAL_FOOTPRINTS_CAPACITY = 64;
+	private static final int INITIAL_VERTICES_CAPACITY = INITIAL_FOOTPRINTS_CAPACITY * 4;
+
+	private double[] latitudes;
+	private double[] longitudes;
+
+	/**
+	 * The vertices of footprint i go from vertexStarts[i] (included) to vertexStarts[i + 1]
+	 * (excluded).
+	 */
+	private int[] vertexStarts;
+
+	/**
+	 * Bounding box of each footprint: min latitude, min longitude, max latitude, max longitude.
+	 */
+	private double[] bounds;
+
+	private int footprintsCount;
+
+	public FootprintBuffer() {
+		reset();
+	}
+
+	private void reset() {
+		latitudes = new double[INITIAL_VERTICES_CAPACITY];
+		longitudes = new double[INITIAL_VERTICES_CAPACITY];
+		vertexStarts = new int[INITIAL_FOOTPRINTS_CAPACITY + 1];
+		bounds = new double[INITIAL_FOOTPRINTS_CAPACITY * 4];
+		footprintsCount = 0;
+	}
+
+	/**
+	 * @return the index of the added footprint.
+	 */
+	public synchronized int add(List<LatLong> vertices) {
+		final int vertexStart = vertexStarts[footprintsCount];
+		final int vertexEnd = vertexStart + vertices.size();
+		if (vertexEnd > latitudes.length) {
+			final int capacity = Math.max(vertexEnd, latitudes.length * 2);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+		}
+
+		if (footprintsCount + 2 > vertexStarts.length) {
+			vertexStarts = Arrays.copyOf(vertexStarts, vertexStarts.length * 2);
+			bounds = Arrays.copyOf(bounds, (vertexStarts.length - 1) * 4);
+		}
+
+		double minLat = Double.MAX_VALUE, minLng = Double.MAX_VALUE;
+		double maxLat = -Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+		for (int i = 0; i < vertices.size(); i++) {
+			final LatLong vertex = vertices.get(i);
+			final double lat = vertex.getLatitude();
+			final double lng = vertex.getLongitude();
+			latitudes[vertexStart + i] = lat;
+			longitudes[vertexStart + i] = lng;
+
+			minLat = Math.min(minLat, lat);
+			minLng = Math.min(minLng, lng);
+			maxLat = Math.max(maxLat, lat);
+			maxLng = Math.max(maxLng, lng);
+		}
+
+		final int boundsIndex = footprintsCount * 4;
+		bounds[boundsIndex] = minLat;
+		bounds[boundsIndex + 1] = minLng;
+		bounds[boundsIndex + 2] = maxLat;
+		bounds[boundsIndex + 3] = maxLng;
+
+		vertexStarts[footprintsCount + 1] = vertexEnd;
+		return footprintsCount++;
+	}
+
+	public synchronized int size() {
+		return footprintsCount;
+	}
+
+	/**
+	 * Removes all the footprints. Existing snapshots are not affected.
+	 */
+	public synchronized void clear() {
+		reset();
+	}
+
+	/**
+	 * @return a read only view of the footprints currently in the buffer.
+	 */
+	public synchronized Snapshot snapshot() {
+		// The arrays are only replaced or appended to, so the snapshot can share them.
+		return new Snapshot(latitudes, longitudes, vertexStarts, bounds, footprintsCount);
+	}
+
+	public static final class Snapshot {
+		private final double[] latitudes;
+		private final double[] longitudes;
+		private final int[] vertexStarts;
+		private final double[] bounds;
+		private final int size;
+
+		private Snapshot(double[] latitudes, double[] longitudes, int[] vertexStarts, double[] bounds, int size) {
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+			this.vertexStarts = vertexStarts;
+			this.bounds = bounds;
+			this.size = size;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int getVertexStart(int footprint) {
+			return vertexStarts[footprint];
+		}
+
+		public int getVertexEnd(int footprint) {
+			return vertexStarts[footprint + 1];
+		}
+
+		public double getLatitude(int vertex) {
+			return latitudes[vertex];
+		}
+
+		public double getLongitude(int vertex) {
+			return longitudes[vertex];
+		}
+
+		/**
+		 * @return true if the bounding box of the given footprint intersects the given area.
+		 */
+		public boolean intersects(int footprint, double minLat, double minLng, double maxLat, double maxLng) {
+			final int boundsIndex = footprint * 4;
+			return bounds[boundsIndex] <= maxLat && bounds[boundsIndex + 2] >= minLat
+					&& bounds[boundsIndex + 1] <= maxLng && bounds[boundsIndex + 3] >= minLng;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package org.droidplanner.android.maps;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * Coalesces the map updates requested between two frames, and applies them at most once per frame.
+ *
+ * Updates are identified by bit flags. The flags requested since the last frame are handed to the
+ * {@link Callback} on the next frame. Frames are driven by {@link Choreographer} when available,
+ * and emulated with a {@link Handler} otherwise.
+ */
+public class MapUpdateScheduler {
+
+	public interface Callback {
+		/**
+		 * Applies the pending map updates. Called on the main thread.
+		 *
+		 * @param updates flags of the updates requested since the last frame.
+		 */
+		void onMapUpdate(int updates);
+	}
+
+	private static final long FRAME_INTERVAL = 16; //ms
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Callback callback;
+	private final FramePoster framePoster;
+
+	private int pendingUpdates;
+	private boolean isFramePosted;
+	private long lastFrameTime;
+
+	private final Runnable frameTask = new Runnable() {
+		@Override
+		public void run() {
+			doFrame();
+		}
+	};
+
+	public MapUpdateScheduler(Callback callback) {
+		this.callback = callback;
+		this.framePoster = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+				? new ChoreographerPoster()
+				: null;
+	}
+
+	/**
+	 * Requests the given updates on the next frame. Can be called from any thread.
+	 */
+	public void schedule(final int updates) {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					schedule(updates);
+				}
+			});
+			return;
+		}
+
+		pendingUpdates |= updates;
+		if (isFramePosted)
+			return;
+
+		isFramePosted = true;
+		if (framePoster != null) {
+			framePoster.postFrame();
+		} else {
+			final long elapsed = SystemClock.uptimeMillis() - lastFrameTime;
+			handler.postDelayed(frameTask, Math.max(0, FRAME_INTERVAL - elapsed));
+		}
+	}
+
+	/**
+	 * Drops the pending updates. Must be called on the main thread.
+	 */
+	public void cancel() {
+		pendingUpdates = 0;
+		isFramePosted = false;
+		handler.removeCallbacksAndMessages(null);
+		if (framePoster != null)
+			framePoster.removeFrame();
+	}
+
+	private void doFrame() {
+		if (!isFramePosted)
+			return;
+
+		isFramePosted = false;
+		lastFrameTime = SystemClock.uptimeMillis();
+
+		final int updates = pendingUpdates;
+		pendingUpdates = 0;
+		if (updates != 0)
+			callback.onMapUpdate(updates);
+	}
+
+	private interface FramePoster {
+		void postFrame();
+
+		void removeFrame();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private class ChoreographerPoster implements FramePoster, Choreographer.FrameCallback {
+
+		private final Choreographer choreographer = Choreographer.getInstance();
+
+		@Override
+		public void postFrame() {
+			choreographer.postFrameCallback(this);
+		}
+
+		@Override
+		public void removeFrame() {
+			choreographer.removeFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			MapUpdateScheduler.this.doFrame();
+		}
+	}
+}
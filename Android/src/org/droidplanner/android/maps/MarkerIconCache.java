@@ -0,0 +1,116 @@
+package org.droidplanner.android.maps;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Shared LRU cache of the rendered marker icons, bounded by the size of the cached bitmaps.
+ *
+ * The icons are keyed by everything that goes into their rendering: the screen density, the
+ * drawable resource, which carries the selection state, the tint and the label texts. The cached
+ * bitmaps are shared between markers, and must not be modified.
+ *
+ * Static icons, decoded as is from their resource, are kept apart and never evicted.
+ *
+ * The key of a cached icon can be retrieved with {@link #getKey(Bitmap)}, so the map providers can
+ * cache their own icon representation under the same stable key.
+ */
+public class MarkerIconCache {
+
+	/**
+	 * Fraction of the max heap used for the cache.
+	 */
+	private static final int MAX_MEMORY_DIVIDER = 16;
+
+	private static final LruCache<String, Bitmap> iconCache = new LruCache<String, Bitmap>(
+			(int) Math.min(Runtime.getRuntime().maxMemory() / MAX_MEMORY_DIVIDER, Integer.MAX_VALUE)) {
+		@Override
+		protected int sizeOf(String key, Bitmap value) {
+			return value.getByteCount();
+		}
+	};
+
+	private static final Map<String, Bitmap> resourceIcons = new HashMap<String, Bitmap>();
+
+	/**
+	 * Key of each icon handed out by the cache. The values don't reference their icon, so the
+	 * entries go away with the evicted icons.
+	 */
+	private static final WeakHashMap<Bitmap, String> iconKeys = new WeakHashMap<Bitmap, String>();
+
+	//Not instantiable
+	private MarkerIconCache() {
+	}
+
+	public static String getKey(Resources res, int resId, int color, String text, String detail) {
+		return new StringBuilder(40)
+				.append(res.getDisplayMetrics().densityDpi).append('|')
+				.append(resId).append('|')
+				.append(color).append('|')
+				.append(text).append('|')
+				.append(detail)
+				.toString();
+	}
+
+	public static Bitmap get(String key) {
+		return iconCache.get(key);
+	}
+
+	public static void put(String key, Bitmap icon) {
+		if (icon != null) {
+			iconCache.put(key, icon);
+			setKey(icon, key);
+		}
+	}
+
+	/**
+	 * @return the key of the given icon, or null if it wasn't handed out by the cache.
+	 */
+	public static String getKey(Bitmap icon) {
+		synchronized (iconKeys) {
+			return iconKeys.get(icon);
+		}
+	}
+
+	private static void setKey(Bitmap icon, String key) {
+		synchronized (iconKeys) {
+			iconKeys.put(icon, key);
+		}
+	}
+
+	public static void clear() {
+		iconCache.evictAll();
+	}
+
+	/**
+	 * @return the icon decoded from the given drawable resource. The icon is decoded once, and the
+	 * same bitmap is returned afterwards.
+	 */
+	public static Bitmap getResourceIcon(Resources res, int resId) {
+		final String key = getKey(res, resId, 0, null, null);
+		synchronized (resourceIcons) {
+			Bitmap icon = resourceIcons.get(key);
+			if (icon == null) {
+				icon = BitmapFactory.decodeResource(res, resId);
+				resourceIcons.put(key, icon);
+				if (icon != null)
+					setKey(icon, key);
+			}
+			return icon;
+		}
+	}
+
+	public static int getHitCount() {
+		return iconCache.hitCount();
+	}
+
+	public static int getMissCount() {
+		return iconCache.missCount();
+	}
+}
@@ -2,6 +2,7 @@ package org.droidplanner.android.maps;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.text.TextUtils;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
 
@@ -11,6 +12,27 @@ import com.o3dr.services.android.lib.coordinate.LatLong;
  */
 public interface MarkerInfo {
 
+	/**
+	 * Flags reported by {@link #sync(SyncState, Resources)} for the properties which changed since
+	 * the last sync.
+	 */
+	int DIRTY_NONE = 0;
+	int DIRTY_POSITION = 1;
+	int DIRTY_ICON = 1 << 1;
+	int DIRTY_ALPHA = 1 << 2;
+	int DIRTY_ANCHOR = 1 << 3;
+	int DIRTY_ROTATION = 1 << 4;
+	int DIRTY_INFO = 1 << 5;
+	int DIRTY_FLAT = 1 << 6;
+	int DIRTY_VISIBILITY = 1 << 7;
+	int DIRTY_ALL = (1 << 8) - 1;
+
+	/**
+	 * Version of the markers which don't track their changes. Their properties are compared on
+	 * every sync.
+	 */
+	int VERSION_UNTRACKED = -1;
+
 	/**
 	 * @return marker's alpha (opacity) value.
 	 */
@@ -88,11 +110,222 @@ public interface MarkerInfo {
 	 */
 	boolean isVisible();
 
+	/**
+	 * @return counter incremented whenever one of the marker's properties changes, or
+	 * {@link #VERSION_UNTRACKED}. A sync is skipped while the version is unchanged.
+	 */
+	int getVersion();
+
+	/**
+	 * Brings the given sync state up to date with the marker's properties.
+	 *
+	 * @param state
+	 *            properties of the marker as last applied by a map.
+	 * @return the DIRTY_* flags of the properties which changed since the state was last synced.
+	 */
+	int sync(SyncState state, Resources res);
+
+	/**
+	 * Properties of a marker as last applied to the map. Each map keeps its own state for the
+	 * markers it displays, so a marker info can be shown on several maps.
+	 */
+	final class SyncState {
+
+		private boolean synced;
+		private int version;
+
+		private boolean hasPosition;
+		private double latitude;
+		private double longitude;
+
+		private Bitmap icon;
+		private float alpha;
+		private float anchorU;
+		private float anchorV;
+		private float infoWindowAnchorU;
+		private float infoWindowAnchorV;
+		private float rotation;
+		private String title;
+		private String snippet;
+		private boolean flat;
+		private boolean visible;
+
+		/**
+		 * Draggable state, managed by the map as it may override the marker's.
+		 */
+		private boolean draggable;
+
+		/**
+		 * Compares the marker's current properties with the state, and updates it. Nothing is
+		 * compared if the marker's version didn't change since the last update.
+		 *
+		 * @return the DIRTY_* flags of the properties which changed.
+		 */
+		public int update(MarkerInfo info, Resources res) {
+			final int currentVersion = info.getVersion();
+			if (synced && currentVersion != VERSION_UNTRACKED && currentVersion == version)
+				return DIRTY_NONE;
+
+			int flags = synced ? DIRTY_NONE : DIRTY_ALL;
+			synced = true;
+			version = currentVersion;
+
+			final LatLong position = info.getPosition();
+			if (position == null) {
+				if (hasPosition) {
+					hasPosition = false;
+					flags |= DIRTY_POSITION;
+				}
+			} else if (!hasPosition || position.getLatitude() != latitude
+					|| position.getLongitude() != longitude) {
+				hasPosition = true;
+				latitude = position.getLatitude();
+				longitude = position.getLongitude();
+				flags |= DIRTY_POSITION;
+			}
+
+			final Bitmap currentIcon = info.getIcon(res);
+			if (currentIcon != icon) {
+				icon = currentIcon;
+				flags |= DIRTY_ICON;
+			}
+
+			final float currentAlpha = info.getAlpha();
+			if (currentAlpha != alpha) {
+				alpha = currentAlpha;
+				flags |= DIRTY_ALPHA;
+			}
+
+			final float currentAnchorU = info.getAnchorU();
+			final float currentAnchorV = info.getAnchorV();
+			final float currentInfoAnchorU = info.getInfoWindowAnchorU();
+			final float currentInfoAnchorV = info.getInfoWindowAnchorV();
+			if (currentAnchorU != anchorU || currentAnchorV != anchorV
+					|| currentInfoAnchorU != infoWindowAnchorU || currentInfoAnchorV != infoWindowAnchorV) {
+				anchorU = currentAnchorU;
+				anchorV = currentAnchorV;
+				infoWindowAnchorU = currentInfoAnchorU;
+				infoWindowAnchorV = currentInfoAnchorV;
+				flags |= DIRTY_ANCHOR;
+			}
+
+			final float currentRotation = info.getRotation();
+			if (currentRotation != rotation) {
+				rotation = currentRotation;
+				flags |= DIRTY_ROTATION;
+			}
+
+			final String currentTitle = info.getTitle();
+			final String currentSnippet = info.getSnippet();
+			if (!TextUtils.equals(currentTitle, title) || !TextUtils.equals(currentSnippet, snippet)) {
+				title = currentTitle;
+				snippet = currentSnippet;
+				flags |= DIRTY_INFO;
+			}
+
+			final boolean currentFlat = info.isFlat();
+			if (currentFlat != flat) {
+				flat = currentFlat;
+				flags |= DIRTY_FLAT;
+			}
+
+			final boolean currentVisible = info.isVisible();
+			if (currentVisible != visible) {
+				visible = currentVisible;
+				flags |= DIRTY_VISIBILITY;
+			}
+
+			return flags;
+		}
+
+		/**
+		 * Forces all the properties to be reported as changed on the next sync, e.g. after the
+		 * marker was moved on the map by the user.
+		 */
+		public void invalidate() {
+			synced = false;
+		}
+
+		public boolean isDraggable() {
+			return draggable;
+		}
+
+		public void setDraggable(boolean draggable) {
+			this.draggable = draggable;
+		}
+
+		public boolean hasPosition() {
+			return hasPosition;
+		}
+
+		public double getLatitude() {
+			return latitude;
+		}
+
+		public double getLongitude() {
+			return longitude;
+		}
+
+		public Bitmap getIcon() {
+			return icon;
+		}
+
+		public float getAlpha() {
+			return alpha;
+		}
+
+		public float getAnchorU() {
+			return anchorU;
+		}
+
+		public float getAnchorV() {
+			return anchorV;
+		}
+
+		public float getInfoWindowAnchorU() {
+			return infoWindowAnchorU;
+		}
+
+		public float getInfoWindowAnchorV() {
+			return infoWindowAnchorV;
+		}
+
+		public float getRotation() {
+			return rotation;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public String getSnippet() {
+			return snippet;
+		}
+
+		public boolean isFlat() {
+			return flat;
+		}
+
+		public boolean isVisible() {
+			return visible;
+		}
+	}
+
 	/**
 	 * Default implementation of the MarkerInfo interface.
 	 */
 	class SimpleMarkerInfo implements MarkerInfo {
 
+		@Override
+		public int sync(SyncState state, Resources res) {
+			return state.update(this, res);
+		}
+
+		@Override
+		public int getVersion() {
+			return VERSION_UNTRACKED;
+		}
+
 		@Override
 		public float getAlpha() {
 			return 1;
@@ -16,8 +16,18 @@ public class MarkerWithText {
 
 	private static final int RECT_PADDING = 6;
 
+	/**
+	 * The returned bitmap is shared through the {@link MarkerIconCache}, and must not be modified.
+	 */
 	public static Bitmap getMarkerWithText(int color, String text, Context context) {
-		return drawTextToBitmap(context, R.drawable.ic_marker_white, color, text);
+		final String key = MarkerIconCache.getKey(context.getResources(), R.drawable.ic_marker_white, color, text,
+				null);
+		Bitmap icon = MarkerIconCache.get(key);
+		if (icon == null) {
+			icon = drawTextToBitmap(context, R.drawable.ic_marker_white, color, text);
+			MarkerIconCache.put(key, icon);
+		}
+		return icon;
 	}
 
 	/**
@@ -62,9 +72,18 @@ public class MarkerWithText {
 		return bitmap;
 	}
 
+	/**
+	 * The returned bitmap is shared through the {@link MarkerIconCache}, and must not be modified.
+	 */
 	public static Bitmap getMarkerWithTextAndDetail(int gResId, String text, String detail,
 			Resources res) {
-		return drawTextAndDetailToBitmap(res, gResId, text, detail);
+		final String key = MarkerIconCache.getKey(res, gResId, 0, text, detail);
+		Bitmap icon = MarkerIconCache.get(key);
+		if (icon == null) {
+			icon = drawTextAndDetailToBitmap(res, gResId, text, detail);
+			MarkerIconCache.put(key, icon);
+		}
+		return icon;
 	}
 
 	/**
@@ -0,0 +1,83 @@
+package org.droidplanner.android.maps;
+
+import android.util.SparseArray;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.util.MathUtils;
+
+import java.util.List;
+
+/**
+ * Zoom level pyramid of a path, simplified with the Douglas-Peucker algorithm.
+ *
+ * Each zoom level only keeps the vertices which are more than {@link #PIXEL_TOLERANCE} pixel away
+ * from the simplified path at that zoom. The levels are computed on first use. The source path must
+ * not be modified after the pyramid is built.
+ */
+public class SimplifiedPath {
+
+	public static final int MAX_ZOOM_LEVEL = 21;
+
+	private static final double PIXEL_TOLERANCE = 1;
+	private static final int TILE_SIZE = 256;
+
+	/**
+	 * Paths with fewer vertices are not simplified.
+	 */
+	private static final int MIN_SIMPLIFIED_SIZE = 4;
+
+	private final List<LatLong> path;
+
+	/**
+	 * Converts the pixel tolerance in degrees. The mercator projection stretches latitudes by
+	 * 1 / cos(latitude), so the tolerance is scaled down accordingly around the path.
+	 */
+	private final double latitudeScale;
+
+	private final SparseArray<List<LatLong>> levels = new SparseArray<List<LatLong>>();
+
+	public SimplifiedPath(List<LatLong> path) {
+		this.path = path;
+
+		double latitudeSum = 0;
+		for (LatLong point : path) {
+			latitudeSum += point.getLatitude();
+		}
+		this.latitudeScale = path.isEmpty() ? 1 : Math.cos(Math.toRadians(latitudeSum / path.size()));
+	}
+
+	/**
+	 * @return the zoom level of the pyramid used for the given map zoom.
+	 */
+	public static int getLevel(float zoom) {
+		return Math.max(0, Math.min(MAX_ZOOM_LEVEL, (int) Math.ceil(zoom)));
+	}
+
+	/**
+	 * @return the source path.
+	 */
+	public List<LatLong> getPath() {
+		return path;
+	}
+
+	/**
+	 * @param zoom map zoom level
+	 * @return the path vertices visible at the given zoom. The returned list must not be modified.
+	 */
+	public List<LatLong> getPoints(float zoom) {
+		if (path.size() < MIN_SIMPLIFIED_SIZE)
+			return path;
+
+		final int level = getLevel(zoom);
+		List<LatLong> points = levels.get(level);
+		if (points == null) {
+			final double tolerance = PIXEL_TOLERANCE * 360d / (TILE_SIZE * Math.pow(2, level)) * latitudeScale;
+			points = MathUtils.simplify(path, tolerance);
+			if (points.size() == path.size())
+				points = path;
+
+			levels.put(level, points);
+		}
+		return points;
+	}
+}
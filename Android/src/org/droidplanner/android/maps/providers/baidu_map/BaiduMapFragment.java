@@ -54,6 +54,7 @@ import com.o3dr.services.android.lib.drone.property.Gps;
 
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.maps.DPMap;
 import org.droidplanner.android.maps.MarkerInfo;
@@ -72,6 +73,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -112,17 +114,15 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     private static final Stroke mFootprintStroke = new Stroke(FOOTPRINT_DEFAULT_WIDTH, FOOTPRINT_DEFAULT_COLOR);
 
     static {
-        mEventFilter.addAction(AttributeEvent.GPS_POSITION);
         mEventFilter.addAction(SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED);
         mEventFilter.addAction(com.baidu.mapapi.SDKInitializer.SDK_BROADTCAST_ACTION_STRING_PERMISSION_CHECK_ERROR);
         mEventFilter.addAction(com.baidu.mapapi.SDKInitializer.SDK_BROADCAST_ACTION_STRING_NETWORK_ERROR);
     }
 
-    private final BroadcastReceiver mEventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber mDroneEventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            final String action = intent.getAction();
-            switch (action) {
+        public void onDroneEvent(String event, Bundle extras) {
+            switch (event) {
                 case AttributeEvent.GPS_POSITION:
                     if (mPanMode.get() == AutoPanMode.DRONE) {
                         final Drone drone = getDroneApi();
@@ -136,6 +136,15 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
                         }
                     }
                     break;
+            }
+        }
+    };
+
+    private final BroadcastReceiver mEventReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            switch (action) {
                 case SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED:
                     setupMapUI(getBaiduMap());
                     break;
@@ -233,6 +242,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
 
         LocalBroadcastManager.getInstance(getActivity().getApplicationContext())
                 .registerReceiver(mEventReceiver, mEventFilter);
+        mDpApp.getEventBus().subscribe(mDroneEventSubscriber, AttributeEvent.GPS_POSITION);
 
         setupMap();
     }
@@ -243,6 +253,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
 
         LocalBroadcastManager.getInstance(getActivity().getApplicationContext())
                 .unregisterReceiver(mEventReceiver);
+        mDpApp.getEventBus().unsubscribe(mDroneEventSubscriber);
 
 		mBDLocClient.stop();                       // close BaiduMap location service
 		getBaiduMap().setMyLocationEnabled(false); // disable location layer
@@ -544,15 +555,16 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     }
 
     @Override
-    public void updatePolygonsPaths(List<List<LatLong>> paths) {
+    public void updatePolygonsPaths(Map<?, List<LatLong>> paths) {
         final BaiduMap map = getBaiduMap();
 		if (map == null) return;
 
         for (Polygon poly : mPolygonsPaths) {
             poly.remove();
         }
+        mPolygonsPaths.clear();
 
-        for (List<LatLong> contour : paths) {
+        for (List<LatLong> contour : paths.values()) {
             PolygonOptions pathOptions = new PolygonOptions();
             pathOptions.fillColor(POLYGONS_PATH_DEFAULT_COLOR);
 			final List<LatLng> pathPoints = new ArrayList<LatLng>(contour.size());
@@ -0,0 +1,237 @@
+package org.droidplanner.android.maps.providers.google_map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.google.android.gms.maps.model.TileProvider;
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.droidplanner.android.maps.DPMap;
+import org.droidplanner.android.maps.FootprintBuffer;
+import org.droidplanner.android.utils.DroneHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Map layer drawing the camera footprints.
+ *
+ * The most recent footprints are drawn as polygons. Past {@link #MAX_LIVE_FOOTPRINTS}, the oldest
+ * ones are handed over to a tile overlay, which merges the footprints of each map tile into a
+ * coverage area, or into a heatmap of the number of times the ground was covered. The number of
+ * overlays on the map is bounded whatever the number of footprints.
+ */
+class CameraFootprintLayer {
+
+    private static final int MAX_LIVE_FOOTPRINTS = 32;
+
+    /**
+     * Number of footprints handed over to the tile overlay at once, since the tiles are redrawn
+     * on each hand over.
+     */
+    private static final int TILED_FOOTPRINTS_BATCH = 16;
+
+    /**
+     * Number of recent footprint hashes kept to skip the duplicate footprints. The vehicle resends
+     * its last footprint, so older ones don't need to be remembered.
+     */
+    private static final int MAX_FOOTPRINT_HASHES = 256;
+
+    private static final int TILE_SIZE = 256;
+
+    /**
+     * Alpha painted by each footprint in the coverage mask. Overlapping footprints accumulate it.
+     */
+    private static final int COVERAGE_ALPHA_STEP = 48;
+
+    private static final int HEATMAP_ALPHA = 160;
+
+    private static final int[] COVERAGE_COLORS = new int[256];
+    private static final int[] HEATMAP_COLORS = new int[256];
+
+    static {
+        for (int i = 1; i < 256; i++) {
+            COVERAGE_COLORS[i] = DPMap.FOOTPRINT_FILL_COLOR;
+
+            // From blue for a single coverage, to red for the most covered areas.
+            final float hue = 240f * (1f - (i - COVERAGE_ALPHA_STEP) / (255f - COVERAGE_ALPHA_STEP));
+            HEATMAP_COLORS[i] = Color.HSVToColor(HEATMAP_ALPHA, new float[]{Math.max(0f, Math.min(240f, hue)), 1f, 1f});
+        }
+    }
+
+    private final GoogleMap map;
+    private final FootprintBuffer footprints = new FootprintBuffer();
+    private final LinkedHashSet<Long> footprintHashes = new LinkedHashSet<>();
+    private final ArrayDeque<Polygon> liveFootprints = new ArrayDeque<>();
+    private final TileOverlay coverageOverlay;
+
+    /**
+     * The footprints before this index are drawn by the tile overlay.
+     */
+    private volatile int tiledFootprintsCount;
+    private volatile boolean heatmapEnabled;
+
+    CameraFootprintLayer(GoogleMap map) {
+        this.map = map;
+        this.coverageOverlay = map.addTileOverlay(new TileOverlayOptions()
+                .tileProvider(new CoverageTileProvider())
+                .fadeIn(false));
+    }
+
+    /**
+     * Adds a footprint to the layer, unless it's already there.
+     *
+     * @param contentHash hash of the footprint vertices.
+     */
+    void add(List<LatLong> vertices, long contentHash) {
+        if (!footprintHashes.add(contentHash))
+            return;
+
+        if (footprintHashes.size() > MAX_FOOTPRINT_HASHES) {
+            final Iterator<Long> oldestHash = footprintHashes.iterator();
+            oldestHash.next();
+            oldestHash.remove();
+        }
+
+        footprints.add(vertices);
+
+        PolygonOptions pathOptions = new PolygonOptions();
+        pathOptions.strokeColor(DPMap.FOOTPRINT_DEFAULT_COLOR).strokeWidth(DPMap.FOOTPRINT_DEFAULT_WIDTH);
+        pathOptions.fillColor(DPMap.FOOTPRINT_FILL_COLOR);
+        for (LatLong vertex : vertices) {
+            pathOptions.add(DroneHelper.CoordToLatLang(vertex));
+        }
+        liveFootprints.addLast(map.addPolygon(pathOptions));
+
+        if (liveFootprints.size() > MAX_LIVE_FOOTPRINTS) {
+            tiledFootprintsCount += TILED_FOOTPRINTS_BATCH;
+            for (int i = 0; i < TILED_FOOTPRINTS_BATCH; i++) {
+                liveFootprints.pollFirst().remove();
+            }
+            coverageOverlay.clearTileCache();
+        }
+    }
+
+    /**
+     * Switches the tile overlay between the coverage area and the heatmap, re-rendering the tiles
+     * if it changed.
+     */
+    void setHeatmapEnabled(boolean enabled) {
+        if (heatmapEnabled != enabled) {
+            heatmapEnabled = enabled;
+            coverageOverlay.clearTileCache();
+        }
+    }
+
+    void clear() {
+        for (Polygon footprint : liveFootprints) {
+            footprint.remove();
+        }
+        liveFootprints.clear();
+        footprintHashes.clear();
+        footprints.clear();
+        tiledFootprintsCount = 0;
+        coverageOverlay.clearTileCache();
+    }
+
+    /**
+     * Renders the footprints handed over by the layer.
+     */
+    private class CoverageTileProvider implements TileProvider {
+
+        @Override
+        public Tile getTile(int x, int y, int zoom) {
+            final FootprintBuffer.Snapshot snapshot = footprints.snapshot();
+            final int count = Math.min(tiledFootprintsCount, snapshot.size());
+            if (count == 0)
+                return NO_TILE;
+
+            final double worldSize = TILE_SIZE * Math.pow(2, zoom);
+            final double originX = x * (double) TILE_SIZE;
+            final double originY = y * (double) TILE_SIZE;
+
+            final double minLng = toLongitude(originX, worldSize);
+            final double maxLng = toLongitude(originX + TILE_SIZE, worldSize);
+            final double maxLat = toLatitude(originY, worldSize);
+            final double minLat = toLatitude(originY + TILE_SIZE, worldSize);
+
+            final Bitmap mask = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ALPHA_8);
+            final Canvas canvas = new Canvas(mask);
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.FILL);
+            paint.setAlpha(COVERAGE_ALPHA_STEP);
+
+            final Path path = new Path();
+            boolean isEmpty = true;
+            for (int i = 0; i < count; i++) {
+                if (!snapshot.intersects(i, minLat, minLng, maxLat, maxLng))
+                    continue;
+
+                final int vertexEnd = snapshot.getVertexEnd(i);
+                for (int v = snapshot.getVertexStart(i); v < vertexEnd; v++) {
+                    final float px = (float) (toX(snapshot.getLongitude(v), worldSize) - originX);
+                    final float py = (float) (toY(snapshot.getLatitude(v), worldSize) - originY);
+                    if (path.isEmpty())
+                        path.moveTo(px, py);
+                    else
+                        path.lineTo(px, py);
+                }
+                path.close();
+                canvas.drawPath(path, paint);
+                path.rewind();
+                isEmpty = false;
+            }
+
+            if (isEmpty) {
+                mask.recycle();
+                return NO_TILE;
+            }
+
+            final int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+            mask.getPixels(pixels, 0, TILE_SIZE, 0, 0, TILE_SIZE, TILE_SIZE);
+            mask.recycle();
+
+            final int[] colors = heatmapEnabled ? HEATMAP_COLORS : COVERAGE_COLORS;
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = colors[pixels[i] >>> 24];
+            }
+
+            final Bitmap tileBitmap = Bitmap.createBitmap(pixels, TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+            final ByteArrayOutputStream tileData = new ByteArrayOutputStream();
+            tileBitmap.compress(Bitmap.CompressFormat.PNG, 100, tileData);
+            tileBitmap.recycle();
+
+            return new Tile(TILE_SIZE, TILE_SIZE, tileData.toByteArray());
+        }
+
+        private double toX(double longitude, double worldSize) {
+            return (longitude + 180) / 360 * worldSize;
+        }
+
+        private double toY(double latitude, double worldSize) {
+            final double sinLat = Math.sin(Math.toRadians(latitude));
+            return (0.5 - Math.log((1 + sinLat) / (1 - sinLat)) / (4 * Math.PI)) * worldSize;
+        }
+
+        private double toLongitude(double x, double worldSize) {
+            return x / worldSize * 360 - 180;
+        }
+
+        private double toLatitude(double y, double worldSize) {
+            final double n = Math.PI - 2 * Math.PI * y / worldSize;
+            return Math.toDegrees(Math.atan(Math.sinh(n)));
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.droidplanner.android.R
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader
 import org.droidplanner.android.maps.providers.google_map.tiles.offline.MapDownloaderListener
 import org.droidplanner.android.utils.prefs.AutoPanMode
+import timber.log.Timber
 import java.net.HttpURLConnection
 
 /**
@@ -65,6 +66,10 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
         override fun sqlLiteError(error: Throwable?) {
         }
 
+        override fun throughputUpdate(tilesPerSecond: Float, bytesPerSecond: Float) {
+            Timber.v("Map download throughput: %.1f tiles/s, %.1f KB/s", tilesPerSecond, bytesPerSecond / 1024f)
+        }
+
         override fun stateChanged(newState: MapDownloader.OfflineMapDownloaderState?) {
             when (newState) {
                 MapDownloader.OfflineMapDownloaderState.RUNNING -> {
@@ -72,7 +77,8 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
                     enableDownloadProgress(true, resetProgress = true)
                 }
 
-                MapDownloader.OfflineMapDownloaderState.CANCELLING -> {
+                MapDownloader.OfflineMapDownloaderState.CANCELLING,
+                MapDownloader.OfflineMapDownloaderState.PAUSED -> {
                     enableDownloadProgress(false, true)
                     enableDownloadInstructions(true)
                 }
@@ -164,28 +170,37 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
         super.onStart()
 
         val mapFragment = downloadMapFragment?.mapFragment
-        (mapFragment as GoogleMapFragment).getMapAsync { googleMap ->
-            googleMap.setOnCameraChangeListener { onMapCameraChange(it) }
-        }
+        (mapFragment as GoogleMapFragment).setOnCameraChangeListener { onMapCameraChange(it) }
 
         if (mapDownloader.state == MapDownloader.OfflineMapDownloaderState.RUNNING) {
             enableDownloadInstructions(false)
             enableDownloadProgress(true, true)
         }
         mapDownloader.addMapDownloaderListener(mapDownloadListener)
+
+        //Pick up the download left by a previous session.
+        if (mapDownloader.hasPendingDownload())
+            mapDownloader.resumeDownload()
     }
 
     override fun onStop() {
         super.onStop()
 
+        //Keep the remaining tiles so the download can be resumed.
         if (isFinishing)
-            cancelMapDownload()
+            mapDownloader.pauseDownload()
         mapDownloader.removeMapDownloaderListener(mapDownloadListener)
     }
 
+    override fun onDestroy() {
+        super.onDestroy()
+        //Hand the download over to the next instance, which resumes it.
+        mapDownloader.close()
+    }
+
     override fun onBackPressed() {
         super.onBackPressed()
-        cancelMapDownload()
+        mapDownloader.pauseDownload()
     }
 
     private fun triggerMapDownload() {
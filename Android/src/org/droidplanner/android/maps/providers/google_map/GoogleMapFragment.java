@@ -16,6 +16,7 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.content.LocalBroadcastManager;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -40,6 +41,7 @@ import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.Projection;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.UiSettings;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
@@ -64,10 +66,14 @@ import com.o3dr.services.android.lib.util.googleApi.GoogleApiClientManager.Googl
 
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.graphic.map.GraphicHome;
 import org.droidplanner.android.maps.DPMap;
+import org.droidplanner.android.maps.FlightTrail;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.maps.SimplifiedPath;
 import org.droidplanner.android.maps.providers.DPMapProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.TileProviderManager;
 import org.droidplanner.android.maps.providers.google_map.tiles.arcgis.ArcGISTileProviderManager;
@@ -80,11 +86,15 @@ import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -101,20 +111,31 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
     private static final int ONLINE_TILE_PROVIDER_Z_INDEX = -1;
     private static final int OFFLINE_TILE_PROVIDER_Z_INDEX = -2;
 
+    /**
+     * The flight path is drawn as a sequence of polylines holding this many positions at most, so
+     * adding a position only redraws the last one.
+     */
+    private static final int FLIGHT_PATH_CHUNK_SIZE = 128;
+
+    /**
+     * Number of positions dropped from the flight trail before the oldest flight path chunk is
+     * trimmed.
+     */
+    private static final int FLIGHT_PATH_TRIM_STEP = 16;
+
     private static final IntentFilter eventFilter = new IntentFilter();
 
     static {
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
         eventFilter.addAction(SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED);
+        eventFilter.addAction(SettingsFragment.ACTION_FOOTPRINTS_HEATMAP_PREFERENCE_UPDATED);
     }
 
     private final static Api<? extends Api.ApiOptions.NotRequiredOptions>[] apisList = new Api[]{LocationServices.API};
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber droneEventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            final String action = intent.getAction();
-            switch (action) {
+        public void onDroneEvent(String event, Bundle extras) {
+            switch (event) {
                 case AttributeEvent.GPS_POSITION:
                     if (mPanMode.get() == AutoPanMode.DRONE) {
                         final Drone drone = getDroneApi();
@@ -128,6 +149,15 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
                         }
                     }
                     break;
+            }
+        }
+    };
+
+    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            switch (action) {
 
                 case SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED:
                     getMapAsync(new OnMapReadyCallback() {
@@ -137,12 +167,48 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
                         }
                     });
                     break;
+
+                case SettingsFragment.ACTION_FOOTPRINTS_HEATMAP_PREFERENCE_UPDATED:
+                    updateFootprintsHeatmap();
+                    break;
             }
         }
     };
 
     private final HashBiMap<MarkerInfo, Marker> mBiMarkersMap = new HashBiMap<MarkerInfo, Marker>();
 
+    /**
+     * Descriptor of a marker icon, along with the size of the icon it was created from.
+     */
+    private static final class IconDescriptor {
+        final BitmapDescriptor descriptor;
+        final int byteCount;
+
+        IconDescriptor(BitmapDescriptor descriptor, int byteCount) {
+            this.descriptor = descriptor;
+            this.byteCount = byteCount;
+        }
+    }
+
+    private static final int ICON_DESCRIPTORS_CACHE_SIZE = 4 * 1024 * 1024; // bytes
+
+    /**
+     * Descriptors of the marker icons, keyed by their MarkerIconCache key, and bounded by the size
+     * of their icons.
+     */
+    private final LruCache<String, IconDescriptor> mIconDescriptors = new LruCache<String, IconDescriptor>(
+            ICON_DESCRIPTORS_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, IconDescriptor value) {
+            return value.byteCount;
+        }
+    };
+
+    /**
+     * Marker properties as last pushed to the map, used to only apply the changes.
+     */
+    private final HashMap<Marker, MarkerInfo.SyncState> mMarkerStates = new HashMap<>();
+
     private DroidPlannerPrefs mAppPrefs;
 
     private final AtomicReference<AutoPanMode> mPanMode = new AtomicReference<AutoPanMode>(
@@ -243,7 +309,8 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
     private Marker userMarker;
 
-    private Polyline flightPath;
+    private FlightTrail flightTrail;
+    private final ArrayDeque<FlightPathChunk> flightPathChunks = new ArrayDeque<>();
     private Polyline missionPath;
     private Polyline mDroneLeashPath;
     private int maxFlightPathSize;
@@ -259,7 +326,20 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
     protected boolean useMarkerClickAsMapClick = false;
 
-    private List<Polygon> polygonsPaths = new ArrayList<Polygon>();
+    /*
+    Zoom level pyramid of the mission path, and the zoom level it's drawn at.
+     */
+    private SimplifiedPath missionPathSource;
+    private int missionPathZoomLevel = -1;
+
+    /**
+     * Polygons overlays, keyed by their owner.
+     */
+    private final Map<Object, PolygonOverlay> polygonOverlays = new HashMap<>();
+
+    private CameraFootprintLayer footprintLayer;
+
+    private GoogleMap.OnCameraChangeListener mCameraChangeListener;
 
     protected DroidPlannerApp dpApp;
     private Polygon footprintPoly;
@@ -336,7 +416,11 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
         mGApiClientMgr.addTask(mRequestLocationUpdateTask);
         lbm.registerReceiver(eventReceiver, eventFilter);
+        dpApp.getEventBus().subscribe(droneEventSubscriber, AttributeEvent.GPS_POSITION);
         setupMap();
+
+        // The preference may have changed while the map was stopped.
+        updateFootprintsHeatmap();
     }
 
     @Override
@@ -345,6 +429,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
         mGApiClientMgr.addTask(mRemoveLocationUpdateTask);
         lbm.unregisterReceiver(eventReceiver);
+        dpApp.getEventBus().unsubscribe(droneEventSubscriber);
 
         mGApiClientMgr.stopSafely();
     }
@@ -391,11 +476,16 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
     @Override
     public void clearFlightPath() {
-        if (flightPath != null) {
-            List<LatLng> oldFlightPath = flightPath.getPoints();
-            oldFlightPath.clear();
-            flightPath.setPoints(oldFlightPath);
+        for (FlightPathChunk chunk : flightPathChunks) {
+            chunk.polyline.remove();
         }
+        flightPathChunks.clear();
+
+        if (flightTrail != null)
+            flightTrail.clear();
+
+        // The footprints belong to the cleared flight.
+        clearCameraFootprints();
     }
 
     @Override
@@ -453,19 +543,85 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
         final LatLng position = DroneHelper.CoordToLatLang(coord);
 
         if (maxFlightPathSize > 0) {
-            if (flightPath == null) {
-                PolylineOptions flightPathOptions = new PolylineOptions();
-                flightPathOptions.color(FLIGHT_PATH_DEFAULT_COLOR)
-                        .width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1);
-                flightPath = getMap().addPolyline(flightPathOptions);
+            if (flightTrail == null) {
+                flightTrail = new FlightTrail(maxFlightPathSize);
             }
 
-            List<LatLng> oldFlightPath = flightPath.getPoints();
-            if (oldFlightPath.size() > maxFlightPathSize) {
-                oldFlightPath.remove(0);
+            final long index = flightTrail.add(coord);
+
+            FlightPathChunk tailChunk = flightPathChunks.peekLast();
+            if (tailChunk == null || tailChunk.points.size() >= FLIGHT_PATH_CHUNK_SIZE) {
+                final FlightPathChunk newChunk = new FlightPathChunk(addFlightPathPolyline(), index);
+                if (tailChunk != null) {
+                    // Start from the end of the previous chunk to keep the path continuous.
+                    newChunk.firstIndex = tailChunk.lastIndex;
+                    newChunk.points.add(tailChunk.points.get(tailChunk.points.size() - 1));
+                    tailChunk.points = null;
+                }
+                flightPathChunks.addLast(newChunk);
+                tailChunk = newChunk;
             }
-            oldFlightPath.add(position);
-            flightPath.setPoints(oldFlightPath);
+
+            tailChunk.points.add(position);
+            tailChunk.lastIndex = index;
+            tailChunk.polyline.setPoints(tailChunk.points);
+
+            trimFlightPath();
+        }
+    }
+
+    private Polyline addFlightPathPolyline() {
+        PolylineOptions flightPathOptions = new PolylineOptions();
+        flightPathOptions.color(FLIGHT_PATH_DEFAULT_COLOR)
+                .width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1);
+        return getMap().addPolyline(flightPathOptions);
+    }
+
+    /**
+     * Removes the positions which left the flight trail from the oldest flight path chunks.
+     */
+    private void trimFlightPath() {
+        final long trailStart = flightTrail.getFirstIndex();
+
+        FlightPathChunk headChunk = flightPathChunks.peekFirst();
+        while (headChunk != null && headChunk.lastIndex < trailStart) {
+            headChunk.polyline.remove();
+            flightPathChunks.pollFirst();
+            headChunk = flightPathChunks.peekFirst();
+        }
+
+        if (headChunk == null || trailStart - headChunk.firstIndex < FLIGHT_PATH_TRIM_STEP)
+            return;
+
+        final List<LatLng> points = new ArrayList<>((int) (headChunk.lastIndex - trailStart + 1));
+        for (long i = trailStart; i <= headChunk.lastIndex; i++) {
+            points.add(new LatLng(flightTrail.getLatitude(i), flightTrail.getLongitude(i)));
+        }
+
+        headChunk.firstIndex = trailStart;
+        headChunk.polyline.setPoints(points);
+        if (headChunk.points != null) {
+            headChunk.points = points;
+        }
+    }
+
+    /**
+     * Polyline drawing the flight trail positions from firstIndex to lastIndex.
+     */
+    private static class FlightPathChunk {
+        final Polyline polyline;
+        long firstIndex;
+        long lastIndex;
+
+        /**
+         * Positions of the chunk being extended. Released once the chunk is full.
+         */
+        List<LatLng> points = new ArrayList<>(FLIGHT_PATH_CHUNK_SIZE);
+
+        FlightPathChunk(Polyline polyline, long firstIndex) {
+            this.polyline = polyline;
+            this.firstIndex = firstIndex;
+            this.lastIndex = firstIndex;
         }
     }
 
@@ -476,6 +632,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
         }
 
         mBiMarkersMap.clear();
+        mMarkerStates.clear();
     }
 
     @Override
@@ -485,61 +642,106 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
     @Override
     public void updateMarker(MarkerInfo markerInfo, boolean isDraggable) {
-        // if the drone hasn't received a gps signal yet
-        final LatLong coord = markerInfo.getPosition();
-        if (coord == null) {
+        Marker marker = mBiMarkersMap.getValue(markerInfo);
+        if (marker != null) {
+            // Update the marker
+            updateMarker(marker, markerInfo, isDraggable);
             return;
         }
 
-        final LatLng position = DroneHelper.CoordToLatLang(coord);
-        Marker marker = mBiMarkersMap.getValue(markerInfo);
-        if (marker == null) {
-            // Generate the marker
-            generateMarker(markerInfo, position, isDraggable);
-        } else {
-            // Update the marker
-            updateMarker(marker, markerInfo, position, isDraggable);
+        // if the drone hasn't received a gps signal yet
+        if (markerInfo.getPosition() == null) {
+            return;
         }
+
+        // Generate the marker
+        generateMarker(markerInfo, isDraggable);
     }
 
-    private void generateMarker(MarkerInfo markerInfo, LatLng position, boolean isDraggable) {
+    private void generateMarker(MarkerInfo markerInfo, boolean isDraggable) {
+        final MarkerInfo.SyncState state = new MarkerInfo.SyncState();
+        markerInfo.sync(state, getResources());
+        state.setDraggable(isDraggable);
+
         final MarkerOptions markerOptions = new MarkerOptions()
-                .position(position)
+                .position(new LatLng(state.getLatitude(), state.getLongitude()))
                 .draggable(isDraggable)
-                .alpha(markerInfo.getAlpha())
-                .anchor(markerInfo.getAnchorU(), markerInfo.getAnchorV())
-                .infoWindowAnchor(markerInfo.getInfoWindowAnchorU(),
-                        markerInfo.getInfoWindowAnchorV()).rotation(markerInfo.getRotation())
-                .snippet(markerInfo.getSnippet()).title(markerInfo.getTitle())
-                .flat(markerInfo.isFlat()).visible(markerInfo.isVisible());
-
-        final Bitmap markerIcon = markerInfo.getIcon(getResources());
+                .alpha(state.getAlpha())
+                .anchor(state.getAnchorU(), state.getAnchorV())
+                .infoWindowAnchor(state.getInfoWindowAnchorU(),
+                        state.getInfoWindowAnchorV()).rotation(state.getRotation())
+                .snippet(state.getSnippet()).title(state.getTitle())
+                .flat(state.isFlat()).visible(state.isVisible());
+
+        final Bitmap markerIcon = state.getIcon();
         if (markerIcon != null) {
-            markerOptions.icon(BitmapDescriptorFactory.fromBitmap(markerIcon));
+            markerOptions.icon(getIconDescriptor(markerIcon));
         }
 
         Marker marker = getMap().addMarker(markerOptions);
         mBiMarkersMap.put(markerInfo, marker);
+        mMarkerStates.put(marker, state);
     }
 
-    private void updateMarker(Marker marker, MarkerInfo markerInfo, LatLng position,
-                              boolean isDraggable) {
-        final Bitmap markerIcon = markerInfo.getIcon(getResources());
-        if (markerIcon != null) {
-            marker.setIcon(BitmapDescriptorFactory.fromBitmap(markerIcon));
+    private BitmapDescriptor getIconDescriptor(Bitmap icon) {
+        final String key = MarkerIconCache.getKey(icon);
+        if (key == null)
+            return BitmapDescriptorFactory.fromBitmap(icon);
+
+        IconDescriptor iconDescriptor = mIconDescriptors.get(key);
+        if (iconDescriptor == null) {
+            iconDescriptor = new IconDescriptor(BitmapDescriptorFactory.fromBitmap(icon), icon.getByteCount());
+            mIconDescriptors.put(key, iconDescriptor);
+        }
+        return iconDescriptor.descriptor;
+    }
+
+    /**
+     * Only pushes the properties which changed since the marker was last synced. Markers whose
+     * version didn't change are skipped without reading their properties.
+     */
+    private void updateMarker(Marker marker, MarkerInfo markerInfo, boolean isDraggable) {
+        MarkerInfo.SyncState state = mMarkerStates.get(marker);
+        if (state == null) {
+            state = new MarkerInfo.SyncState();
+            mMarkerStates.put(marker, state);
+        }
+
+        final int dirtyFlags = markerInfo.sync(state, getResources());
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_ICON) != 0 && state.getIcon() != null) {
+            marker.setIcon(getIconDescriptor(state.getIcon()));
         }
 
-        marker.setAlpha(markerInfo.getAlpha());
-        marker.setAnchor(markerInfo.getAnchorU(), markerInfo.getAnchorV());
-        marker.setInfoWindowAnchor(markerInfo.getInfoWindowAnchorU(),
-                markerInfo.getInfoWindowAnchorV());
-        marker.setPosition(position);
-        marker.setRotation(markerInfo.getRotation());
-        marker.setSnippet(markerInfo.getSnippet());
-        marker.setTitle(markerInfo.getTitle());
-        marker.setDraggable(isDraggable);
-        marker.setFlat(markerInfo.isFlat());
-        marker.setVisible(markerInfo.isVisible());
+        if ((dirtyFlags & MarkerInfo.DIRTY_ALPHA) != 0)
+            marker.setAlpha(state.getAlpha());
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_ANCHOR) != 0) {
+            marker.setAnchor(state.getAnchorU(), state.getAnchorV());
+            marker.setInfoWindowAnchor(state.getInfoWindowAnchorU(), state.getInfoWindowAnchorV());
+        }
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_POSITION) != 0 && state.hasPosition())
+            marker.setPosition(new LatLng(state.getLatitude(), state.getLongitude()));
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_ROTATION) != 0)
+            marker.setRotation(state.getRotation());
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_INFO) != 0) {
+            marker.setSnippet(state.getSnippet());
+            marker.setTitle(state.getTitle());
+        }
+
+        if (state.isDraggable() != isDraggable) {
+            state.setDraggable(isDraggable);
+            marker.setDraggable(isDraggable);
+        }
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_FLAT) != 0)
+            marker.setFlat(state.isFlat());
+
+        if ((dirtyFlags & MarkerInfo.DIRTY_VISIBILITY) != 0)
+            marker.setVisible(state.isVisible());
     }
 
     @Override
@@ -586,6 +788,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
             if (marker != null) {
                 marker.remove();
                 mBiMarkersMap.removeKey(markerInfo);
+                mMarkerStates.remove(marker);
             }
         }
     }
@@ -686,12 +889,19 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
     @Override
     public void updateMissionPath(PathSource pathSource) {
+        // The mission path is only replaced, never modified, so its pyramid is kept until it changes.
         List<LatLong> pathCoords = pathSource.getPathPoints();
-        final List<LatLng> pathPoints = new ArrayList<>(pathCoords.size());
-        for (LatLong coord : pathCoords) {
-            pathPoints.add(DroneHelper.CoordToLatLang(coord));
+        final int zoomLevel = SimplifiedPath.getLevel(getPathsZoom());
+        if (missionPathSource != null && missionPathSource.getPath() == pathCoords) {
+            if (missionPath != null && missionPathZoomLevel == zoomLevel)
+                return;
+        } else {
+            missionPathSource = new SimplifiedPath(pathCoords);
         }
 
+        missionPathZoomLevel = zoomLevel;
+        final List<LatLng> pathPoints = toLatLngs(missionPathSource.getPoints(zoomLevel));
+
         if (missionPath == null) {
             final PolylineOptions pathOptions = new PolylineOptions();
             pathOptions.color(MISSION_PATH_DEFAULT_COLOR).width(MISSION_PATH_DEFAULT_WIDTH);
@@ -710,36 +920,121 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
 
     @Override
-    public void updatePolygonsPaths(List<List<LatLong>> paths) {
-        for (Polygon poly : polygonsPaths) {
-            poly.remove();
-        }
-
-        for (List<LatLong> contour : paths) {
-            PolygonOptions pathOptions = new PolygonOptions();
-            pathOptions.strokeColor(POLYGONS_PATH_DEFAULT_COLOR).strokeWidth(
-                    POLYGONS_PATH_DEFAULT_WIDTH);
-            final List<LatLng> pathPoints = new ArrayList<LatLng>(contour.size());
-            for (LatLong coord : contour) {
-                pathPoints.add(DroneHelper.CoordToLatLang(coord));
+    public void updatePolygonsPaths(Map<?, List<LatLong>> paths) {
+        final int zoomLevel = SimplifiedPath.getLevel(getPathsZoom());
+        for (Map.Entry<?, List<LatLong>> entry : paths.entrySet()) {
+            final List<LatLong> contour = entry.getValue();
+            final long contentHash = getContentHash(contour);
+
+            PolygonOverlay overlay = polygonOverlays.get(entry.getKey());
+            if (overlay == null) {
+                PolygonOptions pathOptions = new PolygonOptions();
+                pathOptions.strokeColor(POLYGONS_PATH_DEFAULT_COLOR).strokeWidth(
+                        POLYGONS_PATH_DEFAULT_WIDTH);
+
+                overlay = new PolygonOverlay();
+                overlay.source = new SimplifiedPath(contour);
+                overlay.contentHash = contentHash;
+                overlay.zoomLevel = zoomLevel;
+                pathOptions.addAll(toLatLngs(overlay.source.getPoints(zoomLevel)));
+                overlay.polygon = getMap().addPolygon(pathOptions);
+                polygonOverlays.put(entry.getKey(), overlay);
+            } else if (overlay.contentHash != contentHash) {
+                overlay.source = new SimplifiedPath(contour);
+                overlay.contentHash = contentHash;
+                overlay.zoomLevel = zoomLevel;
+                overlay.polygon.setPoints(toLatLngs(overlay.source.getPoints(zoomLevel)));
             }
-            pathOptions.addAll(pathPoints);
-            polygonsPaths.add(getMap().addPolygon(pathOptions));
         }
 
+        // Remove the polygons whose owner is gone.
+        final Iterator<Map.Entry<Object, PolygonOverlay>> it = polygonOverlays.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Object, PolygonOverlay> entry = it.next();
+            if (!paths.containsKey(entry.getKey())) {
+                entry.getValue().polygon.remove();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return a hash of the given vertices, used to detect the polygons which changed.
+     */
+    private static long getContentHash(List<LatLong> vertices) {
+        long hash = 1;
+        for (LatLong vertex : vertices) {
+            hash = 31 * hash + Double.doubleToLongBits(vertex.getLatitude());
+            hash = 31 * hash + Double.doubleToLongBits(vertex.getLongitude());
+        }
+        return hash;
+    }
+
+    private static class PolygonOverlay {
+        Polygon polygon;
+        SimplifiedPath source;
+        long contentHash;
+        int zoomLevel;
+    }
+
+    private float getPathsZoom() {
+        final GoogleMap map = getMap();
+        return map == null ? SimplifiedPath.MAX_ZOOM_LEVEL : map.getCameraPosition().zoom;
+    }
+
+    private static List<LatLng> toLatLngs(List<LatLong> coords) {
+        final List<LatLng> points = new ArrayList<>(coords.size());
+        for (LatLong coord : coords) {
+            points.add(DroneHelper.CoordToLatLang(coord));
+        }
+        return points;
+    }
+
+    /**
+     * Redraws the mission and polygon paths with the vertices visible at the given zoom level.
+     */
+    private void updatePathsZoom(float zoom) {
+        final int zoomLevel = SimplifiedPath.getLevel(zoom);
+        if (missionPath != null && missionPathSource != null && missionPathZoomLevel != zoomLevel) {
+            missionPathZoomLevel = zoomLevel;
+            missionPath.setPoints(toLatLngs(missionPathSource.getPoints(zoomLevel)));
+        }
+
+        for (PolygonOverlay overlay : polygonOverlays.values()) {
+            if (overlay.zoomLevel != zoomLevel) {
+                overlay.zoomLevel = zoomLevel;
+                overlay.polygon.setPoints(toLatLngs(overlay.source.getPoints(zoomLevel)));
+            }
+        }
+    }
+
+    /**
+     * Sets the listener notified of the map camera changes. The map camera listener should not be
+     * replaced directly, since it's used to update the paths level of detail.
+     */
+    public void setOnCameraChangeListener(GoogleMap.OnCameraChangeListener listener) {
+        mCameraChangeListener = listener;
     }
 
     @Override
     public void addCameraFootprint(FootPrint footprintToBeDraw) {
-        PolygonOptions pathOptions = new PolygonOptions();
-        pathOptions.strokeColor(FOOTPRINT_DEFAULT_COLOR).strokeWidth(FOOTPRINT_DEFAULT_WIDTH);
-        pathOptions.fillColor(FOOTPRINT_FILL_COLOR);
-
-        for (LatLong vertex : footprintToBeDraw.getVertexInGlobalFrame()) {
-            pathOptions.add(DroneHelper.CoordToLatLang(vertex));
+        if (footprintLayer == null) {
+            footprintLayer = new CameraFootprintLayer(getMap());
+            updateFootprintsHeatmap();
         }
-        getMap().addPolygon(pathOptions);
 
+        final List<LatLong> vertices = footprintToBeDraw.getVertexInGlobalFrame();
+        footprintLayer.add(vertices, getContentHash(vertices));
+    }
+
+    private void updateFootprintsHeatmap() {
+        if (footprintLayer != null)
+            footprintLayer.setHeatmapEnabled(mAppPrefs.isFootprintsHeatmapEnabled());
+    }
+
+    private void clearCameraFootprints() {
+        if (footprintLayer != null)
+            footprintLayer.clear();
     }
 
     /**
@@ -892,6 +1187,11 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
 
             @Override
             public void onMarkerDragEnd(Marker marker) {
+                // The marker was moved by the user, so re-sync it with its info on the next update.
+                final MarkerInfo.SyncState state = mMarkerStates.get(marker);
+                if (state != null)
+                    state.invalidate();
+
                 if (mMarkerDragListener != null) {
                     final MarkerInfo markerInfo = mBiMarkersMap.getKey(marker);
                     markerInfo.setPosition(DroneHelper.LatLngToCoord(marker.getPosition()));
@@ -900,6 +1200,16 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap, Goog
             }
         });
 
+        googleMap.setOnCameraChangeListener(new GoogleMap.OnCameraChangeListener() {
+            @Override
+            public void onCameraChange(CameraPosition cameraPosition) {
+                updatePathsZoom(cameraPosition.zoom);
+
+                if (mCameraChangeListener != null)
+                    mCameraChangeListener.onCameraChange(cameraPosition);
+            }
+        });
+
         googleMap.setOnMarkerClickListener(new GoogleMap.OnMarkerClickListener() {
             @Override
             public boolean onMarkerClick(Marker marker) {
@@ -0,0 +1,144 @@
+package org.droidplanner.android.maps.providers.google_map.tiles;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import org.droidplanner.android.data.DatabaseState;
+import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxUtils;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
+import org.droidplanner.android.utils.NetworkUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import timber.log.Timber;
+
+/**
+ * Online tile provider backed by the offline map database.
+ *
+ * Tiles are looked up in the map's offline database first. Missing tiles are fetched through the
+ * shared http client, whose disk cache absorbs repeated requests, and written back to the offline
+ * database so browsed areas remain available offline. Concurrent requests for the same tile share
+ * a single fetch.
+ */
+public abstract class CachingTileProvider implements TileProvider {
+
+    /**
+     * Marks the tiles the server doesn't have.
+     */
+    private static final byte[] TILE_NOT_FOUND = new byte[0];
+
+    private final Context context;
+    private final String mapId;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    private final ConcurrentHashMap<Long, FutureTask<byte[]>> pendingFetches = new ConcurrentHashMap<>();
+
+    protected CachingTileProvider(Context context, String mapId, int tileWidth, int tileHeight) {
+        this.context = context.getApplicationContext();
+        this.mapId = mapId;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * @return the url of the given tile, or null if the tile is not available.
+     */
+    protected abstract String getTileUrl(int x, int y, int zoom);
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        final String tileUrl = getTileUrl(x, y, zoom);
+        if (tileUrl == null)
+            return TileProvider.NO_TILE;
+
+        byte[] data = DatabaseState.getTileData(context, mapId, zoom, x, y);
+        if (data == null || data.length == 0) {
+            data = fetchTile(OfflineResource.tile(zoom, x, y, tileUrl));
+            if (data == null) {
+                // Let the map retry later.
+                return null;
+            }
+
+            if (data == TILE_NOT_FOUND)
+                return TileProvider.NO_TILE;
+        }
+
+        return new Tile(tileWidth, tileHeight, data);
+    }
+
+    private byte[] fetchTile(final OfflineResource tile) {
+        final Long key = tile.getTileKey();
+        FutureTask<byte[]> fetch = pendingFetches.get(key);
+        if (fetch == null) {
+            final FutureTask<byte[]> newFetch = new FutureTask<>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return downloadTile(tile);
+                }
+            });
+
+            fetch = pendingFetches.putIfAbsent(key, newFetch);
+            if (fetch == null) {
+                fetch = newFetch;
+                try {
+                    newFetch.run();
+                } finally {
+                    pendingFetches.remove(key, newFetch);
+                }
+            }
+        }
+
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Timber.w(e.getCause(), "Unable to fetch map tile %s", tile.getUrl());
+            return null;
+        }
+    }
+
+    private byte[] downloadTile(OfflineResource tile) throws IOException {
+        final OkHttpClient client = NetworkUtils.getTileHttpClient(context);
+        final Request request = new Request.Builder()
+                .url(tile.getUrl())
+                .header("User-Agent", MapboxUtils.getUserAgent())
+                .build();
+
+        final Response response = client.newCall(request).execute();
+        final int responseCode = response.code();
+        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
+            response.body().close();
+            return TILE_NOT_FOUND;
+        }
+
+        if (!response.isSuccessful()) {
+            response.body().close();
+            throw new IOException("Unexpected response code " + responseCode + " for " + tile.getUrl());
+        }
+
+        final byte[] data = response.body().bytes();
+        if (data.length == 0)
+            return TILE_NOT_FOUND;
+
+        try {
+            DatabaseState.saveTileData(context, mapId, tile, data);
+        } catch (SQLException e) {
+            Timber.e(e, "Unable to save map tile %s to the offline database.", tile.getUrl());
+        }
+        return data;
+    }
+}
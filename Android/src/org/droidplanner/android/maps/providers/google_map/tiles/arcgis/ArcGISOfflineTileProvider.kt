@@ -13,8 +13,7 @@ internal class ArcGISOfflineTileProvider(val context: Context, val mapType: ArcG
         if(zoom > mapType.maxZoomLevel)
             return TileProvider.NO_TILE
 
-        val tileUri = mapType.getMapTypeUrl(zoom, x, y) ?: return TileProvider.NO_TILE
-        val data = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapType.name).dataForURL(tileUri)
+        val data = DatabaseState.getTileData(context, mapType.name, zoom, x, y)
         if(data == null || data.size == 0)
             return TileProvider.NO_TILE
 
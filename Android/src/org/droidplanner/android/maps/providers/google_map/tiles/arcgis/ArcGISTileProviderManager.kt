@@ -6,6 +6,7 @@ import org.droidplanner.android.R
 import org.droidplanner.android.maps.DPMap
 import org.droidplanner.android.maps.providers.google_map.tiles.TileProviderManager
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource
 import timber.log.Timber
 import java.util.*
 
@@ -16,7 +17,7 @@ import java.util.*
  */
 class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
         TileProviderManager(
-                ArcGisTileProvider(selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported.")),
+                ArcGisTileProvider(context, selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported.")),
                 ArcGISOfflineTileProvider(context, selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported."))){
 
     companion object {
@@ -60,7 +61,7 @@ class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
 
     override fun downloadMapTiles(mapDownloader: MapDownloader, mapRegion: DPMap.VisibleMapArea,
     minimumZ : Int, maximumZ : Int) {
-        val urls = ArrayList<String>()
+        val resources = ArrayList<OfflineResource>()
 
         // Loop through the zoom levels and lat/lon bounds to generate a list of urls which should be included in the offline map
         //
@@ -95,15 +96,15 @@ class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
             for (x in minX..maxX) {
                 for (y in minY..maxY) {
                     val url = mapType.getMapTypeUrl(zoom, x, y) ?: continue
-                    urls.add(url)
+                    resources.add(OfflineResource.tile(zoom, x, y, url))
                 }
             }
         }
 
-        Timber.d("${urls.size} urls generated for ArcGIS ${context.getString(mapType.labelResId)} tiles.")
+        Timber.d("${resources.size} urls generated for ArcGIS ${context.getString(mapType.labelResId)} tiles.")
 
         //Start downloading the tiles
-        mapDownloader.startDownloadProcess(mapType.name, urls)
+        mapDownloader.startDownloadProcess(mapType.name, resources)
     }
 
 }
\ No newline at end of file
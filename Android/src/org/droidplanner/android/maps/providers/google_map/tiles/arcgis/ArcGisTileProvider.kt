@@ -1,26 +1,16 @@
 package org.droidplanner.android.maps.providers.google_map.tiles.arcgis
 
-import com.google.android.gms.maps.model.UrlTileProvider
+import android.content.Context
+import org.droidplanner.android.maps.providers.google_map.tiles.CachingTileProvider
 import org.droidplanner.android.maps.providers.google_map.tiles.arcgis.ArcGISTileProviderManager.MapType
-import timber.log.Timber
-import java.net.MalformedURLException
-import java.net.URL
 
 /**
  * Created by fredia on 4/16/16.
  */
-internal class ArcGisTileProvider(val mapType: MapType): UrlTileProvider(ArcGISTileProviderManager.TILE_WIDTH, ArcGISTileProviderManager.TILE_HEIGHT) {
+internal class ArcGisTileProvider(context: Context, val mapType: MapType) :
+        CachingTileProvider(context, mapType.name, ArcGISTileProviderManager.TILE_WIDTH, ArcGISTileProviderManager.TILE_HEIGHT) {
 
-    override fun getTileUrl(x: Int, y: Int, zoom: Int): URL? {
-        val tileUrl = mapType.getMapTypeUrl(zoom, x, y)
-        if(tileUrl != null){
-            try{
-                return URL(tileUrl)
-            } catch(e: MalformedURLException){
-                Timber.e(e, "Error while building url for arc GIS map tile.")
-            }
-        }
-
-        return null
+    override fun getTileUrl(x: Int, y: Int, zoom: Int): String? {
+        return mapType.getMapTypeUrl(zoom, x, y)
     }
-}
\ No newline at end of file
+}
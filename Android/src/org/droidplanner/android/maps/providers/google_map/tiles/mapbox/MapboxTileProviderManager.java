@@ -8,6 +8,7 @@ import android.text.TextUtils;
 import org.droidplanner.android.maps.DPMap;
 import org.droidplanner.android.maps.providers.google_map.tiles.TileProviderManager;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
 import org.droidplanner.android.utils.NetworkUtils;
 import org.droidplanner.android.utils.Utils;
 import org.json.JSONArray;
@@ -41,7 +42,7 @@ public class MapboxTileProviderManager extends TileProviderManager {
     private final String mapboxAccessToken;
 
     public MapboxTileProviderManager(Context context, String mapboxId, String mapboxAccessToken, int maxZoomLevel) {
-        super(new MapboxTileProvider(mapboxId, mapboxAccessToken, maxZoomLevel),
+        super(new MapboxTileProvider(context, mapboxId, mapboxAccessToken, maxZoomLevel),
             new OfflineTileProvider(context, mapboxId, mapboxAccessToken, maxZoomLevel));
 
         this.context = context;
@@ -72,17 +73,17 @@ public class MapboxTileProviderManager extends TileProviderManager {
         minimumZ, int maximumZ, boolean includeMetadata,
                                       boolean includeMarkers) {
 
-        final ArrayList<String> urls = new ArrayList<String>();
+        final ArrayList<OfflineResource> resources = new ArrayList<OfflineResource>();
         String dataName = "features.json";    // Only using API V4 for now
 
         // Include URLs for the metadata and markers json if applicable
         if (includeMetadata) {
-            urls.add(String.format(Locale.US, MapboxUtils.MAPBOX_BASE_URL_V4 + "%s.json?secure&access_token=%s",
-                mapId, accessToken));
+            resources.add(OfflineResource.resource(String.format(Locale.US, MapboxUtils.MAPBOX_BASE_URL_V4 + "%s.json?secure&access_token=%s",
+                mapId, accessToken)));
         }
         if (includeMarkers) {
-            urls.add(String.format(Locale.US, MapboxUtils.MAPBOX_BASE_URL_V4 + "%s/%s?access_token=%s", mapId,
-                dataName, accessToken));
+            resources.add(OfflineResource.resource(String.format(Locale.US, MapboxUtils.MAPBOX_BASE_URL_V4 + "%s/%s?access_token=%s", mapId,
+                dataName, accessToken)));
         }
 
         // Loop through the zoom levels and lat/lon bounds to generate a list of urls which should be included in the offline map
@@ -117,12 +118,12 @@ public class MapboxTileProviderManager extends TileProviderManager {
             maxY = Double.valueOf(Math.floor((1.0 - (Math.log(Math.tan(minLat * Math.PI / 180.0) + 1.0 / Math.cos(minLat * Math.PI / 180.0)) / Math.PI)) / 2.0 * tilesPerSide)).intValue();
             for (int x = minX; x <= maxX; x++) {
                 for (int y = minY; y <= maxY; y++) {
-                    urls.add(MapboxUtils.getMapTileURL(mapId, accessToken, zoom, x, y));
+                    resources.add(OfflineResource.tile(zoom, x, y, MapboxUtils.getMapTileURL(mapId, accessToken, zoom, x, y)));
                 }
             }
         }
 
-        Timber.d(urls.size() + " urls generated for mapbox tiles.");
+        Timber.d(resources.size() + " urls generated for mapbox tiles.");
 
         // Determine if we need to add marker icon urls (i.e. parse markers.geojson/features.json), and if so, add them
         if (includeMarkers) {
@@ -161,8 +162,8 @@ public class MapboxTileProviderManager extends TileProviderManager {
                         Set<String> markerIconURLStrings = new HashSet<String>();
                         markerIconURLStrings.addAll(parseMarkerIconURLStringsFromGeojsonData(accessToken, jsonText));
                         Timber.i("Number of markerIconURLs = " + markerIconURLStrings.size());
-                        if (markerIconURLStrings.size() > 0) {
-                            urls.addAll(markerIconURLStrings);
+                        for (String markerIconURL : markerIconURLStrings) {
+                            resources.add(OfflineResource.resource(markerIconURL));
                         }
                     } catch (IOException e) {
                         // The url for markers.geojson/features.json didn't work (some maps don't have any markers). Notify the delegate of the
@@ -178,7 +179,7 @@ public class MapboxTileProviderManager extends TileProviderManager {
                         handler.post(new Runnable() {
                             @Override
                             public void run() {
-                                mapDownloader.startDownloadProcess(mapId, urls);
+                                mapDownloader.startDownloadProcess(mapId, resources);
                             }
                         });
                     }
@@ -187,7 +188,7 @@ public class MapboxTileProviderManager extends TileProviderManager {
         } else {
             Timber.i("No marker icons to worry about, so just start downloading.");
             // There aren't any marker icons to worry about, so just create database and start downloading
-            mapDownloader.startDownloadProcess(mapId, urls);
+            mapDownloader.startDownloadProcess(mapId, resources);
         }
 
     }
@@ -32,8 +32,7 @@ public class OfflineTileProvider implements TileProvider {
             return TileProvider.NO_TILE;
         }
 
-        final String tileUri = MapboxUtils.getMapTileURL(mapboxId, mapboxAccessToken, zoom, x, y);
-        byte[] data = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapboxId).dataForURL(tileUri);
+        byte[] data = DatabaseState.getTileData(context, mapboxId, zoom, x, y);
         if (data == null || data.length == 0)
             return TileProvider.NO_TILE;
 
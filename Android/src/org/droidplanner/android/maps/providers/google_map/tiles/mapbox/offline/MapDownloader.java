@@ -1,26 +1,25 @@
 package org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.preference.PreferenceManager;
 import android.text.TextUtils;
 
 import org.droidplanner.android.data.DatabaseState;
 import org.droidplanner.android.maps.providers.google_map.tiles.offline.MapDownloaderListener;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.TileDownloadEngine;
 import org.droidplanner.android.maps.providers.google_map.tiles.offline.db.OfflineDatabaseHandler;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.db.OfflineTileWriter;
 import org.droidplanner.android.utils.NetworkUtils;
 import org.droidplanner.android.utils.Utils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,24 +40,30 @@ public class MapDownloader {
          * An offline map download job is being canceled.
          */
         CANCELLING,
+        /**
+         * An offline map download job is paused, and can be resumed.
+         */
+        PAUSED,
         /**
          * The offline map downloader is ready to begin a new offline map download job.
          */
         AVAILABLE
     }
 
-    private OfflineMapDownloaderState state;
+    private static final String PREF_PENDING_DOWNLOAD_MAP_ID = "pref_pending_offline_map_download";
+
+    private volatile OfflineMapDownloaderState state;
     private final AtomicInteger totalFilesWritten = new AtomicInteger(0);
     private final AtomicInteger totalFilesExpectedToWrite = new AtomicInteger(0);
 
     private final Context context;
     private ExecutorService downloadsScheduler;
+    private volatile TileDownloadEngine downloadEngine;
+    private volatile OfflineTileWriter tileWriter;
     private final ArrayList<MapDownloaderListener> listeners = new ArrayList<>();
 
     public MapDownloader(Context context) {
         this.context = context;
-        setupDownloadScheduler();
-
         this.state = OfflineMapDownloaderState.AVAILABLE;
     }
 
@@ -78,13 +83,54 @@ public class MapDownloader {
         return listeners.remove(listener);
     }
 
+    /**
+     * Pauses the download job in progress, and releases the downloader thread. The download can be
+     * resumed by another instance.
+     */
+    public void close() {
+        pauseDownload();
+        releaseDownloadsScheduler();
+    }
+
+    private synchronized ExecutorService getDownloadsScheduler() {
+        if (downloadsScheduler == null)
+            downloadsScheduler = Executors.newSingleThreadExecutor();
+        return downloadsScheduler;
+    }
+
+    /**
+     * Lets the downloader thread terminate once its queued tasks are done. A new one is created
+     * by the next download job.
+     */
+    private synchronized void releaseDownloadsScheduler() {
+        if (downloadsScheduler != null) {
+            downloadsScheduler.shutdown();
+            downloadsScheduler = null;
+        }
+    }
+
+    /**
+     * Stops the download job in progress, and discards the resources left to download.
+     */
     public void cancelDownload() {
-        if (state == OfflineMapDownloaderState.RUNNING) {
+        if (state == OfflineMapDownloaderState.RUNNING || state == OfflineMapDownloaderState.PAUSED) {
             this.state = OfflineMapDownloaderState.CANCELLING;
             notifyDelegateOfStateChange();
         }
 
-        setupDownloadScheduler();
+        stopDownloadJob(false);
+
+        final String mapId = getPendingDownloadMapId();
+        setPendingDownloadMapId(null);
+        if (!TextUtils.isEmpty(mapId)) {
+            getDownloadsScheduler().execute(new Runnable() {
+                @Override
+                public void run() {
+                    deleteIncompleteDownloads(mapId);
+                }
+            });
+        }
+        releaseDownloadsScheduler();
 
         if (state == OfflineMapDownloaderState.CANCELLING) {
             this.state = OfflineMapDownloaderState.AVAILABLE;
@@ -92,14 +138,97 @@ public class MapDownloader {
         }
     }
 
-    private void setupDownloadScheduler() {
-        if (downloadsScheduler != null) {
-            downloadsScheduler.shutdownNow();
+    /**
+     * Stops the download job in progress. The downloaded resources are kept, and the remaining
+     * ones are picked up by {@link #resumeDownload()}, including after an application restart.
+     */
+    public void pauseDownload() {
+        if (state != OfflineMapDownloaderState.RUNNING)
+            return;
+
+        stopDownloadJob(true);
+        releaseDownloadsScheduler();
+        this.state = OfflineMapDownloaderState.PAUSED;
+        notifyDelegateOfStateChange();
+    }
+
+    /**
+     * @return true if a paused or interrupted download job can be resumed.
+     */
+    public boolean hasPendingDownload() {
+        return !TextUtils.isEmpty(getPendingDownloadMapId());
+    }
+
+    /**
+     * Resumes downloading the resources left by a paused or interrupted download job.
+     */
+    public void resumeDownload() {
+        final String mapId = getPendingDownloadMapId();
+        if (TextUtils.isEmpty(mapId)) {
+            Timber.w("No pending download to resume.");
+            return;
+        }
+
+        if (state != OfflineMapDownloaderState.AVAILABLE && state != OfflineMapDownloaderState.PAUSED) {
+            Timber.w("state doesn't allow resuming the download.  state = " + state);
+            return;
         }
 
-        final int processorsCount = (int) (Runtime.getRuntime().availableProcessors() * 1.5f);
-        Timber.v("Using " + processorsCount + " processors.");
-        downloadsScheduler = Executors.newFixedThreadPool(processorsCount);
+        this.state = OfflineMapDownloaderState.RUNNING;
+        notifyDelegateOfStateChange();
+
+        getDownloadsScheduler().execute(new Runnable() {
+            @Override
+            public void run() {
+                Timber.i("Resuming download process for map id " + mapId);
+                startDownloading(mapId);
+            }
+        });
+    }
+
+    /**
+     * Stops the download engine and the tile writer.
+     *
+     * @param flush true to commit the tiles already downloaded, false to drop them.
+     */
+    private void stopDownloadJob(boolean flush) {
+        final TileDownloadEngine engine = downloadEngine;
+        if (engine != null) {
+            engine.stop();
+            downloadEngine = null;
+        }
+
+        final OfflineTileWriter writer = tileWriter;
+        if (writer != null) {
+            tileWriter = null;
+            if (flush) {
+                getDownloadsScheduler().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            writer.finish();
+                        } catch (InterruptedException e) {
+                            Timber.w("Interrupted while saving the downloaded map data.");
+                        }
+                    }
+                });
+            } else {
+                writer.cancel();
+            }
+        }
+    }
+
+    private String getPendingDownloadMapId() {
+        return PreferenceManager.getDefaultSharedPreferences(context).getString(PREF_PENDING_DOWNLOAD_MAP_ID, null);
+    }
+
+    private void setPendingDownloadMapId(String mapId) {
+        final SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+        if (mapId == null)
+            editor.remove(PREF_PENDING_DOWNLOAD_MAP_ID);
+        else
+            editor.putString(PREF_PENDING_DOWNLOAD_MAP_ID, mapId);
+        editor.apply();
     }
 
 /*
@@ -141,6 +270,12 @@ public class MapDownloader {
         }
     }
 
+    public void notifyDelegateOfThroughput(float tilesPerSecond, float bytesPerSecond) {
+        for (MapDownloaderListener listener : listeners) {
+            listener.throughputUpdate(tilesPerSecond, bytesPerSecond);
+        }
+    }
+
     public void notifyDelegateOfCompletionWithOfflineMapDatabase() {
         for (MapDownloaderListener listener : listeners) {
             listener.completionOfOfflineDatabaseMap();
@@ -148,154 +283,134 @@ public class MapDownloader {
     }
 
     private void startDownloading(final String mapId) {
+        if (this.state != OfflineMapDownloaderState.RUNNING)
+            return;
 
         // Get the actual URLs
-        ArrayList<String> urls = sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(mapId, -1);
-        this.totalFilesExpectedToWrite.set(urls.size());
+        ArrayList<OfflineResource> resources = sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(mapId, -1);
+        this.totalFilesExpectedToWrite.set(resources.size());
         this.totalFilesWritten.set(0);
 
         notifyDelegateOfInitialCount(totalFilesExpectedToWrite.get());
 
-        Timber.d(String.format(Locale.US, "number of urls to download = %d", urls.size()));
+        Timber.d(String.format(Locale.US, "number of urls to download = %d", resources.size()));
         if (this.totalFilesExpectedToWrite.get() == 0) {
             finishUpDownloadProcess();
             return;
         }
 
+        setPendingDownloadMapId(mapId);
+
         if (!NetworkUtils.isNetworkAvailable(context)) {
             Timber.e("Network is not available.");
             notifyDelegateOfNetworkConnectivityError(new IllegalStateException("Network is not available"));
+            pauseDownload();
             return;
         }
 
-        final CountDownLatch downloadsTracker = new CountDownLatch(this.totalFilesExpectedToWrite.get());
-        for (final String url : urls) {
-            downloadsScheduler.execute(new Runnable() {
-                @Override
-                public void run() {
-                    HttpURLConnection conn = null;
-                    try {
-                        conn = NetworkUtils.getHttpURLConnection(new URL(url));
-                        Timber.d("URL to download = " + conn.getURL().toString());
-                        conn.setConnectTimeout(60000);
-                        conn.connect();
-                        int rc = conn.getResponseCode();
-                        if (rc != HttpURLConnection.HTTP_OK) {
-                            String msg = String.format(Locale.US, "HTTP Error connection.  Response Code = %d for url = %s", rc, conn.getURL().toString());
-                            Timber.w(msg);
-                            notifyDelegateOfHTTPStatusError(rc, url);
-                            throw new IOException(msg);
-                        }
+        final OfflineTileWriter writer = new OfflineTileWriter(
+                DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId),
+                new OfflineTileWriter.Listener() {
+                    @Override
+                    public void onTilesWritten(int count) {
+                        notifyDelegateOfProgress(totalFilesWritten.addAndGet(count), totalFilesExpectedToWrite.get());
+                        Timber.d("totalFilesWritten = " + totalFilesWritten + "; totalFilesExpectedToWrite = "
+                                + totalFilesExpectedToWrite.get());
+                    }
 
-                        ByteArrayOutputStream bais = new ByteArrayOutputStream();
-                        InputStream is = null;
-                        try {
-                            is = conn.getInputStream();
-                            // Read 4K at a time
-                            byte[] byteChunk = new byte[4096];
-                            int n;
+                    @Override
+                    public void onWriteError(Throwable error) {
+                        notifyDelegateOfSqliteError(error);
+                    }
+                });
 
-                            while ((n = is.read(byteChunk)) > 0) {
-                                bais.write(byteChunk, 0, n);
-                            }
-                        } catch (IOException e) {
-                            Timber.e(e, String.format(Locale.US, "Failed while reading bytes from %s: %s", conn
-                                    .getURL().toString(), e.getMessage()));
-                        } finally {
-                            if (is != null) {
-                                is.close();
-                            }
-                            conn.disconnect();
-                        }
-                        sqliteSaveDownloadedData(mapId, bais.toByteArray(), url);
-                    } catch (IOException e) {
-                        Timber.e(e, "Error occurred while retrieving map data.");
-                    } finally {
-                        downloadsTracker.countDown();
-
-                        if (conn != null) {
-                            conn.disconnect();
+        final TileDownloadEngine engine = new TileDownloadEngine(NetworkUtils.getDownloadHttpClient(context),
+                new TileDownloadEngine.Listener() {
+                    @Override
+                    public void onResourceDownloaded(OfflineResource resource, byte[] data) throws InterruptedException {
+                        sqliteSaveDownloadedData(writer, data, resource);
+                    }
+
+                    @Override
+                    public void onResourceFailed(OfflineResource resource, int httpStatus, Throwable error) {
+                        if (httpStatus > 0) {
+                            notifyDelegateOfHTTPStatusError(httpStatus, resource.getUrl());
                         }
                     }
 
-                }
-            });
-        }
+                    @Override
+                    public void onThroughputUpdate(float tilesPerSecond, float bytesPerSecond) {
+                        notifyDelegateOfThroughput(tilesPerSecond, bytesPerSecond);
+                    }
 
-        downloadsScheduler.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    downloadsTracker.await();
-                } catch (InterruptedException e) {
-                    Timber.e(e, "Error while waiting for downloads to complete.");
-                } finally {
-                    finishUpDownloadProcess();
-                }
-            }
-        });
+                    @Override
+                    public void onCompleted() {
+                        getDownloadsScheduler().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    writer.finish();
+                                } catch (InterruptedException e) {
+                                    Timber.e(e, "Error while waiting for downloads to complete.");
+                                } finally {
+                                    if (tileWriter == writer)
+                                        tileWriter = null;
+                                    finishUpDownloadProcess();
+                                }
+                            }
+                        });
+                    }
+                });
+
+        tileWriter = writer;
+        downloadEngine = engine;
+        writer.start();
+        engine.start(resources);
     }
 
 /*
     Implementation: sqlite stuff
 */
 
-    public void sqliteSaveDownloadedData(String mapId, byte[] data, String url) {
-        if (Utils.runningOnMainThread()) {
-            Timber.w("trying to run sqliteSaveDownloadedData() on main thread. Return.");
-            return;
-        }
-
+    /**
+     * Hands the downloaded data over to the tile writer, which commits it to the database in
+     * batches. Progress is reported once the batch is committed.
+     */
+    private void sqliteSaveDownloadedData(OfflineTileWriter writer, byte[] data, OfflineResource resource)
+            throws InterruptedException {
         // Bail out if the state has changed to canceling, suspended, or available
         if (this.state != OfflineMapDownloaderState.RUNNING) {
             Timber.w("sqliteSaveDownloadedData() is not in a Running state so bailing.  State = " + this.state);
             return;
         }
 
-        // Open the database read-write and multi-threaded. The slightly obscure c-style variable names here and below are
-        // used to stay consistent with the sqlite documentaion.
-        // Continue by inserting an image blob into the data table
-        SQLiteDatabase db = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId).getWritableDatabase();
-        try {
-            db.beginTransaction();
-
-            ContentValues values = new ContentValues();
-            values.put(OfflineDatabaseHandler.FIELD_DATA_VALUE, data);
-            db.insert(OfflineDatabaseHandler.TABLE_DATA, null, values);
-
-            db.execSQL(String.format(Locale.US, "UPDATE %s SET %s=200, %s=last_insert_rowid() WHERE %s='%s';", OfflineDatabaseHandler.TABLE_RESOURCES, OfflineDatabaseHandler.FIELD_RESOURCES_STATUS, OfflineDatabaseHandler.FIELD_RESOURCES_ID, OfflineDatabaseHandler.FIELD_RESOURCES_URL, url));
-            db.setTransactionSuccessful();
-            db.endTransaction();
-//        db.close();
-        }catch(IllegalStateException e){
-            Timber.e(e,"Error while saving downloader data to the database.");
-        }
-
-        // Update the progress
-        notifyDelegateOfProgress(this.totalFilesWritten.incrementAndGet(), this.totalFilesExpectedToWrite.get());
-        Timber.d("totalFilesWritten = " + this.totalFilesWritten + "; totalFilesExpectedToWrite = " + this
-                .totalFilesExpectedToWrite.get());
+        writer.write(resource, data);
     }
 
     private void finishUpDownloadProcess() {
         if (this.state == OfflineMapDownloaderState.RUNNING) {
+            downloadEngine = null;
+            setPendingDownloadMapId(null);
             Timber.i("Just finished downloading all materials.  Persist the OfflineMapDatabase, change the state, and call it a day.");
             // This is what to do when we've downloaded all the files
             notifyDelegateOfCompletionWithOfflineMapDatabase();
             this.state = OfflineMapDownloaderState.AVAILABLE;
             notifyDelegateOfStateChange();
+            releaseDownloadsScheduler();
         }
     }
 
-    public ArrayList<String> sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(String mapId, int limit) {
-        ArrayList<String> results = new ArrayList<String>();
+    public ArrayList<OfflineResource> sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(String mapId, int limit) {
+        ArrayList<OfflineResource> results = new ArrayList<OfflineResource>();
         if (Utils.runningOnMainThread()) {
             Timber.w("Attempting to run sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit() on main thread.  Returning.");
             return results;
         }
 
         // Read up to limit undownloaded urls from the offline map database
-        String query = String.format(Locale.US, "SELECT %s FROM %s WHERE %s IS NULL", OfflineDatabaseHandler.FIELD_RESOURCES_URL, OfflineDatabaseHandler.TABLE_RESOURCES, OfflineDatabaseHandler.FIELD_RESOURCES_STATUS);
+        String query = String.format(Locale.US, "SELECT %s, %d FROM %s WHERE %s IS NULL UNION ALL SELECT %s, %s FROM %s WHERE %s IS NULL",
+                OfflineDatabaseHandler.FIELD_RESOURCES_URL, OfflineResource.NO_TILE_KEY, OfflineDatabaseHandler.TABLE_RESOURCES, OfflineDatabaseHandler.FIELD_RESOURCES_STATUS,
+                OfflineDatabaseHandler.FIELD_TILES_URL, OfflineDatabaseHandler.FIELD_TILES_KEY, OfflineDatabaseHandler.TABLE_TILES, OfflineDatabaseHandler.FIELD_TILES_STATUS);
         if (limit > 0) {
             query = query + String.format(Locale.US, " LIMIT %d", limit);
         }
@@ -307,7 +422,12 @@ public class MapDownloader {
         if (cursor != null) {
             if (cursor.moveToFirst()) {
                 do {
-                    results.add(cursor.getString(0));
+                    final String url = cursor.getString(0);
+                    final long tileKey = cursor.getLong(1);
+                    results.add(tileKey == OfflineResource.NO_TILE_KEY
+                            ? OfflineResource.resource(url)
+                            : OfflineResource.tile(OfflineResource.getZoom(tileKey), OfflineResource.getX(tileKey),
+                            OfflineResource.getY(tileKey), url));
                 } while (cursor.moveToNext());
             }
             cursor.close();
@@ -318,7 +438,7 @@ public class MapDownloader {
     }
 
 
-    public boolean sqliteCreateDatabaseUsingMetadata(String mapId, List<String> urlStrings) {
+    public boolean sqliteCreateDatabaseUsingMetadata(String mapId, List<OfflineResource> resources) {
         if (Utils.runningOnMainThread()) {
             Timber.w("sqliteCreateDatabaseUsingMetadata() running on main thread.  Returning.");
             return false;
@@ -330,16 +450,31 @@ public class MapDownloader {
 
         // Build a query to populate the database (map metadata and list of map resource urls)
         SQLiteDatabase db = dbHandler.getWritableDatabase();
+        final SQLiteStatement insertResource = db.compileStatement("INSERT OR IGNORE INTO "
+                + OfflineDatabaseHandler.TABLE_RESOURCES + " (" + OfflineDatabaseHandler.FIELD_RESOURCES_URL
+                + ") VALUES (?);");
+        final SQLiteStatement insertTile = db.compileStatement("INSERT OR IGNORE INTO "
+                + OfflineDatabaseHandler.TABLE_TILES + " (" + OfflineDatabaseHandler.FIELD_TILES_KEY + ", "
+                + OfflineDatabaseHandler.FIELD_TILES_URL + ") VALUES (?, ?);");
         db.beginTransaction();
+        try {
+            for (OfflineResource resource : resources) {
+                if (resource.isTile()) {
+                    insertTile.bindLong(1, resource.getTileKey());
+                    insertTile.bindString(2, resource.getUrl());
+                    insertTile.executeInsert();
+                } else {
+                    insertResource.bindString(1, resource.getUrl());
+                    insertResource.executeInsert();
+                }
+            }
 
-        for (String url : urlStrings) {
-            ContentValues cv = new ContentValues();
-            cv.put(OfflineDatabaseHandler.FIELD_RESOURCES_URL, url);
-            db.insertWithOnConflict(OfflineDatabaseHandler.TABLE_RESOURCES, null, cv, SQLiteDatabase.CONFLICT_IGNORE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insertResource.close();
+            insertTile.close();
         }
-
-        db.setTransactionSuccessful();
-        db.endTransaction();
 //        db.close();
 
         return true;
@@ -360,7 +495,8 @@ public class MapDownloader {
 
         final SQLiteDatabase db = dbHandler.getWritableDatabase();
         final int deletedCount = db.delete(OfflineDatabaseHandler.TABLE_RESOURCES,
-                "status IS NULL OR TRIM(status) = ''", null);
+                "status IS NULL OR TRIM(status) = ''", null)
+                + db.delete(OfflineDatabaseHandler.TABLE_TILES, "status IS NULL", null);
         Timber.d("Deleted %d rows", deletedCount);
         return true;
     }
@@ -372,25 +508,31 @@ public class MapDownloader {
     /**
      * Starting the Whole Download Process
      *
-     * @param urls Map urls
+     * @param resources Map tiles and auxiliary resources
      */
-    public void startDownloadProcess(final String mapId, final List<String> urls) {
-        if (state != OfflineMapDownloaderState.AVAILABLE) {
+    public void startDownloadProcess(final String mapId, final List<OfflineResource> resources) {
+        if (state != OfflineMapDownloaderState.AVAILABLE && state != OfflineMapDownloaderState.PAUSED) {
             Timber.w("state doesn't equal AVAILABLE so return.  state = " + state);
             return;
         }
 
+        // Only one map can be pending at a time; the paused one must be resumed or cancelled first.
+        final String pendingMapId = getPendingDownloadMapId();
+        if (!TextUtils.isEmpty(pendingMapId) && !pendingMapId.equals(mapId)) {
+            Timber.w("Download of map id %s is pending, so refusing to start %s.", pendingMapId, mapId);
+            return;
+        }
+
         // Start a download job to retrieve all the resources needed for using the specified map offline
         this.state = OfflineMapDownloaderState.RUNNING;
         notifyDelegateOfStateChange();
 
-        downloadsScheduler.execute(new Runnable() {
+        getDownloadsScheduler().execute(new Runnable() {
             @Override
             public void run() {
-                deleteIncompleteDownloads(mapId);
-
+                // Resources left by a previous interrupted job are merged with the new ones.
                 // Do database creation / io on background thread
-                if (!sqliteCreateDatabaseUsingMetadata(mapId, urls)) {
+                if (!sqliteCreateDatabaseUsingMetadata(mapId, resources)) {
                     Timber.e("Map Database wasn't created");
                     return;
                 }
@@ -12,4 +12,9 @@ public interface MapDownloaderListener {
     void httpStatusError(int status, String url);
     void completionOfOfflineDatabaseMap();
 
+    /**
+     * Periodic report of the download rates while a download job is running.
+     */
+    void throughputUpdate(float tilesPerSecond, float bytesPerSecond);
+
 }
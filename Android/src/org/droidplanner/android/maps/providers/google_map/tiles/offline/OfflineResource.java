@@ -0,0 +1,87 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.offline;
+
+/**
+ * A resource to download for offline use: either a map tile, identified by its (zoom, x, y)
+ * coordinates, or an auxiliary resource (metadata, markers...) only identified by its url.
+ */
+public final class OfflineResource {
+
+    /**
+     * Key of the resources which are not map tiles.
+     */
+    public static final long NO_TILE_KEY = -1;
+
+    private static final int COORDINATE_BITS = 28;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+    private static final int MAX_ZOOM = 28;
+
+    private final String url;
+    private final int zoom;
+    private final int x;
+    private final int y;
+    private final long tileKey;
+
+    private OfflineResource(String url, int zoom, int x, int y, long tileKey) {
+        this.url = url;
+        this.zoom = zoom;
+        this.x = x;
+        this.y = y;
+        this.tileKey = tileKey;
+    }
+
+    public static OfflineResource tile(int zoom, int x, int y, String url) {
+        return new OfflineResource(url, zoom, x, y, getTileKey(zoom, x, y));
+    }
+
+    public static OfflineResource resource(String url) {
+        return new OfflineResource(url, -1, -1, -1, NO_TILE_KEY);
+    }
+
+    /**
+     * Packs the tile coordinates into a single 64 bits key: the zoom level in the upper byte,
+     * followed by x and y on 28 bits each.
+     */
+    public static long getTileKey(int zoom, int x, int y) {
+        if (zoom < 0 || zoom > MAX_ZOOM)
+            throw new IllegalArgumentException("Unsupported zoom level: " + zoom);
+
+        return ((long) zoom << (2 * COORDINATE_BITS)) | ((x & COORDINATE_MASK) << COORDINATE_BITS)
+                | (y & COORDINATE_MASK);
+    }
+
+    public static int getZoom(long tileKey) {
+        return (int) (tileKey >>> (2 * COORDINATE_BITS));
+    }
+
+    public static int getX(long tileKey) {
+        return (int) ((tileKey >>> COORDINATE_BITS) & COORDINATE_MASK);
+    }
+
+    public static int getY(long tileKey) {
+        return (int) (tileKey & COORDINATE_MASK);
+    }
+
+    public boolean isTile() {
+        return tileKey != NO_TILE_KEY;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public long getTileKey() {
+        return tileKey;
+    }
+}
@@ -0,0 +1,132 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.offline;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.LruCache;
+
+import java.util.Locale;
+
+/**
+ * In-memory LRU cache of the tile blobs read from the offline databases, shared by the offline
+ * tile providers. The cache is bounded by the total size of the cached blobs.
+ *
+ * {@link LruCache} is synchronized, so the cache can be used from the concurrent tile threads of
+ * the Maps SDK.
+ */
+public class OfflineTileCache {
+
+    /**
+     * Fraction of the application memory class used for the cache.
+     */
+    private static final int MEMORY_CLASS_DIVIDER = 8;
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private static volatile OfflineTileCache instance;
+
+    public static OfflineTileCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OfflineTileCache.class) {
+                if (instance == null) {
+                    final ActivityManager activityManager = (ActivityManager) context.getApplicationContext()
+                            .getSystemService(Context.ACTIVITY_SERVICE);
+                    final int memoryClass = activityManager.getMemoryClass();
+                    instance = new OfflineTileCache(memoryClass * BYTES_PER_MB / MEMORY_CLASS_DIVIDER);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static final class TileKey {
+        final String mapId;
+        final long tileKey;
+
+        TileKey(String mapId, long tileKey) {
+            this.mapId = mapId;
+            this.tileKey = tileKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+
+            final TileKey other = (TileKey) o;
+            return tileKey == other.tileKey && mapId.equals(other.mapId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mapId.hashCode() + (int) (tileKey ^ (tileKey >>> 32));
+        }
+    }
+
+    private final LruCache<TileKey, byte[]> cache;
+
+    /**
+     * @param maxSizeBytes memory budget of the cache, in bytes.
+     */
+    public OfflineTileCache(int maxSizeBytes) {
+        cache = new LruCache<TileKey, byte[]>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(TileKey key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    private static TileKey key(String mapId, int zoom, int x, int y) {
+        return new TileKey(mapId.toLowerCase(Locale.US), OfflineResource.getTileKey(zoom, x, y));
+    }
+
+    /**
+     * @return the cached tile data, or null on a miss.
+     */
+    public byte[] get(String mapId, int zoom, int x, int y) {
+        return cache.get(key(mapId, zoom, x, y));
+    }
+
+    public void put(String mapId, int zoom, int x, int y, byte[] data) {
+        if (data == null || data.length == 0)
+            return;
+
+        cache.put(key(mapId, zoom, x, y), data);
+    }
+
+    /**
+     * Drops the cached tiles of the given map.
+     */
+    public void evict(String mapId) {
+        final String lowerMapId = mapId.toLowerCase(Locale.US);
+        for (TileKey key : cache.snapshot().keySet()) {
+            if (key.mapId.equals(lowerMapId))
+                cache.remove(key);
+        }
+    }
+
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return cache.maxSize();
+    }
+
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+}
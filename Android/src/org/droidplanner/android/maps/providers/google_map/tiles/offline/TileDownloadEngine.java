@@ -0,0 +1,444 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.offline;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+
+import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Downloads a set of offline map resources through a shared http client.
+ *
+ * Resources are served in priority order: auxiliary resources first, then tiles by increasing zoom
+ * level, and within a zoom level by increasing distance to the centre of the requested area.
+ * Concurrent requests are capped overall and per host, and failed requests are retried with an
+ * exponential backoff.
+ *
+ * Each host has its own queue, so a download thread only takes a resource it can request right
+ * away: the highest priority one among the hosts below their request cap.
+ *
+ * An engine runs a single download job; {@link #stop()} drops the queued resources and cancels the
+ * requests in flight.
+ */
+public class TileDownloadEngine {
+
+    public interface Listener {
+        /**
+         * Called from a download thread for each downloaded resource.
+         */
+        void onResourceDownloaded(OfflineResource resource, byte[] data) throws InterruptedException;
+
+        /**
+         * Called when a resource can't be downloaded, after the retries are exhausted.
+         *
+         * @param httpStatus http status of the last attempt, or -1 if the request didn't complete.
+         */
+        void onResourceFailed(OfflineResource resource, int httpStatus, Throwable error);
+
+        /**
+         * Periodic report of the download rates, averaged over the last report interval.
+         */
+        void onThroughputUpdate(float tilesPerSecond, float bytesPerSecond);
+
+        /**
+         * Called once every resource is either downloaded or failed.
+         */
+        void onCompleted();
+    }
+
+    public static final int DEFAULT_MAX_REQUESTS = 8;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 4;
+    public static final int DEFAULT_MAX_RETRIES = 4;
+
+    private static final long RETRY_BASE_DELAY = 1000; //ms
+    private static final long RETRY_MAX_DELAY = 30000; //ms
+    private static final long THROUGHPUT_REPORT_INTERVAL = 1000; //ms
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private static final class DownloadTask {
+        final OfflineResource resource;
+        final String host;
+        final int zoom;
+        final long distance;
+        final int attempt;
+
+        DownloadTask(OfflineResource resource, String host, int zoom, long distance, int attempt) {
+            this.resource = resource;
+            this.host = host;
+            this.zoom = zoom;
+            this.distance = distance;
+            this.attempt = attempt;
+        }
+
+        DownloadTask nextAttempt() {
+            return new DownloadTask(resource, host, zoom, distance, attempt + 1);
+        }
+    }
+
+    /**
+     * Queued resources and requests in flight of a host. Guarded by the queue lock.
+     */
+    private static final class HostQueue {
+        final PriorityQueue<DownloadTask> tasks = new PriorityQueue<>(64, PRIORITY_ORDER);
+        int activeRequests;
+    }
+
+    private static final Comparator<DownloadTask> PRIORITY_ORDER = new Comparator<DownloadTask>() {
+        @Override
+        public int compare(DownloadTask lhs, DownloadTask rhs) {
+            if (lhs.zoom != rhs.zoom)
+                return lhs.zoom < rhs.zoom ? -1 : 1;
+
+            return lhs.distance < rhs.distance ? -1 : (lhs.distance == rhs.distance ? 0 : 1);
+        }
+    };
+
+    private final OkHttpClient client;
+    private final Listener listener;
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final int maxRetries;
+
+    private final Object queueLock = new Object();
+    private final Map<String, HostQueue> hostQueues = new HashMap<>();
+    private final AtomicInteger remainingCount = new AtomicInteger();
+    private final AtomicLong downloadedTiles = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final Random random = new Random();
+
+    private ExecutorService downloadThreads;
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean stopped;
+
+    private long lastReportTime;
+    private long lastReportTiles;
+    private long lastReportBytes;
+
+    public TileDownloadEngine(OkHttpClient client, Listener listener) {
+        this(client, listener, DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_RETRIES);
+    }
+
+    public TileDownloadEngine(OkHttpClient client, Listener listener, int maxRequests,
+                              int maxRequestsPerHost, int maxRetries) {
+        this.client = client;
+        this.listener = listener;
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Starts downloading the given resources.
+     */
+    public synchronized void start(List<OfflineResource> resources) {
+        if (downloadThreads != null)
+            throw new IllegalStateException("The download engine was already started.");
+
+        queueResources(resources);
+        remainingCount.set(resources.size());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        if (resources.isEmpty()) {
+            scheduler.execute(completion);
+            return;
+        }
+
+        lastReportTime = SystemClock.elapsedRealtime();
+        scheduler.scheduleAtFixedRate(throughputReporter, THROUGHPUT_REPORT_INTERVAL,
+                THROUGHPUT_REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+
+        downloadThreads = Executors.newFixedThreadPool(maxRequests);
+        for (int i = 0; i < maxRequests; i++) {
+            downloadThreads.execute(downloader);
+        }
+    }
+
+    /**
+     * Drops the queued resources, and cancels the requests in flight.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        synchronized (queueLock) {
+            hostQueues.clear();
+            queueLock.notifyAll();
+        }
+        client.cancel(this);
+
+        if (downloadThreads != null)
+            downloadThreads.shutdownNow();
+
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Tiles are ranked by their distance to the centre of the bounding box of the tiles at the
+     * same zoom level, so the centre of the area is available first.
+     */
+    private void queueResources(List<OfflineResource> resources) {
+        final Map<Integer, int[]> zoomBounds = new HashMap<>();
+        for (OfflineResource resource : resources) {
+            if (!resource.isTile())
+                continue;
+
+            int[] bounds = zoomBounds.get(resource.getZoom());
+            if (bounds == null) {
+                bounds = new int[]{resource.getX(), resource.getY(), resource.getX(), resource.getY()};
+                zoomBounds.put(resource.getZoom(), bounds);
+            } else {
+                bounds[0] = Math.min(bounds[0], resource.getX());
+                bounds[1] = Math.min(bounds[1], resource.getY());
+                bounds[2] = Math.max(bounds[2], resource.getX());
+                bounds[3] = Math.max(bounds[3], resource.getY());
+            }
+        }
+
+        for (OfflineResource resource : resources) {
+            final String urlHost = Uri.parse(resource.getUrl()).getHost();
+            final String host = urlHost == null ? "" : urlHost;
+            if (!resource.isTile()) {
+                enqueue(new DownloadTask(resource, host, -1, 0, 0));
+                continue;
+            }
+
+            final int[] bounds = zoomBounds.get(resource.getZoom());
+            // Doubled coordinates keep the centre integral.
+            final long dx = 2L * resource.getX() - (bounds[0] + bounds[2]);
+            final long dy = 2L * resource.getY() - (bounds[1] + bounds[3]);
+            enqueue(new DownloadTask(resource, host, resource.getZoom(), dx * dx + dy * dy, 0));
+        }
+    }
+
+    private void enqueue(DownloadTask task) {
+        synchronized (queueLock) {
+            if (stopped)
+                return;
+
+            HostQueue hostQueue = hostQueues.get(task.host);
+            if (hostQueue == null) {
+                hostQueue = new HostQueue();
+                hostQueues.put(task.host, hostQueue);
+            }
+            hostQueue.tasks.add(task);
+            queueLock.notify();
+        }
+    }
+
+    /**
+     * Waits for a queued resource whose host is below its request cap, and counts its request as
+     * in flight.
+     *
+     * @return the highest priority resource which can be requested, or null once the engine is
+     * stopped.
+     */
+    private DownloadTask takeTask() throws InterruptedException {
+        synchronized (queueLock) {
+            while (!stopped) {
+                HostQueue selectedQueue = null;
+                for (HostQueue hostQueue : hostQueues.values()) {
+                    if (hostQueue.activeRequests >= maxRequestsPerHost || hostQueue.tasks.isEmpty())
+                        continue;
+
+                    if (selectedQueue == null
+                            || PRIORITY_ORDER.compare(hostQueue.tasks.peek(), selectedQueue.tasks.peek()) < 0)
+                        selectedQueue = hostQueue;
+                }
+
+                if (selectedQueue != null) {
+                    selectedQueue.activeRequests++;
+                    return selectedQueue.tasks.poll();
+                }
+
+                queueLock.wait();
+            }
+            return null;
+        }
+    }
+
+    private void releaseTask(DownloadTask task) {
+        synchronized (queueLock) {
+            final HostQueue hostQueue = hostQueues.get(task.host);
+            if (hostQueue != null) {
+                hostQueue.activeRequests--;
+                queueLock.notify();
+            }
+        }
+    }
+
+    private final Runnable downloader = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                DownloadTask task;
+                while ((task = takeTask()) != null) {
+                    try {
+                        download(task);
+                    } finally {
+                        releaseTask(task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Timber.d("Tile download thread interrupted.");
+            }
+        }
+    };
+
+    private void download(DownloadTask task) throws InterruptedException {
+        final OfflineResource resource = task.resource;
+        final Request request;
+        try {
+            request = new Request.Builder()
+                    .url(resource.getUrl())
+                    .header("User-Agent", MapboxUtils.getUserAgent())
+                    .tag(this)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            Timber.e(e, "Invalid url %s", resource.getUrl());
+            fail(task, -1, e);
+            return;
+        }
+
+        try {
+            final Response response = client.newCall(request).execute();
+            final int responseCode = response.code();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                response.body().close();
+                Timber.w("HTTP error %d for url %s", responseCode, resource.getUrl());
+
+                if (isRetryable(responseCode))
+                    retry(task, responseCode, null);
+                else
+                    fail(task, responseCode, null);
+                return;
+            }
+
+            final byte[] data = response.body().bytes();
+            if (stopped)
+                return;
+
+            downloadedTiles.incrementAndGet();
+            downloadedBytes.addAndGet(data.length);
+            listener.onResourceDownloaded(resource, data);
+            complete();
+        } catch (IOException e) {
+            if (stopped)
+                return;
+
+            Timber.w(e, "Error while downloading %s", resource.getUrl());
+            retry(task, -1, e);
+        }
+    }
+
+    private static boolean isRetryable(int responseCode) {
+        return responseCode == HTTP_TOO_MANY_REQUESTS || responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    private void retry(final DownloadTask task, int httpStatus, Throwable error) {
+        if (task.attempt >= maxRetries) {
+            fail(task, httpStatus, error);
+            return;
+        }
+
+        final long backoff = Math.min(RETRY_BASE_DELAY << task.attempt, RETRY_MAX_DELAY);
+        final long delay;
+        synchronized (random) {
+            delay = backoff / 2 + (long) (random.nextDouble() * backoff / 2);
+        }
+
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    enqueue(task.nextAttempt());
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler was shut down by stop().
+            Timber.d("Dropping retry for %s", task.resource.getUrl());
+        }
+    }
+
+    private void fail(DownloadTask task, int httpStatus, Throwable error) {
+        if (stopped)
+            return;
+
+        listener.onResourceFailed(task.resource, httpStatus, error);
+        complete();
+    }
+
+    private void complete() {
+        if (remainingCount.decrementAndGet() == 0 && !stopped) {
+            try {
+                scheduler.execute(completion);
+            } catch (RejectedExecutionException e) {
+                // The engine was stopped concurrently.
+                Timber.d("Download engine stopped before completion.");
+            }
+        }
+    }
+
+    private final Runnable completion = new Runnable() {
+        @Override
+        public void run() {
+            throughputReporter.run();
+            synchronized (TileDownloadEngine.this) {
+                if (stopped)
+                    return;
+
+                stopped = true;
+                if (downloadThreads != null)
+                    downloadThreads.shutdownNow();
+                scheduler.shutdown();
+            }
+            listener.onCompleted();
+        }
+    };
+
+    private final Runnable throughputReporter = new Runnable() {
+        @Override
+        public void run() {
+            final long now = SystemClock.elapsedRealtime();
+            final long elapsed = now - lastReportTime;
+            if (elapsed <= 0)
+                return;
+
+            final long tiles = downloadedTiles.get();
+            final long bytes = downloadedBytes.get();
+            final float tilesPerSecond = (tiles - lastReportTiles) * 1000f / elapsed;
+            final float bytesPerSecond = (bytes - lastReportBytes) * 1000f / elapsed;
+
+            lastReportTime = now;
+            lastReportTiles = tiles;
+            lastReportBytes = bytes;
+
+            listener.onThroughputUpdate(tilesPerSecond, bytesPerSecond);
+        }
+    };
+}
@@ -1,23 +1,37 @@
 package org.droidplanner.android.maps.providers.google_map.tiles.offline.db;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.util.Log;
 
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class OfflineDatabaseHandler extends SQLiteOpenHelper {
 
     private static final String TAG = OfflineDatabaseHandler.class.getSimpleName();
 
     // All Static variables
     // Database Version
-    public static final int DATABASE_VERSION = 1;
+    // 1: tiles stored in the resources/data tables, keyed by url.
+    // 2: tiles stored inline in the tiles table, keyed by their packed (zoom, x, y) coordinates.
+    public static final int DATABASE_VERSION = 2;
 
     // Table name(s)
     public static final String TABLE_DATA = "data";
     public static final String TABLE_RESOURCES = "resources";
+    public static final String TABLE_TILES = "tiles";
 
     // Table Fields
     public static final String FIELD_DATA_ID = "id";
@@ -27,6 +41,24 @@ public class OfflineDatabaseHandler extends SQLiteOpenHelper {
     public static final String FIELD_RESOURCES_URL = "url";
     public static final String FIELD_RESOURCES_STATUS = "status";
 
+    public static final String FIELD_TILES_KEY = "tile_key";
+    public static final String FIELD_TILES_URL = "url";
+    public static final String FIELD_TILES_STATUS = "status";
+    public static final String FIELD_TILES_VALUE = "value";
+
+    private static final String QUERY_TILE_DATA = "SELECT " + FIELD_TILES_VALUE + " FROM " + TABLE_TILES
+            + " WHERE " + FIELD_TILES_KEY + "=?;";
+
+    /**
+     * Matches the trailing /a/b/c tile coordinates of the v1 tile urls.
+     */
+    private static final Pattern TILE_URL_PATTERN = Pattern.compile("/(\\d+)/(\\d+)/(\\d+)(@2x)?(\\.\\w+)?(\\?.*)?$");
+
+    /**
+     * Marker of the tile urls using the /zoom/y/x ordering (ArcGIS).
+     */
+    private static final String ZYX_URL_MARKER = "/MapServer/tile/";
+
     /**
      * Constructor
      *
@@ -49,6 +81,7 @@ public class OfflineDatabaseHandler extends SQLiteOpenHelper {
         try {
             db.execSQL(data);
             db.execSQL(resources);
+            createTilesTable(db);
             db.setTransactionSuccessful();
         } catch (SQLException e) {
             Log.e(TAG, "Error creating databases", e);
@@ -57,13 +90,151 @@ public class OfflineDatabaseHandler extends SQLiteOpenHelper {
         }
     }
 
+    private static void createTilesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TILES + " (" + FIELD_TILES_KEY + " INTEGER PRIMARY KEY, "
+                + FIELD_TILES_URL + " TEXT NOT NULL, " + FIELD_TILES_STATUS + " INTEGER, "
+                + FIELD_TILES_VALUE + " BLOB);");
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Let the tile providers keep reading while the downloader commits its batches.
+        if (!db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        // onConfigure() is only called from api 16.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && !db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
+    }
+
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        Log.w(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion + ", which will destroy all old data");
-        db.execSQL("PRAGMA foreign_keys=OFF;");
-        db.execSQL("drop table if exists " + TABLE_DATA);
-        db.execSQL("drop table if exists " + TABLE_RESOURCES);
-        onCreate(db);
+        Log.i(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
+        if (oldVersion < 2) {
+            migrateTilesToKeyedTable(db);
+        }
+    }
+
+    /**
+     * Moves the tiles stored in the v1 resources/data tables to the tiles table. Resources whose
+     * url doesn't identify a tile (metadata, markers...) are left in place.
+     */
+    private static void migrateTilesToKeyedTable(SQLiteDatabase db) {
+        createTilesTable(db);
+
+        final SQLiteStatement insertTile = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_TILES
+                + " (" + FIELD_TILES_KEY + ", " + FIELD_TILES_URL + ", " + FIELD_TILES_STATUS + ", "
+                + FIELD_TILES_VALUE + ") VALUES (?, ?, ?, ?);");
+        final SQLiteStatement deleteResource = db.compileStatement("DELETE FROM " + TABLE_RESOURCES
+                + " WHERE " + FIELD_RESOURCES_URL + "=?;");
+
+        final Cursor cursor = db.rawQuery("SELECT r." + FIELD_RESOURCES_URL + ", r." + FIELD_RESOURCES_STATUS
+                + ", d." + FIELD_DATA_VALUE + " FROM " + TABLE_RESOURCES + " r LEFT JOIN " + TABLE_DATA
+                + " d ON r." + FIELD_RESOURCES_ID + " = d." + FIELD_DATA_ID + ";", null);
+
+        // Deleting the rows while the cursor walks the table isn't safe; delete them afterwards.
+        final List<String> migratedUrls = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                final String url = cursor.getString(0);
+                final long tileKey = parseTileKey(url);
+                if (tileKey == OfflineResource.NO_TILE_KEY)
+                    continue;
+
+                insertTile.clearBindings();
+                insertTile.bindLong(1, tileKey);
+                insertTile.bindString(2, url);
+                if (!cursor.isNull(1) && !cursor.isNull(2)) {
+                    insertTile.bindLong(3, cursor.getLong(1));
+                    insertTile.bindBlob(4, cursor.getBlob(2));
+                }
+                insertTile.executeInsert();
+                migratedUrls.add(url);
+            }
+        } finally {
+            cursor.close();
+            insertTile.close();
+        }
+
+        try {
+            for (String url : migratedUrls) {
+                deleteResource.bindString(1, url);
+                deleteResource.executeUpdateDelete();
+            }
+        } finally {
+            deleteResource.close();
+        }
+
+        db.execSQL("DELETE FROM " + TABLE_DATA + " WHERE " + FIELD_DATA_ID + " NOT IN (SELECT "
+                + FIELD_RESOURCES_ID + " FROM " + TABLE_RESOURCES + " WHERE " + FIELD_RESOURCES_ID
+                + " IS NOT NULL);");
+        Log.i(TAG, "Migrated " + migratedUrls.size() + " tiles to the " + TABLE_TILES + " table.");
+    }
+
+    /**
+     * @return the packed coordinates of the tile referenced by a v1 tile url, or
+     * {@link OfflineResource#NO_TILE_KEY} if the url isn't a tile url.
+     */
+    static long parseTileKey(String url) {
+        if (url == null)
+            return OfflineResource.NO_TILE_KEY;
+
+        final Matcher matcher = TILE_URL_PATTERN.matcher(url);
+        if (!matcher.find())
+            return OfflineResource.NO_TILE_KEY;
+
+        try {
+            final int zoom = Integer.parseInt(matcher.group(1));
+            final int first = Integer.parseInt(matcher.group(2));
+            final int second = Integer.parseInt(matcher.group(3));
+            return url.contains(ZYX_URL_MARKER)
+                    ? OfflineResource.getTileKey(zoom, second, first)
+                    : OfflineResource.getTileKey(zoom, first, second);
+        } catch (IllegalArgumentException e) {
+            return OfflineResource.NO_TILE_KEY;
+        }
+    }
+
+    /**
+     * @return the stored data of the tile at the given coordinates, or null if it's not available.
+     */
+    public byte[] dataForTile(int zoom, int x, int y) {
+        final SQLiteDatabase db = getReadableDatabase();
+
+        // The query string is constant, so the connection reuses its compiled statement.
+        final Cursor cursor = db.rawQuery(QUERY_TILE_DATA,
+                new String[]{Long.toString(OfflineResource.getTileKey(zoom, x, y))});
+
+        byte[] blob = null;
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                blob = cursor.getBlob(0);
+            }
+            cursor.close();
+        }
+        return blob;
+    }
+
+    /**
+     * Stores the data of a tile fetched outside of a download session, replacing any previous
+     * entry for the tile.
+     */
+    public void saveTile(OfflineResource tile, byte[] data) {
+        final ContentValues values = new ContentValues(4);
+        values.put(FIELD_TILES_KEY, tile.getTileKey());
+        values.put(FIELD_TILES_URL, tile.getUrl());
+        values.put(FIELD_TILES_STATUS, HttpURLConnection.HTTP_OK);
+        values.put(FIELD_TILES_VALUE, data);
+
+        getWritableDatabase().insertWithOnConflict(TABLE_TILES, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
     }
 
     public byte[] dataForURL(String url) {
@@ -77,9 +248,9 @@ public class OfflineDatabaseHandler extends SQLiteOpenHelper {
                 " WHERE " + OfflineDatabaseHandler.FIELD_DATA_ID +
                 "= (SELECT " + OfflineDatabaseHandler.FIELD_RESOURCES_ID + " from " +
                 OfflineDatabaseHandler.TABLE_RESOURCES + " where " + OfflineDatabaseHandler.FIELD_RESOURCES_URL +
-                " = '" + url + "');";
+                " = ?);";
 
-        Cursor cursor = db.rawQuery(query, null);
+        Cursor cursor = db.rawQuery(query, new String[]{url});
 
         byte[] blob = null;
         if (cursor != null) {
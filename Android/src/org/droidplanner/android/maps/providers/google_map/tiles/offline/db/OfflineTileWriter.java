@@ -0,0 +1,206 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.offline.db;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.OfflineResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Single writer for the downloaded tiles (and auxiliary resources) of an offline map database.
+ *
+ * Download workers hand their tiles over through a bounded queue, and block when the writer falls
+ * behind. The writer thread commits the tiles in batches, within one transaction, using compiled
+ * statements.
+ */
+public class OfflineTileWriter {
+
+    public interface Listener {
+        /**
+         * Called from the writer thread after a batch of tiles is committed.
+         */
+        void onTilesWritten(int count);
+
+        void onWriteError(Throwable error);
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final long DEFAULT_FLUSH_INTERVAL = 500; //ms
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final class PendingTile {
+        final OfflineResource resource;
+        final byte[] data;
+
+        PendingTile(OfflineResource resource, byte[] data) {
+            this.resource = resource;
+            this.data = data;
+        }
+    }
+
+    private static final PendingTile END_OF_STREAM = new PendingTile(null, null);
+
+    private final OfflineDatabaseHandler dbHandler;
+    private final Listener listener;
+    private final int batchSize;
+    private final long flushInterval;
+    private final BlockingQueue<PendingTile> queue;
+
+    private final Thread writerThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+            drainQueue();
+        }
+    }, "Offline tile writer");
+
+    private volatile boolean cancelled;
+
+    public OfflineTileWriter(OfflineDatabaseHandler dbHandler, Listener listener) {
+        this(dbHandler, listener, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public OfflineTileWriter(OfflineDatabaseHandler dbHandler, Listener listener, int batchSize,
+                             long flushInterval, int queueCapacity) {
+        this.dbHandler = dbHandler;
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Queues a downloaded resource for writing. Blocks while the queue is full.
+     */
+    public void write(OfflineResource resource, byte[] data) throws InterruptedException {
+        enqueue(new PendingTile(resource, data));
+    }
+
+    /**
+     * Commits the remaining queued tiles, and waits for the writer thread to complete.
+     */
+    public void finish() throws InterruptedException {
+        enqueue(END_OF_STREAM);
+        writerThread.join();
+    }
+
+    /**
+     * Drops the queued tiles, and stops the writer after the batch in progress.
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+        writerThread.interrupt();
+    }
+
+    private void enqueue(PendingTile tile) throws InterruptedException {
+        //Don't block forever if the writer stopped on an error.
+        while (!cancelled && writerThread.isAlive()) {
+            if (queue.offer(tile, flushInterval, TimeUnit.MILLISECONDS))
+                return;
+        }
+    }
+
+    private void drainQueue() {
+        SQLiteStatement updateTile = null;
+        SQLiteStatement insertData = null;
+        SQLiteStatement updateResource = null;
+        final List<PendingTile> batch = new ArrayList<>(batchSize);
+
+        try {
+            final SQLiteDatabase db = dbHandler.getWritableDatabase();
+            updateTile = db.compileStatement("UPDATE " + OfflineDatabaseHandler.TABLE_TILES
+                    + " SET " + OfflineDatabaseHandler.FIELD_TILES_STATUS + "=200, "
+                    + OfflineDatabaseHandler.FIELD_TILES_VALUE + "=? WHERE "
+                    + OfflineDatabaseHandler.FIELD_TILES_KEY + "=?;");
+            insertData = db.compileStatement("INSERT INTO " + OfflineDatabaseHandler.TABLE_DATA
+                    + " (" + OfflineDatabaseHandler.FIELD_DATA_VALUE + ") VALUES (?);");
+            updateResource = db.compileStatement("UPDATE " + OfflineDatabaseHandler.TABLE_RESOURCES
+                    + " SET " + OfflineDatabaseHandler.FIELD_RESOURCES_STATUS + "=200, "
+                    + OfflineDatabaseHandler.FIELD_RESOURCES_ID + "=? WHERE "
+                    + OfflineDatabaseHandler.FIELD_RESOURCES_URL + "=?;");
+
+            boolean endOfStream = false;
+            while (!endOfStream && !cancelled) {
+                final PendingTile first = queue.take();
+                if (first == END_OF_STREAM)
+                    break;
+
+                batch.add(first);
+                final long deadline = System.currentTimeMillis() + flushInterval;
+                while (batch.size() < batchSize) {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0)
+                        break;
+
+                    final PendingTile next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null)
+                        break;
+
+                    if (next == END_OF_STREAM) {
+                        endOfStream = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(db, updateTile, insertData, updateResource, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Timber.d("Offline tile writer interrupted.");
+        } catch (SQLException | IllegalStateException e) {
+            Timber.e(e, "Error while saving downloaded tiles to the database.");
+            cancelled = true;
+            queue.clear();
+            if (listener != null)
+                listener.onWriteError(e);
+        } finally {
+            if (updateTile != null)
+                updateTile.close();
+            if (insertData != null)
+                insertData.close();
+            if (updateResource != null)
+                updateResource.close();
+        }
+    }
+
+    private void commit(SQLiteDatabase db, SQLiteStatement updateTile, SQLiteStatement insertData,
+                        SQLiteStatement updateResource, List<PendingTile> batch) {
+        db.beginTransaction();
+        try {
+            for (PendingTile tile : batch) {
+                if (tile.resource.isTile()) {
+                    updateTile.bindBlob(1, tile.data);
+                    updateTile.bindLong(2, tile.resource.getTileKey());
+                    updateTile.executeUpdateDelete();
+                    continue;
+                }
+
+                insertData.bindBlob(1, tile.data);
+                final long rowId = insertData.executeInsert();
+
+                updateResource.bindLong(1, rowId);
+                updateResource.bindString(2, tile.resource.getUrl());
+                updateResource.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (listener != null)
+            listener.onTilesWritten(batch.size());
+    }
+}
@@ -6,6 +6,8 @@ import com.google.android.gms.analytics.HitBuilders;
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.drone.attribute.error.ErrorType;
 
+import org.droidplanner.android.events.DroneEventBus;
+import org.droidplanner.android.events.FlightJournal;
 import org.droidplanner.android.utils.analytics.GAUtils;
 
 /**
@@ -44,11 +46,11 @@ public class NotificationHandler {
 
     private final Context context;
 
-    public NotificationHandler(Context context, Drone drone) {
+    public NotificationHandler(Context context, Drone drone, DroneEventBus eventBus, FlightJournal flightJournal) {
         this.context = context;
 
-        mTtsNotification = new TTSNotificationProvider(context, drone);
-        mStatusBarNotification = new StatusBarNotificationProvider(context, drone);
+        mTtsNotification = new TTSNotificationProvider(context, drone, eventBus, flightJournal);
+        mStatusBarNotification = new StatusBarNotificationProvider(context, drone, eventBus);
         mBeepNotification = new EmergencyBeepNotificationProvider(context);
     }
 
@@ -1,14 +1,12 @@
 package org.droidplanner.android.notifications;
 
 import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.NotificationManagerCompat;
-import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
 
 import com.o3dr.android.client.Drone;
@@ -26,6 +24,7 @@ import com.o3dr.services.android.lib.util.SpannableUtils;
 import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
 import org.droidplanner.android.activities.FlightActivity;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 import org.droidplanner.android.utils.unit.UnitManager;
@@ -88,10 +87,12 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
     private final DroidPlannerPrefs mAppPrefs;
 
     private final Drone drone;
+    private final DroneEventBus eventBus;
 
-    StatusBarNotificationProvider(Context context, Drone api) {
+    StatusBarNotificationProvider(Context context, Drone api, DroneEventBus eventBus) {
         mContext = context;
         this.drone = api;
+        this.eventBus = eventBus;
         mAppPrefs = DroidPlannerPrefs.getInstance(context);
 
         mNotificationIntent = PendingIntent.getActivity(mContext, 0, new Intent(mContext,
@@ -126,7 +127,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
 
         showNotification();
 
-        LocalBroadcastManager.getInstance(mContext).registerReceiver(eventReceiver, eventFilter);
+        eventBus.subscribe(eventSubscriber, DroneEventBus.Lane.BACKGROUND, EVENTS_MAX_RATE, EVENTS);
     }
 
     /**
@@ -134,7 +135,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
      */
     @Override
     public void onTerminate() {
-        LocalBroadcastManager.getInstance(mContext).unregisterReceiver(eventReceiver);
+        eventBus.unsubscribe(eventSubscriber);
 
         mInboxBuilder = null;
 
@@ -153,26 +154,28 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         mHandler.postDelayed(removeNotification, 2000L);
     }
 
-    private static final IntentFilter eventFilter = new IntentFilter();
-
-    static {
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.GPS_COUNT);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
-        eventFilter.addAction(AttributeEvent.SIGNAL_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.TYPE_UPDATED);
-    }
+    /**
+     * The notification is a status summary, so it's updated in the background lane.
+     */
+    private static final String[] EVENTS = {
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.HOME_UPDATED,
+            AttributeEvent.SIGNAL_UPDATED,
+            AttributeEvent.STATE_UPDATED,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.TYPE_UPDATED
+    };
+
+    private static final float EVENTS_MAX_RATE = 1f; //hz
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onDroneEvent(String event, Bundle extras) {
             boolean showNotification = true;
-            final String action = intent.getAction();
-            switch (action) {
+            switch (event) {
 
                 case AttributeEvent.GPS_POSITION:
                     updateHome(drone);
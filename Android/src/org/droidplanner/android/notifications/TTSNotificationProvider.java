@@ -6,6 +6,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.TextToSpeech.OnInitListener;
@@ -27,6 +28,8 @@ import com.o3dr.services.android.lib.drone.property.State;
 import com.o3dr.services.android.lib.drone.property.VehicleMode;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.events.DroneEventBus;
+import org.droidplanner.android.events.FlightJournal;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
@@ -62,37 +65,48 @@ public class TTSNotificationProvider implements OnInitListener,
     public static final String ACTION_SPEAK_MESSAGE = CLAZZ_NAME + ".ACTION_SPEAK_MESSAGE";
     public static final String EXTRA_MESSAGE_TO_SPEAK = "extra_message_to_speak";
 
-    private final static IntentFilter eventFilter = new IntentFilter();
-
-    static {
-        eventFilter.addAction(AttributeEvent.STATE_ARMING);
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.MISSION_SENT);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.MISSION_RECEIVED);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_FIRST);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_TIMEOUT);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_RESTORED);
-        eventFilter.addAction(AttributeEvent.MISSION_ITEM_UPDATED);
-        eventFilter.addAction(AttributeEvent.FOLLOW_START);
-        eventFilter.addAction(AttributeEvent.AUTOPILOT_ERROR);
-        eventFilter.addAction(AttributeEvent.ALTITUDE_UPDATED);
-        eventFilter.addAction(AttributeEvent.SIGNAL_WEAK);
-        eventFilter.addAction(AttributeEvent.WARNING_NO_GPS);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
-    }
+    /**
+     * Events announced as soon as they happen.
+     */
+    private static final String[] CRITICAL_EVENTS = {
+            AttributeEvent.STATE_ARMING,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.HEARTBEAT_FIRST,
+            AttributeEvent.HEARTBEAT_TIMEOUT,
+            AttributeEvent.HEARTBEAT_RESTORED,
+            AttributeEvent.AUTOPILOT_ERROR,
+            AttributeEvent.SIGNAL_WEAK,
+            AttributeEvent.WARNING_NO_GPS
+    };
+
+    private static final String[] NORMAL_EVENTS = {
+            AttributeEvent.MISSION_SENT,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.MISSION_RECEIVED,
+            AttributeEvent.MISSION_ITEM_UPDATED,
+            AttributeEvent.FOLLOW_START,
+            AttributeEvent.HOME_UPDATED
+    };
+
+    /**
+     * Telemetry only checked against the warning thresholds, which doesn't need the full rate.
+     */
+    private static final String[] TELEMETRY_EVENTS = {
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.ALTITUDE_UPDATED
+    };
+
+    private static final float TELEMETRY_EVENTS_MAX_RATE = 1f; //hz
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onDroneEvent(String event, Bundle extras) {
             if (tts == null)
                 return;
 
-            final String action = intent.getAction();
             State droneState = drone.getAttribute(AttributeType.STATE);
 
-            switch (action) {
+            switch (event) {
                 case AttributeEvent.STATE_ARMING:
                     if (droneState != null)
                         speakArmedState(droneState.isArmed());
@@ -145,7 +159,7 @@ public class TTSNotificationProvider implements OnInitListener,
                     break;
 
                 case AttributeEvent.MISSION_ITEM_UPDATED:
-                    int currentWaypoint = intent.getIntExtra(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
+                    int currentWaypoint = extras == null ? 0 : extras.getInt(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
                     if (currentWaypoint != 0) {
                         //Zeroth waypoint is the home location.
                         speak(context.getString(R.string.speak_mission_item_updated, currentWaypoint));
@@ -170,7 +184,7 @@ public class TTSNotificationProvider implements OnInitListener,
 
                 case AttributeEvent.AUTOPILOT_ERROR:
                     if (mAppPrefs.getWarningOnAutopilotWarning()) {
-                        String errorId = intent.getStringExtra(AttributeEventExtra.EXTRA_AUTOPILOT_ERROR_ID);
+                        String errorId = extras == null ? null : extras.getString(AttributeEventExtra.EXTRA_AUTOPILOT_ERROR_ID);
                         final ErrorType errorType = ErrorType.getErrorById(errorId);
                         if (errorType != null && errorType != ErrorType.NO_ERROR) {
                             speak(errorType.getLabel(context).toString());
@@ -314,22 +328,28 @@ public class TTSNotificationProvider implements OnInitListener,
     public final Watchdog watchdogCallback = new Watchdog();
 
     private final Drone drone;
+    private final DroneEventBus eventBus;
+    private final FlightJournal flightJournal;
 
-    TTSNotificationProvider(Context context, Drone drone) {
+    TTSNotificationProvider(Context context, Drone drone, DroneEventBus eventBus, FlightJournal flightJournal) {
         this.context = context;
         this.drone = drone;
+        this.eventBus = eventBus;
+        this.flightJournal = flightJournal;
         mAppPrefs =  DroidPlannerPrefs.getInstance(context);
     }
 
     @Override
     public void init() {
         tts = new TextToSpeech(context, this);
-        LocalBroadcastManager.getInstance(context).registerReceiver(eventReceiver, eventFilter);
+        eventBus.subscribe(eventSubscriber, DroneEventBus.Lane.CRITICAL, 0, CRITICAL_EVENTS);
+        eventBus.subscribe(eventSubscriber, NORMAL_EVENTS);
+        eventBus.subscribe(eventSubscriber, DroneEventBus.Lane.NORMAL, TELEMETRY_EVENTS_MAX_RATE, TELEMETRY_EVENTS);
     }
 
     @Override
     public void onTerminate() {
-        LocalBroadcastManager.getInstance(context).unregisterReceiver(eventReceiver);
+        eventBus.unsubscribe(eventSubscriber);
 
         handler.removeCallbacks(watchdogCallback);
         speak(context.getString(R.string.speak_disconected));
@@ -434,7 +454,7 @@ public class TTSNotificationProvider implements OnInitListener,
                 }
 
                 tts.speak(string, queueType, mTtsParams);
-
+                flightJournal.recordTtsAlert(string, PERIODIC_STATUS_UTTERANCE_ID.equals(utteranceId));
             }
         }
     }
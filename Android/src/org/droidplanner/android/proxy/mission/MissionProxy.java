@@ -30,6 +30,7 @@ import com.o3dr.services.android.lib.drone.mission.item.spatial.SplineWaypoint;
 import com.o3dr.services.android.lib.drone.mission.item.spatial.Waypoint;
 import com.o3dr.services.android.lib.util.MathUtils;
 
+import org.droidplanner.android.events.FlightJournal;
 import org.droidplanner.android.maps.DPMap;
 import org.droidplanner.android.maps.MarkerInfo;
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
@@ -44,7 +45,10 @@ import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is used as a wrapper to {@link com.o3dr.services.android.lib.drone.mission.Mission}
@@ -54,7 +58,12 @@ public class MissionProxy implements DPMap.PathSource {
 
     public static final String ACTION_MISSION_PROXY_UPDATE = Utils.PACKAGE_NAME + ".ACTION_MISSION_PROXY_UPDATE";
 
-    private static final int UNDO_BUFFER_SIZE = 30;
+    /**
+     * Depth of the undo and redo histories. The history states share the snapshots of the mission
+     * items that weren't modified between them, so each state only costs its array of item
+     * references, and the snapshots of the items its edit modified.
+     */
+    private static final int UNDO_BUFFER_SIZE = 200;
 
     private static final IntentFilter eventFilter = new IntentFilter();
 
@@ -80,7 +89,19 @@ public class MissionProxy implements DPMap.PathSource {
     private final Drone.OnMissionItemsBuiltCallback missionItemsBuiltListener = new Drone.OnMissionItemsBuiltCallback() {
         @Override
         public void onMissionItemsBuilt(MissionItem.ComplexItem[] complexItems) {
-            notifyMissionUpdate(false);
+            boolean foundItems = false;
+            for (MissionItem.ComplexItem complexItem : complexItems) {
+                MissionItemProxy itemProxy = findItemProxy(complexItem);
+                if (itemProxy != null) {
+                    itemProxy.invalidate();
+                    foundItems = true;
+                }
+            }
+
+            if (foundItems)
+                updateMission(false);
+            else
+                notifyMissionUpdate(false);
         }
     };
 
@@ -89,18 +110,46 @@ public class MissionProxy implements DPMap.PathSource {
      */
     private final List<MissionItemProxy> missionItemProxies = new ArrayList<MissionItemProxy>();
 
+    /**
+     * Index of each mission item render in {@link #missionItemProxies}. Appends and swaps update it
+     * in place, other structural changes invalidate it until the next lookup.
+     */
+    private final HashMap<MissionItemProxy, Integer> itemIndexes = new HashMap<>();
+    private boolean itemIndexesValid = true;
+
+    /**
+     * Mission path geometry, rebuilt from the memoized item paths on the first access following a
+     * mission update. Along with the path points, it holds the cumulative 2D and 3D path length at
+     * each point, and the index of the last path point of each mission item render.
+     */
+    private List<LatLong> pathPoints;
+    private double[] pathLengths2D = new double[0];
+    private double[] pathLengths3D = new double[0];
+    private final HashMap<MissionItemProxy, Integer> itemPathEnds = new HashMap<>();
+
+    /**
+     * Spline paths from the last geometry build, keyed by their control points.
+     */
+    private HashMap<List<LatLong>, List<LatLong>> splinePaths = new HashMap<>();
+
     private final LocalBroadcastManager lbm;
     private final DroidPlannerPrefs dpPrefs;
+    private final FlightJournal flightJournal;
     private Drone drone;
 
-    private final CircularArray<Mission> undoBuffer = new CircularArray<>(UNDO_BUFFER_SIZE);
+    /**
+     * Mission history. Each state holds the snapshots of the mission items, in mission order.
+     */
+    private final CircularArray<MissionItem[]> undoBuffer = new CircularArray<>(UNDO_BUFFER_SIZE);
+    private final CircularArray<MissionItem[]> redoBuffer = new CircularArray<>(UNDO_BUFFER_SIZE);
 
-    private Mission currentMission;
+    private MissionItem[] currentState;
     public MissionSelection selection = new MissionSelection();
 
-    public MissionProxy(Context context, Drone drone) {
+    public MissionProxy(Context context, Drone drone, FlightJournal flightJournal) {
         this.drone = drone;
-        this.currentMission = generateMission(true);
+        this.flightJournal = flightJournal;
+        this.currentState = new MissionItem[0];
         lbm = LocalBroadcastManager.getInstance(context);
         lbm.registerReceiver(eventReceiver, eventFilter);
 
@@ -123,22 +172,134 @@ public class MissionProxy implements DPMap.PathSource {
         if (!canUndoMission())
             throw new IllegalStateException("Invalid state for mission undoing.");
 
-        Mission previousMission = undoBuffer.popLast();
-        load(previousMission, false);
+        MissionItem[] previousState = undoBuffer.popLast();
+        pushState(redoBuffer, currentState);
+        restoreState(previousState);
     }
 
+    public boolean canRedoMission() {
+        return !redoBuffer.isEmpty();
+    }
+
+    public void redoMission() {
+        if (!canRedoMission())
+            throw new IllegalStateException("Invalid state for mission redoing.");
+
+        MissionItem[] nextState = redoBuffer.popLast();
+        pushState(undoBuffer, currentState);
+        restoreState(nextState);
+    }
+
+    private static void pushState(CircularArray<MissionItem[]> buffer, MissionItem[] state) {
+        if (buffer.size() >= UNDO_BUFFER_SIZE)
+            buffer.popFirst();
+
+        buffer.addLast(state);
+    }
+
+    /**
+     * @return the current state of the mission. Only the items modified since the last state
+     * are copied.
+     */
+    private MissionItem[] generateState() {
+        MissionItem[] state = new MissionItem[missionItemProxies.size()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = missionItemProxies.get(i).getSnapshot();
+        }
+        return state;
+    }
+
+    private void restoreState(MissionItem[] state) {
+        resetItems();
+        for (MissionItem snapshot : state) {
+            appendItem(new MissionItemProxy(this, snapshot.clone(), snapshot));
+        }
+
+        selection.notifySelectionUpdate();
+        updateMission(false);
+    }
+
+    private MissionItemProxy findItemProxy(Object missionItem) {
+        for (MissionItemProxy itemProxy : missionItemProxies) {
+            if (itemProxy.getMissionItem() == missionItem)
+                return itemProxy;
+        }
+        return null;
+    }
+
+    /**
+     * Notifies that some of the mission items were modified.
+     *
+     * @param saveMission true to store the previous state of the mission in the undo buffer.
+     */
     public void notifyMissionUpdate(boolean saveMission) {
-        if (saveMission && currentMission != null) {
+        for (MissionItemProxy itemProxy : missionItemProxies) {
+            itemProxy.invalidate();
+        }
+
+        updateMission(saveMission);
+    }
+
+    /**
+     * Notifies that the given mission item was modified. Only the path segments around that item
+     * are recomputed, and only that item is copied into the mission history.
+     *
+     * @param item        the modified mission item render
+     * @param saveMission true to store the previous state of the mission in the undo buffer.
+     */
+    public void notifyMissionItemUpdate(MissionItemProxy item, boolean saveMission) {
+        item.invalidate();
+        updateMission(saveMission);
+    }
+
+    private void updateMission(boolean saveMission) {
+        invalidatePathGeometry();
+
+        // The markers display the item order.
+        final int itemsCount = missionItemProxies.size();
+        for (int i = 0; i < itemsCount; i++) {
+            missionItemProxies.get(i).updateMarkersOrder(i + 1);
+        }
+
+        if (saveMission && currentState != null) {
             //Store the current state of the mission.
-            undoBuffer.addLast(currentMission);
+            pushState(undoBuffer, currentState);
+            redoBuffer.clear();
         }
 
-        currentMission = generateMission(true);
+        currentState = generateState();
         lbm.sendBroadcast(new Intent(ACTION_MISSION_PROXY_UPDATE));
     }
 
     public List<MissionItemProxy> getItems() {
-        return missionItemProxies;
+        return Collections.unmodifiableList(missionItemProxies);
+    }
+
+    private void invalidateItemIndexes() {
+        itemIndexesValid = false;
+    }
+
+    private void appendItem(MissionItemProxy item) {
+        missionItemProxies.add(item);
+        if (itemIndexesValid)
+            itemIndexes.put(item, missionItemProxies.size() - 1);
+    }
+
+    /**
+     * @return the index of the given item in the mission, or -1 if it doesn't belong to it.
+     */
+    private int indexOf(MissionItemProxy item) {
+        if (!itemIndexesValid) {
+            itemIndexes.clear();
+            final int itemsCount = missionItemProxies.size();
+            for (int i = 0; i < itemsCount; i++) {
+                itemIndexes.put(missionItemProxies.get(i), i);
+            }
+            itemIndexesValid = true;
+        }
+
+        final Integer index = itemIndexes.get(item);
+        return index == null ? -1 : index;
     }
 
     private MissionItem[] getMissionItems() {
@@ -173,33 +334,28 @@ public class MissionProxy implements DPMap.PathSource {
      * object.
      */
     public void load(Mission mission) {
-        load(mission, true);
-    }
-
-    private void load(Mission mission, boolean isNew) {
         if (mission == null)
             return;
 
-        if (isNew) {
-            currentMission = null;
-            clearUndoBuffer();
-        }
-
-        selection.mSelectedItems.clear();
-        missionItemProxies.clear();
+        currentState = null;
+        undoBuffer.clear();
+        redoBuffer.clear();
 
+        resetItems();
         for (MissionItem item : mission.getMissionItems()) {
-            missionItemProxies.add(new MissionItemProxy(this, item));
+            appendItem(new MissionItemProxy(this, item));
         }
 
         selection.notifySelectionUpdate();
 
-        notifyMissionUpdate(isNew);
+        updateMission(true);
     }
 
-    private void clearUndoBuffer(){
-        while(!undoBuffer.isEmpty())
-            undoBuffer.popLast();
+    private void resetItems() {
+        selection.mSelectedItems.clear();
+        missionItemProxies.clear();
+        itemIndexes.clear();
+        itemIndexesValid = true;
     }
 
     /**
@@ -209,7 +365,7 @@ public class MissionProxy implements DPMap.PathSource {
      * @return true if this mission render contains the passed argument
      */
     public boolean contains(MissionItemProxy item) {
-        return missionItemProxies.contains(item);
+        return indexOf(item) != -1;
     }
 
     /**
@@ -218,11 +374,15 @@ public class MissionProxy implements DPMap.PathSource {
      * @param item item to remove
      */
     public void removeItem(MissionItemProxy item) {
-        missionItemProxies.remove(item);
+        final int index = indexOf(item);
+        if (index != -1) {
+            missionItemProxies.remove(index);
+            invalidateItemIndexes();
+        }
         selection.mSelectedItems.remove(item);
 
         selection.notifySelectionUpdate();
-        notifyMissionUpdate();
+        updateMission(true);
     }
 
     /**
@@ -291,10 +451,10 @@ public class MissionProxy implements DPMap.PathSource {
 
     private void addMissionItems(List<MissionItem> missionItems) {
         for (MissionItem missionItem : missionItems) {
-            missionItemProxies.add(new MissionItemProxy(this, missionItem));
+            appendItem(new MissionItemProxy(this, missionItem));
         }
 
-        notifyMissionUpdate();
+        updateMission(true);
     }
 
     public void addSpatialWaypoint(BaseSpatialItem spatialItem, LatLong point) {
@@ -328,13 +488,14 @@ public class MissionProxy implements DPMap.PathSource {
     }
 
     private void addMissionItem(MissionItem missionItem) {
-        missionItemProxies.add(new MissionItemProxy(this, missionItem));
-        notifyMissionUpdate();
+        appendItem(new MissionItemProxy(this, missionItem));
+        updateMission(true);
     }
 
     private void addMissionItem(int index, MissionItem missionItem) {
         missionItemProxies.add(index, new MissionItemProxy(this, missionItem));
-        notifyMissionUpdate();
+        invalidateItemIndexes();
+        updateMission(true);
     }
 
     public void addTakeoff() {
@@ -398,7 +559,7 @@ public class MissionProxy implements DPMap.PathSource {
      * @return order of the given argument
      */
     public int getOrder(MissionItemProxy item) {
-        return missionItemProxies.indexOf(item) + 1;
+        return indexOf(item) + 1;
     }
 
     /**
@@ -451,19 +612,20 @@ public class MissionProxy implements DPMap.PathSource {
      * @param newItem new mission item render
      */
     public void replace(MissionItemProxy oldItem, MissionItemProxy newItem) {
-        int index = missionItemProxies.indexOf(oldItem);
+        int index = indexOf(oldItem);
         if (index == -1)
             return;
 
-        missionItemProxies.remove(index);
-        missionItemProxies.add(index, newItem);
+        missionItemProxies.set(index, newItem);
+        itemIndexes.remove(oldItem);
+        itemIndexes.put(newItem, index);
 
         if (selection.selectionContains(oldItem)) {
             selection.removeItemFromSelection(oldItem);
             selection.addToSelection(newItem);
         }
 
-        notifyMissionUpdate();
+        updateMission(true);
     }
 
     public void replaceAll(List<Pair<MissionItemProxy, List<MissionItemProxy>>> oldNewList) {
@@ -481,7 +643,7 @@ public class MissionProxy implements DPMap.PathSource {
 
         for (int i = 0; i < pairSize; i++) {
             MissionItemProxy oldItem = oldNewList.get(i).first;
-            int index = missionItemProxies.indexOf(oldItem);
+            int index = indexOf(oldItem);
             if (index == -1) {
                 continue;
             }
@@ -490,6 +652,7 @@ public class MissionProxy implements DPMap.PathSource {
 
             List<MissionItemProxy> newItems = oldNewList.get(i).second;
             missionItemProxies.addAll(index, newItems);
+            invalidateItemIndexes();
 
             if (selection.selectionContains(oldItem)) {
                 selectionsToRemove.add(oldItem);
@@ -501,7 +664,7 @@ public class MissionProxy implements DPMap.PathSource {
         selection.removeItemsFromSelection(selectionsToRemove);
         selection.addToSelection(itemsToSelect);
 
-        notifyMissionUpdate();
+        updateMission(true);
     }
 
     /**
@@ -509,6 +672,8 @@ public class MissionProxy implements DPMap.PathSource {
      */
     public void reverse() {
         Collections.reverse(missionItemProxies);
+        invalidateItemIndexes();
+        invalidatePathGeometry();
     }
 
     public void swap(int fromIndex, int toIndex) {
@@ -517,13 +682,19 @@ public class MissionProxy implements DPMap.PathSource {
 
         missionItemProxies.set(toIndex, from);
         missionItemProxies.set(fromIndex, to);
-        notifyMissionUpdate();
+        if (itemIndexesValid) {
+            itemIndexes.put(from, toIndex);
+            itemIndexes.put(to, fromIndex);
+        }
+        updateMission(true);
     }
 
     public void clear() {
         selection.clearSelection();
         missionItemProxies.clear();
-        notifyMissionUpdate();
+        itemIndexes.clear();
+        itemIndexesValid = true;
+        updateMission(true);
     }
 
     public double getAltitudeDiffFromPreviousItem(MissionItemProxy waypointRender) {
@@ -535,7 +706,7 @@ public class MissionProxy implements DPMap.PathSource {
         if (!(waypoint instanceof MissionItem.SpatialItem))
             return 0;
 
-        int index = missionItemProxies.indexOf(waypointRender);
+        int index = indexOf(waypointRender);
         if (index == -1 || index == 0)
             return 0;
 
@@ -556,7 +727,7 @@ public class MissionProxy implements DPMap.PathSource {
         if (!(waypoint instanceof MissionItem.SpatialItem))
             return 0;
 
-        int index = missionItemProxies.indexOf(waypointRender);
+        int index = indexOf(waypointRender);
         if (index == -1 || index == 0)
             return 0;
 
@@ -569,10 +740,27 @@ public class MissionProxy implements DPMap.PathSource {
         return 0;
     }
 
+    private void invalidatePathGeometry() {
+        pathPoints = null;
+    }
+
     @Override
     public List<LatLong> getPathPoints() {
+        if (pathPoints == null) {
+            buildPathGeometry();
+        }
+
+        return pathPoints;
+    }
+
+    private void buildPathGeometry() {
+        itemPathEnds.clear();
         if (missionItemProxies.isEmpty()) {
-            return Collections.emptyList();
+            splinePaths.clear();
+            pathPoints = Collections.emptyList();
+            pathLengths2D = new double[0];
+            pathLengths3D = new double[0];
+            return;
         }
 
         // Partition the mission items into spline/non-spline buckets.
@@ -633,6 +821,7 @@ public class MissionProxy implements DPMap.PathSource {
         bucketsList.add(new Pair<>(isSpline, currentBucket));
 
         List<LatLong> pathPoints = new ArrayList<>();
+        HashMap<List<LatLong>, List<LatLong>> splinePaths = new HashMap<>();
         LatLong lastPoint = null;
 
         for (Pair<Boolean, List<MissionItemProxy>> bucketEntry : bucketsList) {
@@ -641,6 +830,7 @@ public class MissionProxy implements DPMap.PathSource {
             if (bucketEntry.first) {
                 List<LatLong> splinePoints = new ArrayList<>();
                 int bucketSize = bucket.size();
+                int[] controlPointIndexes = new int[bucketSize];
                 for(int i = 0; i < bucketSize; i++){
                     MissionItemProxy missionItemProxy = bucket.get(i);
                     MissionItemType missionItemType = missionItemProxy.getMissionItem().getType();
@@ -662,12 +852,27 @@ public class MissionProxy implements DPMap.PathSource {
                             break;
                     }
 
+                    controlPointIndexes[i] = splinePoints.size() - 1;
                     if (!splinePoints.isEmpty()) {
                         lastPoint = splinePoints.get(splinePoints.size() - 1);
                     }
                 }
 
-                pathPoints.addAll(MathUtils.SplinePath.process(splinePoints));
+                // Only recompute the spline if its control points changed since the last build.
+                List<LatLong> splineKey = new ArrayList<>(splinePoints.size());
+                for (LatLong point : splinePoints) {
+                    splineKey.add(new LatLong(point.getLatitude(), point.getLongitude()));
+                }
+
+                List<LatLong> splinePath = this.splinePaths.get(splineKey);
+                if (splinePath == null) {
+                    splinePath = MathUtils.SplinePath.process(splinePoints);
+                }
+                splinePaths.put(splineKey, splinePath);
+
+                int splineStart = pathPoints.size();
+                pathPoints.addAll(splinePath);
+                mapSplineItemsToPath(bucket, splinePoints, controlPointIndexes, pathPoints, splineStart);
             }
             else {
                 for (MissionItemProxy missionItemProxy : bucket) {
@@ -675,18 +880,74 @@ public class MissionProxy implements DPMap.PathSource {
 
                     if (!pathPoints.isEmpty()) {
                         lastPoint = pathPoints.get(pathPoints.size() - 1);
+                        itemPathEnds.put(missionItemProxy, pathPoints.size() - 1);
                     }
                 }
             }
         }
 
-        return pathPoints;
+        this.splinePaths = splinePaths;
+        this.pathPoints = Collections.unmodifiableList(pathPoints);
+        computePathLengths(pathPoints);
+    }
+
+    /**
+     * The spline path is resampled, so each spline item is mapped to the path point closest to its
+     * control point. Items shared with the preceding bucket keep the path end they already have.
+     */
+    private void mapSplineItemsToPath(List<MissionItemProxy> bucket, List<LatLong> splinePoints,
+                                      int[] controlPointIndexes, List<LatLong> pathPoints, int splineStart) {
+        int searchStart = splineStart;
+        int pathSize = pathPoints.size();
+        for (int i = 0; i < bucket.size() && searchStart < pathSize; i++) {
+            MissionItemProxy missionItemProxy = bucket.get(i);
+            if (controlPointIndexes[i] == -1 || itemPathEnds.containsKey(missionItemProxy))
+                continue;
+
+            LatLong controlPoint = splinePoints.get(controlPointIndexes[i]);
+            int closestIndex = searchStart;
+            double closestDistance = Double.MAX_VALUE;
+            for (int j = searchStart; j < pathSize; j++) {
+                double distance = MathUtils.getDistance2D(controlPoint, pathPoints.get(j));
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closestIndex = j;
+                }
+            }
+
+            itemPathEnds.put(missionItemProxy, closestIndex);
+            searchStart = closestIndex;
+        }
+    }
+
+    /**
+     * Computes the cumulative path lengths. Path points without altitude are assumed to be at the
+     * altitude of the point preceding them.
+     */
+    private void computePathLengths(List<LatLong> pathPoints) {
+        int pathSize = pathPoints.size();
+        pathLengths2D = new double[pathSize];
+        pathLengths3D = new double[pathSize];
+
+        double previousAltitude = 0;
+        for (int i = 0; i < pathSize; i++) {
+            LatLong point = pathPoints.get(i);
+            double altitude = point instanceof LatLongAlt ? ((LatLongAlt) point).getAltitude() : previousAltitude;
+            if (i > 0) {
+                double distance2D = MathUtils.getDistance2D(pathPoints.get(i - 1), point);
+                double altitudeDiff = altitude - previousAltitude;
+                pathLengths2D[i] = pathLengths2D[i - 1] + distance2D;
+                pathLengths3D[i] = pathLengths3D[i - 1] + Math.sqrt(distance2D * distance2D + altitudeDiff * altitudeDiff);
+            }
+            previousAltitude = altitude;
+        }
     }
 
     public void removeSelection(MissionSelection missionSelection) {
         missionItemProxies.removeAll(missionSelection.mSelectedItems);
+        invalidateItemIndexes();
         missionSelection.clearSelection();
-        notifyMissionUpdate();
+        updateMission(true);
     }
 
     public void move(MissionItemProxy item, LatLong position) {
@@ -701,7 +962,7 @@ public class MissionProxy implements DPMap.PathSource {
                         missionItemsBuiltListener);
             }
 
-            notifyMissionUpdate();
+            notifyMissionItemUpdate(item, true);
         }
     }
 
@@ -712,7 +973,12 @@ public class MissionProxy implements DPMap.PathSource {
     public void movePolygonPoint(Survey survey, int index, LatLong position) {
         survey.getPolygonPoints().get(index).set(position);
         this.drone.buildMissionItemsAsync(new Survey[]{survey}, missionItemsBuiltListener);
-        notifyMissionUpdate();
+
+        MissionItemProxy itemProxy = findItemProxy(survey);
+        if (itemProxy != null)
+            notifyMissionItemUpdate(itemProxy, true);
+        else
+            updateMission(true);
     }
 
     public static List<LatLong> getVisibleCoords(List<MissionItemProxy> mipList) {
@@ -760,6 +1026,12 @@ public class MissionProxy implements DPMap.PathSource {
 
         int missionItemsCount = missionItemProxies.size();
 
+        final int[] itemTypes = new int[missionItemsCount];
+        for (int i = 0; i < missionItemsCount; i++) {
+            itemTypes[i] = missionItemProxies.get(i).getMissionItem().getType().ordinal();
+        }
+        flightJournal.recordMissionUpload(getMissionLength(), itemTypes);
+
         String missionItemsList = "[";
         if (missionItemsCount > 0) {
             boolean isFirst = true;
@@ -790,28 +1062,57 @@ public class MissionProxy implements DPMap.PathSource {
         GAUtils.sendEvent(eventBuilder);
     }
 
+    /**
+     * @return the 2D length of the mission path.
+     */
     public double getMissionLength() {
-        List<LatLong> points = getPathPoints();
-        double length = 0;
-        if (points.size() > 1) {
-            for (int i = 1; i < points.size(); i++) {
-                length += MathUtils.getDistance2D(points.get(i - 1), points.get(i));
-            }
-        }
+        int pathSize = getPathPoints().size();
+        return pathSize == 0 ? 0 : pathLengths2D[pathSize - 1];
+    }
 
-        return length;
+    /**
+     * @return the 3D length of the mission path.
+     */
+    public double getMissionLength3D() {
+        int pathSize = getPathPoints().size();
+        return pathSize == 0 ? 0 : pathLengths3D[pathSize - 1];
+    }
+
+    /**
+     * @param item mission item render
+     * @return the 2D length of the mission path from its start to the given item, or 0 if the item
+     * is not on the mission path.
+     */
+    public double getPathLengthToItem(MissionItemProxy item) {
+        getPathPoints();
+        Integer pathEnd = itemPathEnds.get(item);
+        return pathEnd == null ? 0 : pathLengths2D[pathEnd];
+    }
+
+    /**
+     * @param item mission item render
+     * @return the 3D length of the mission path from its start to the given item, or 0 if the item
+     * is not on the mission path.
+     */
+    public double getPathLength3DToItem(MissionItemProxy item) {
+        getPathPoints();
+        Integer pathEnd = itemPathEnds.get(item);
+        return pathEnd == null ? 0 : pathLengths3D[pathEnd];
     }
 
     public void makeAndUploadDronie(Drone drone) {
         drone.generateDronie();
     }
 
-    public List<List<LatLong>> getPolygonsPath() {
-        ArrayList<List<LatLong>> polygonPaths = new ArrayList<List<LatLong>>();
+    /**
+     * @return the survey polygons, keyed by their mission item render.
+     */
+    public Map<MissionItemProxy, List<LatLong>> getPolygonsPath() {
+        Map<MissionItemProxy, List<LatLong>> polygonPaths = new LinkedHashMap<>();
         for (MissionItemProxy itemProxy : missionItemProxies) {
             MissionItem item = itemProxy.getMissionItem();
             if (item instanceof Survey) {
-                polygonPaths.add(((Survey) item).getPolygonPoints());
+                polygonPaths.put(itemProxy, ((Survey) item).getPolygonPoints());
             }
         }
         return polygonPaths;
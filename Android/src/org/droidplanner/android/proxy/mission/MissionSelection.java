@@ -1,7 +1,9 @@
 package org.droidplanner.android.proxy.mission;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
 
@@ -23,6 +25,11 @@ public class MissionSelection {
 	 */
 	public List<MissionSelection.OnSelectionUpdateListener> mSelectionsListeners = new ArrayList<MissionSelection.OnSelectionUpdateListener>();
 
+	/**
+	 * Selected items as of the last update notification.
+	 */
+	private final Set<MissionItemProxy> mNotifiedItems = new HashSet<MissionItemProxy>();
+
 	/**
 	 * Removes the given mission item render from the selected list.
 	 * 
@@ -126,6 +133,19 @@ public class MissionSelection {
 	}
 
 	public void notifySelectionUpdate() {
+		// Only the markers of the items whose selection changed are re-rendered.
+		final Set<MissionItemProxy> selectedItems = new HashSet<MissionItemProxy>(mSelectedItems);
+		for (MissionItemProxy item : mNotifiedItems) {
+			if (!selectedItems.contains(item))
+				item.invalidateMarkers();
+		}
+		for (MissionItemProxy item : selectedItems) {
+			if (!mNotifiedItems.contains(item))
+				item.invalidateMarkers();
+		}
+		mNotifiedItems.clear();
+		mNotifiedItems.addAll(selectedItems);
+
 		for (MissionSelection.OnSelectionUpdateListener listener : mSelectionsListeners)
 			listener.onSelectionUpdate(mSelectedItems);
 	}
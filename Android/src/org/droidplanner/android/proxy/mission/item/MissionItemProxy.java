@@ -2,6 +2,7 @@ package org.droidplanner.android.proxy.mission.item;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.mission.MissionItemType;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.mission.item.complex.SplineSurvey;
 import com.o3dr.services.android.lib.drone.mission.item.complex.StructureScanner;
@@ -15,6 +16,7 @@ import org.droidplanner.android.proxy.mission.item.fragments.MissionDetailFragme
 import org.droidplanner.android.proxy.mission.item.markers.MissionItemMarkerInfo;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -27,7 +29,7 @@ public class MissionItemProxy {
     private final Drone.OnMissionItemsBuiltCallback missionItemBuiltListener = new Drone.OnMissionItemsBuiltCallback() {
         @Override
         public void onMissionItemsBuilt(MissionItem.ComplexItem[] complexItems) {
-            mMission.notifyMissionUpdate(false);
+            mMission.notifyMissionItemUpdate(MissionItemProxy.this, false);
         }
     };
 
@@ -52,8 +54,38 @@ public class MissionItemProxy {
      */
     private final long stableId;
 
+    /**
+     * Memoized path for this mission item, along with the previous point it was computed from.
+     */
+    private List<LatLong> cachedPath;
+    private LatLong cachedPathPreviousPoint;
+
+    /**
+     * Copy of the mission item, shared by the mission history states until the item is modified.
+     */
+    private MissionItem snapshot;
+
+    /**
+     * Version of the item markers, bumped whenever their rendering may change.
+     */
+    private int markersVersion;
+
+    /**
+     * Order of the item in the mission, as displayed by its markers.
+     */
+    private int markersOrder;
+
 	public MissionItemProxy(MissionProxy mission, MissionItem missionItem) {
+		this(mission, missionItem, null);
+	}
+
+	/**
+	 * @param snapshot copy of the mission item, which must not be modified. Used to restore the
+	 *                 mission item from the mission history without copying it again.
+	 */
+	public MissionItemProxy(MissionProxy mission, MissionItem missionItem, MissionItem snapshot) {
         this.stableId = System.nanoTime();
+        this.snapshot = snapshot;
 
 		mMission = mission;
 		mMissionItem = missionItem;
@@ -101,9 +133,75 @@ public class MissionItemProxy {
 	 * @param previousPoint
 	 *            Previous point on the path, null if there wasn't a previous
 	 *            point
-	 * @return the set of points/coords making up this mission item.
+	 * @return the set of points/coords making up this mission item. The returned list is memoized
+	 * until {@link #invalidate()} is called, and must not be modified.
 	 */
 	public List<LatLong> getPath(LatLong previousPoint) {
+		if (cachedPath == null
+				|| (mMissionItem.getType() == MissionItemType.CIRCLE && !isSamePoint(previousPoint, cachedPathPreviousPoint))) {
+			cachedPath = Collections.unmodifiableList(generatePath(previousPoint));
+			cachedPathPreviousPoint = previousPoint == null
+					? null
+					: new LatLong(previousPoint.getLatitude(), previousPoint.getLongitude());
+		}
+
+		return cachedPath;
+	}
+
+	/**
+	 * Discards the memoized path and snapshot, and invalidates the markers. Must be called whenever
+	 * the mission item is modified.
+	 */
+	public void invalidate() {
+		cachedPath = null;
+		cachedPathPreviousPoint = null;
+		snapshot = null;
+		invalidateMarkers();
+	}
+
+	/**
+	 * Bumps the version of the item markers, so the maps sync them on their next update.
+	 */
+	public void invalidateMarkers() {
+		markersVersion = (markersVersion + 1) & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return version of the item markers, never {@link MarkerInfo#VERSION_UNTRACKED}.
+	 */
+	public int getMarkersVersion() {
+		return markersVersion;
+	}
+
+	/**
+	 * Invalidates the item markers if the given order differs from the one they display.
+	 */
+	public void updateMarkersOrder(int order) {
+		if (order != markersOrder) {
+			markersOrder = order;
+			invalidateMarkers();
+		}
+	}
+
+	/**
+	 * @return a copy of the mission item, reused until the item is modified. The returned copy
+	 * must not be modified.
+	 */
+	public MissionItem getSnapshot() {
+		if (snapshot == null) {
+			snapshot = mMissionItem.clone();
+		}
+		return snapshot;
+	}
+
+	private static boolean isSamePoint(LatLong first, LatLong second) {
+		if (first == null || second == null)
+			return first == second;
+
+		return first.getLatitude() == second.getLatitude() && first.getLongitude() == second.getLongitude();
+	}
+
+	private List<LatLong> generatePath(LatLong previousPoint) {
 		List<LatLong> pathPoints = new ArrayList<LatLong>();
 		switch (mMissionItem.getType()) {
 			case LAND:
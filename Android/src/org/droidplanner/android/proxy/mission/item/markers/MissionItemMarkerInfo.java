@@ -88,6 +88,12 @@ public abstract class MissionItemMarkerInfo extends MarkerInfo.SimpleMarkerInfo
                 .getCoordinate();
         coordinate.setLatitude(coord.getLatitude());
         coordinate.setLongitude(coord.getLongitude());
+		mMarkerOrigin.invalidateMarkers();
+	}
+
+	@Override
+	public int getVersion() {
+		return mMarkerOrigin.getMarkersVersion();
 	}
 
 	@Override
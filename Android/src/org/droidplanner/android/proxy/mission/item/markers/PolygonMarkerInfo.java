@@ -49,6 +49,12 @@ public class PolygonMarkerInfo extends MarkerInfo.SimpleMarkerInfo {
 	@Override
 	public void setPosition(LatLong coord) {
 		mPoint = coord;
+		markerOrigin.invalidateMarkers();
+	}
+
+	@Override
+	public int getVersion() {
+		return markerOrigin.getMarkersVersion();
 	}
 	
 	@Override
@@ -7,38 +7,92 @@ import android.util.Log;
 
 import org.droidplanner.android.BuildConfig;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
 
 import timber.log.Timber;
 
 /**
  * Timber Tree to log specific log levels to a file
+ *
+ * The calling threads only copy the log record into a pre-allocated ring buffer; when the buffer is
+ * full, the record is dropped and counted. A writer thread drains the buffer in batches, formats
+ * the records, and writes them through a buffered stream. The log files are rotated past
+ * {@link #MAX_LOG_FILE_SIZE}, and the rotated files are gzipped.
  */
 public class LogToFileTree extends Timber.DebugTree {
-    private static final SimpleDateFormat LOG_DATE_FORMAT = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+
     private static final SimpleDateFormat FILE_DATE_FORMAT = new SimpleDateFormat("yyyy_MM_dd_HH_mm", Locale.US);
 
-    private final LinkedBlockingQueue<String> logQueue = new LinkedBlockingQueue<>();
-    private PrintStream logOutputFile;
-    private Thread dequeueThread;
-    private final AtomicBoolean isRunning = new AtomicBoolean(false);
-    private final Date date = new Date();
+    private static final Charset LOG_CHARSET = Charset.forName("UTF-8");
+
+    private static final String LOG_FILE_EXT = ".log";
+    private static final String GZIP_FILE_EXT = ".gz";
+
+    /**
+     * Number of records held by the ring buffer. Must be a power of two.
+     */
+    private static final int BUFFER_CAPACITY = 4096;
+    private static final int BUFFER_MASK = BUFFER_CAPACITY - 1;
+
+    /**
+     * Maximum time a record waits in the buffer before the writer thread picks it up.
+     */
+    private static final long WRITER_PARK_PERIOD = 200L * 1000 * 1000; //ns
+
+    private static final long MAX_LOG_FILE_SIZE = 4 * 1024 * 1024; //bytes
+    private static final int MAX_LOG_FILES_COUNT = 20;
+
+    /*
+     * Ring buffer. Slot i holds the record with sequence s when s & BUFFER_MASK == i; the record is
+     * readable once published[i] == s + 1.
+     */
+    private final long[] recordTimes = new long[BUFFER_CAPACITY];
+    private final int[] recordPriorities = new int[BUFFER_CAPACITY];
+    private final String[] recordTags = new String[BUFFER_CAPACITY];
+    private final String[] recordMessages = new String[BUFFER_CAPACITY];
+    private final AtomicLongArray published = new AtomicLongArray(BUFFER_CAPACITY);
+
+    /**
+     * Sequence of the next record to claim.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Sequence of the next record to write. Only updated by the writer thread.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private volatile LogWriter logWriter;
 
     @Override
     protected void log(int priority, String tag, String message, Throwable t) {
         super.log(priority, tag, message, t);
 
         if (isLoggableToFile(priority)) {
-            String logOutput = getLogMessage(priority, tag, message);
-            logQueue.add(logOutput);
+            enqueue(priority, tag, message);
         }
     }
 
@@ -46,13 +100,32 @@ public class LogToFileTree extends Timber.DebugTree {
         return priority >= BuildConfig.LOG_FILE_LEVEL;
     }
 
-    private String getLogMessage(int priority, String tag, String message) {
-        String priorityShort = getPriorityString(priority);
-        date.setTime(System.currentTimeMillis());
-        return String.format("%s %s/%s : %s", LOG_DATE_FORMAT.format(date), priorityShort, tag, message);
+    private void enqueue(int priority, String tag, String message) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= BUFFER_CAPACITY) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        final int slot = (int) (sequence & BUFFER_MASK);
+        recordTimes[slot] = System.currentTimeMillis();
+        recordPriorities[slot] = priority;
+        recordTags[slot] = tag;
+        recordMessages[slot] = message;
+        published.lazySet(slot, sequence + 1);
+
+        // Wake up the writer early when the buffer fills up.
+        if (sequence - head.get() == BUFFER_CAPACITY / 2) {
+            final LogWriter writer = logWriter;
+            if (writer != null)
+                writer.wakeUp();
+        }
     }
 
-    private String getPriorityString(int priority) {
+    private static String getPriorityString(int priority) {
         String priorityString = null;
         switch (priority) {
             case Log.ASSERT:
@@ -81,60 +154,295 @@ public class LogToFileTree extends Timber.DebugTree {
     }
 
     public void createFileStartLogging(final Context context) {
-        if (dequeueThread != null && dequeueThread.isAlive()) {
-            stopLoggingThread();
+        final LogWriter previousWriter = logWriter;
+        stopLoggingThread();
+
+        PackageInfo pInfo;
+        String version = "";
+        try {
+            pInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            version = pInfo.versionName;
+        } catch (PackageManager.NameNotFoundException e) {
+            Timber.w("Failed to get package info");
+        }
+
+        File rootDir = context.getExternalFilesDir(null);
+        File dir = new File(rootDir, "/log_cat/");
+
+        final String filePrefix = String.format("%s_%s", version, FILE_DATE_FORMAT.format(new Date()));
+        final LogWriter writer = new LogWriter(dir, filePrefix, previousWriter);
+        logWriter = writer;
+        writer.start();
+    }
+
+    public void stopLoggingThread() {
+        final LogWriter writer = logWriter;
+        if (writer != null) {
+            logWriter = null;
+            writer.stop();
+        }
+    }
+
+    /**
+     * Drains the ring buffer into the log files.
+     */
+    private class LogWriter implements Runnable {
+
+        private final File dir;
+        private final String filePrefix;
+        private final Thread thread;
+
+        /**
+         * Writer being stopped, which must be done with the buffer and the log files before this
+         * one starts. Cleared once it's done, so the stopped writers can be collected.
+         */
+        private LogWriter previousWriter;
+
+        private volatile boolean isRunning = true;
+
+        private final SimpleDateFormat logDateFormat = new SimpleDateFormat("MM-dd HH:mm:ss", Locale.US);
+        private final Date date = new Date();
+        private final StringBuilder line = new StringBuilder(256);
+
+        /**
+         * Formatted timestamp of the last second a record was written in.
+         */
+        private long lastSecond = -1;
+        private String lastSecondString;
+
+        private Writer output;
+        private File outputFile;
+        private long outputSize;
+        private int fileIndex;
+
+        LogWriter(File dir, String filePrefix, LogWriter previousWriter) {
+            this.dir = dir;
+            this.filePrefix = filePrefix;
+            this.previousWriter = previousWriter;
+            this.thread = new Thread(this, "LogToFileTree writer");
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /**
+         * Stops the writer once the buffered records are written.
+         */
+        void stop() {
+            isRunning = false;
+            wakeUp();
+        }
+
+        void wakeUp() {
+            LockSupport.unpark(thread);
         }
 
-        dequeueThread = new Thread(new Runnable() {
-            public void run() {
-                PackageInfo pInfo;
-                String version = "";
+        @Override
+        public void run() {
+            if (previousWriter != null) {
                 try {
-                    pInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
-                    version = pInfo.versionName;
-                } catch (PackageManager.NameNotFoundException e) {
-                    Timber.w("Failed to get package info");
+                    previousWriter.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    previousWriter = null;
                 }
+            }
 
-                File rootDir = context.getExternalFilesDir(null);
-                File dir = new File(rootDir, "/log_cat/");
-                dir.mkdirs();
+            dir.mkdirs();
 
-                String fileName = String.format("%s_%s.log", version, FILE_DATE_FORMAT.format(new Date()));
-                File logFile = new File(dir, fileName);
-                try {
-                    logOutputFile = new PrintStream(new FileOutputStream(logFile, true));
+            // Leftovers of the previous sessions.
+            compressLogFiles();
+
+            try {
+                openOutput();
+
+                while (isRunning) {
+                    if (drain() == 0)
+                        LockSupport.parkNanos(this, WRITER_PARK_PERIOD);
+                }
+
+                drain();
+            } catch (IOException e) {
+                Timber.w("Failed to write log file");
+            } finally {
+                closeOutput();
+                compressLogFiles();
+            }
+        }
+
+        /**
+         * @return the number of records written.
+         */
+        private int drain() throws IOException {
+            int count = 0;
+            long sequence = head.get();
+            while (count < BUFFER_CAPACITY) {
+                final int slot = (int) (sequence & BUFFER_MASK);
+                if (published.get(slot) != sequence + 1)
+                    break;
+
+                final long time = recordTimes[slot];
+                final int priority = recordPriorities[slot];
+                final String tag = recordTags[slot];
+                final String message = recordMessages[slot];
+                recordTags[slot] = null;
+                recordMessages[slot] = null;
 
-                    while (isRunning.get()) {
-                        try {
-                            String message = logQueue.take();
-                            logOutputFile.println(message);
-                        } catch (InterruptedException e) {
-                            Timber.w("Failed to receive message from logQueue");
-                        }
-                    }
+                head.lazySet(++sequence);
 
+                writeRecord(time, priority, tag, message);
+                count++;
+            }
+
+            final long dropped = droppedCount.getAndSet(0);
+            if (dropped > 0)
+                writeRecord(System.currentTimeMillis(), Log.WARN, "LogToFileTree", dropped + " log messages dropped");
+
+            if (count > 0 || dropped > 0)
+                output.flush();
+
+            return count;
+        }
+
+        private void writeRecord(long time, int priority, String tag, String message) throws IOException {
+            final long second = time / 1000;
+            if (second != lastSecond) {
+                date.setTime(time);
+                lastSecondString = logDateFormat.format(date);
+                lastSecond = second;
+            }
+
+            final int millis = (int) (time % 1000);
+            line.setLength(0);
+            line.append(lastSecondString).append('.');
+            if (millis < 100)
+                line.append('0');
+            if (millis < 10)
+                line.append('0');
+            line.append(millis).append(' ')
+                    .append(getPriorityString(priority)).append('/').append(tag)
+                    .append(" : ").append(message).append('\n');
+
+            output.append(line);
+
+            // Approximated with the characters count, which is close for the mostly ascii logs.
+            outputSize += line.length();
+            if (outputSize >= MAX_LOG_FILE_SIZE)
+                rotateOutput();
+        }
+
+        private void openOutput() throws IOException {
+            final String suffix = fileIndex == 0 ? "" : "_" + fileIndex;
+            outputFile = new File(dir, filePrefix + suffix + LOG_FILE_EXT);
+            outputSize = outputFile.length();
+            fileIndex++;
+
+            final OutputStream fileStream = new BufferedOutputStream(new FileOutputStream(outputFile, true));
+            output = new BufferedWriter(new OutputStreamWriter(fileStream, LOG_CHARSET));
+        }
+
+        private void closeOutput() {
+            if (output != null) {
+                try {
+                    output.close();
                 } catch (IOException e) {
-                    Timber.w("Failed to open file");
-                } finally {
-                    isRunning.set(false);
-                    if (logOutputFile != null) {
-                        logOutputFile.close();
-                    }
+                    Timber.w("Failed to close log file");
                 }
+                output = null;
             }
-        });
+        }
 
-        isRunning.set(true);
-        dequeueThread.start();
-    }
+        private void rotateOutput() throws IOException {
+            closeOutput();
+            compressFile(outputFile);
+            deleteOldestLogFiles();
+            openOutput();
+        }
 
-    public void stopLoggingThread() {
-        if (dequeueThread != null) {
-            isRunning.set(false);
-            dequeueThread.interrupt();
-            dequeueThread = null;
+        /**
+         * Compresses the log files, except the current one.
+         */
+        private void compressLogFiles() {
+            final File[] logFiles = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String filename) {
+                    return filename.endsWith(LOG_FILE_EXT);
+                }
+            });
+
+            if (logFiles != null) {
+                for (File logFile : logFiles) {
+                    if (!logFile.equals(outputFile) || output == null)
+                        compressFile(logFile);
+                }
+            }
+
+            deleteOldestLogFiles();
         }
-    }
 
+        private void compressFile(File file) {
+            final File gzipFile = new File(file.getPath() + GZIP_FILE_EXT);
+
+            InputStream in = null;
+            OutputStream out = null;
+            try {
+                in = new FileInputStream(file);
+                out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(gzipFile)));
+
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+
+                out.close();
+                out = null;
+                file.delete();
+            } catch (IOException e) {
+                Timber.w("Failed to compress log file %s", file.getName());
+                gzipFile.delete();
+            } finally {
+                closeQuietly(in);
+                closeQuietly(out);
+            }
+        }
+
+        private void deleteOldestLogFiles() {
+            final File[] gzipFiles = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String filename) {
+                    return filename.endsWith(GZIP_FILE_EXT);
+                }
+            });
+
+            if (gzipFiles == null || gzipFiles.length <= MAX_LOG_FILES_COUNT)
+                return;
+
+            Arrays.sort(gzipFiles, new Comparator<File>() {
+                @Override
+                public int compare(File lhs, File rhs) {
+                    final long lhsTime = lhs.lastModified();
+                    final long rhsTime = rhs.lastModified();
+                    return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+                }
+            });
+
+            for (int i = 0; i < gzipFiles.length - MAX_LOG_FILES_COUNT; i++) {
+                gzipFiles[i].delete();
+            }
+        }
+
+        private void closeQuietly(Closeable closeable) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    //Ignore
+                }
+            }
+        }
+    }
 }
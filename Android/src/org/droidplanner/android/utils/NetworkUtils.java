@@ -12,8 +12,10 @@ import com.squareup.okhttp.OkUrlFactory;
 
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxUtils;
 
+import java.io.File;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -24,6 +26,51 @@ public class NetworkUtils {
 
     private static final String SOLO_LINK_WIFI_PREFIX = "SoloLink_";
 
+    private static final String TILE_CACHE_DIRECTORY = "map_tiles";
+    private static final long TILE_CACHE_SIZE = 32 * 1024 * 1024; // 32MB
+
+    private static final long DOWNLOAD_CONNECT_TIMEOUT = 60000; //ms
+
+    private static volatile OkHttpClient tileHttpClient;
+
+    /**
+     * @return the http client shared by the map tile providers, backed by a disk cache.
+     */
+    public static OkHttpClient getTileHttpClient(Context context) {
+        if (tileHttpClient == null) {
+            synchronized (NetworkUtils.class) {
+                if (tileHttpClient == null) {
+                    final OkHttpClient client = new OkHttpClient();
+                    final File cacheDir = new File(context.getApplicationContext().getCacheDir(), TILE_CACHE_DIRECTORY);
+                    client.setCache(new Cache(cacheDir, TILE_CACHE_SIZE));
+                    tileHttpClient = client;
+                }
+            }
+        }
+        return tileHttpClient;
+    }
+
+    private static volatile OkHttpClient downloadHttpClient;
+
+    /**
+     * @return the http client used by the offline map downloads. It shares the connection pool of
+     * the tile client, but bypasses its disk cache as the downloaded tiles are stored in the offline
+     * database.
+     */
+    public static OkHttpClient getDownloadHttpClient(Context context) {
+        if (downloadHttpClient == null) {
+            synchronized (NetworkUtils.class) {
+                if (downloadHttpClient == null) {
+                    final OkHttpClient client = getTileHttpClient(context).clone();
+                    client.setCache(null);
+                    client.setConnectTimeout(DOWNLOAD_CONNECT_TIMEOUT, TimeUnit.MILLISECONDS);
+                    downloadHttpClient = client;
+                }
+            }
+        }
+        return downloadHttpClient;
+    }
+
     public static boolean isNetworkAvailable(Context context) {
         if(context == null)
             return false;
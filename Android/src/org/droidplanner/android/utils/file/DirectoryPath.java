@@ -48,6 +48,20 @@ public class DirectoryPath {
 		return getPublicDataPath() + "/Maps/";
 	}
 
+	/**
+	 * Storage folder for the telemetry statistics exports
+	 */
+	static public String getTelemetryStatsPath() {
+		return getPublicDataPath() + "/TelemetryStats/";
+	}
+
+	/**
+	 * Storage folder for the flight event journals
+	 */
+	static public String getFlightJournalPath() {
+		return getPublicDataPath() + "/Journal/";
+	}
+
 	/**
 	 * Storage folder for stacktraces
 	 */
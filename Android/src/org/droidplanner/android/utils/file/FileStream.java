@@ -52,6 +52,18 @@ public class FileStream {
         return prefix + "-" + getTimeStamp() + FileList.WAYPOINT_FILENAME_EXT;
     }
 
+	static public File getTelemetryStatsFile() {
+		File myDir = new File(DirectoryPath.getTelemetryStatsPath());
+		myDir.mkdirs();
+		return new File(myDir, "telemetry_stats-" + getTimeStamp() + ".csv");
+	}
+
+	static public File getFlightJournalFile() {
+		File myDir = new File(DirectoryPath.getFlightJournalPath());
+		myDir.mkdirs();
+		return new File(myDir, "flight_journal-" + getTimeStamp() + ".bin");
+	}
+
 	/**
 	 * Creates a new .nomedia file on the maps folder
 	 * 
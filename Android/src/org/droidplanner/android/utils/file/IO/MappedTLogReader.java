@@ -0,0 +1,363 @@
+package org.droidplanner.android.utils.file.IO;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.Parser;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import timber.log.Timber;
+
+/**
+ * Streaming tlog reader backed by a memory mapped view of the file.
+ *
+ * Packets are parsed straight from the mapped buffer, and handed out one at a time through an
+ * iterator or a callback, so the memory footprint does not grow with the size of the log.
+ * While scanning, a sparse timestamp -> offset index is built which allows {@link #iterator(long)}
+ * to seek to any point in time in O(log n).
+ *
+ * <timestamp><MavLink packet>...
+ */
+public class MappedTLogReader implements Closeable, Iterable<TLogReader.Event> {
+
+    /**
+     * Decides whether a record should be decoded, before the packet payload is unpacked.
+     */
+    public interface Filter {
+        boolean accept(long timestamp, int msgId);
+    }
+
+    /**
+     * Receives the decoded records as they are read from the file.
+     */
+    public interface Callback {
+        /**
+         * @return false to stop reading.
+         */
+        boolean onEvent(TLogReader.Event event);
+    }
+
+    public static final Filter ACCEPT_ALL = new Filter() {
+        @Override
+        public boolean accept(long timestamp, int msgId) {
+            return true;
+        }
+    };
+
+    static final int TIMESTAMP_SIZE = Long.SIZE / Byte.SIZE;
+    static final int MAVLINK_STX = 0xFE;
+    static final int MAVLINK_HEADER_SIZE = 6;
+    static final int MAVLINK_CRC_SIZE = 2;
+    static final int MAVLINK_MAX_PACKET_SIZE = MAVLINK_HEADER_SIZE + 255 + MAVLINK_CRC_SIZE;
+
+    /**
+     * Size of the region mapped at once. Logs larger than this are mapped window by window.
+     */
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Number of records between two entries of the time index.
+     */
+    private static final int INDEX_INTERVAL = 256;
+
+    private final FileInputStream inputStream;
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private Filter filter = ACCEPT_ALL;
+
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+    private long windowEnd = -1;
+
+    private long[] indexTimestamps = new long[64];
+    private long[] indexOffsets = new long[64];
+    private int indexSize;
+    private long indexedUpTo;
+    private int recordsSinceIndexEntry;
+
+    public MappedTLogReader(String file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    public MappedTLogReader(FileDescriptor fd) throws IOException {
+        this(new FileInputStream(fd));
+    }
+
+    private MappedTLogReader(FileInputStream inputStream) throws IOException {
+        this.inputStream = inputStream;
+        this.channel = inputStream.getChannel();
+        this.fileSize = channel.size();
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFilter(Filter filter) {
+        this.filter = filter == null ? ACCEPT_ALL : filter;
+    }
+
+    /**
+     * Reads every record accepted by the filter, in file order.
+     */
+    public void read(Callback callback) {
+        read(0, callback);
+    }
+
+    /**
+     * Reads the records accepted by the filter, starting at the first record with a timestamp
+     * greater or equal to the given one.
+     */
+    public void read(long fromTimestamp, Callback callback) {
+        final Cursor cursor = new Cursor(seek(fromTimestamp));
+        TLogReader.Event event;
+        while ((event = cursor.next()) != null) {
+            if (event.getTimestamp() < fromTimestamp)
+                continue;
+
+            if (!callback.onEvent(event))
+                break;
+        }
+    }
+
+    @Override
+    public Iterator<TLogReader.Event> iterator() {
+        return new EventIterator(new Cursor(0));
+    }
+
+    /**
+     * @return lazy iterator over the records with a timestamp greater or equal to the given one.
+     */
+    public Iterator<TLogReader.Event> iterator(final long fromTimestamp) {
+        return new EventIterator(new Cursor(seek(fromTimestamp))) {
+            @Override
+            protected boolean skip(TLogReader.Event event) {
+                return event.getTimestamp() < fromTimestamp;
+            }
+        };
+    }
+
+    /**
+     * Decodes the record starting at the given file offset, regardless of the filter.
+     *
+     * @return the decoded event, or null if no valid record starts at that offset.
+     */
+    public TLogReader.Event readEvent(long offset) {
+        final Filter currentFilter = filter;
+        filter = ACCEPT_ALL;
+        try {
+            final TLogReader.Event[] holder = new TLogReader.Event[1];
+            nextRecord(offset, true, holder);
+            return holder[0];
+        } finally {
+            filter = currentFilter;
+        }
+    }
+
+    /**
+     * Walks the whole file once to complete the time index, without decoding any payload.
+     */
+    public void buildIndex() {
+        long offset = indexedUpTo;
+        while (offset < fileSize) {
+            final long next = nextRecord(offset, false, null);
+            if (next < 0)
+                break;
+            offset = next;
+        }
+    }
+
+    /**
+     * @return file offset of the last indexed record with a timestamp lower or equal to the given
+     * one, or 0 if the index does not cover that timestamp yet.
+     */
+    public long seek(long timestamp) {
+        if (indexSize == 0)
+            return 0;
+
+        int pos = Arrays.binarySearch(indexTimestamps, 0, indexSize, timestamp);
+        if (pos < 0)
+            pos = -pos - 2;
+
+        //Walk back over entries sharing the same timestamp.
+        while (pos > 0 && indexTimestamps[pos - 1] == timestamp)
+            pos--;
+
+        return pos < 0 ? 0 : indexOffsets[pos];
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+        inputStream.close();
+    }
+
+    /**
+     * Makes sure the mapped window covers [offset, offset + length).
+     *
+     * @return false if the requested range extends past the end of the file.
+     */
+    private boolean ensureMapped(long offset, int length) throws IOException {
+        if (offset + length > fileSize)
+            return false;
+
+        if (window != null && offset >= windowStart && offset + length <= windowEnd)
+            return true;
+
+        final long size = Math.min(MAP_WINDOW_SIZE, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+        windowEnd = offset + size;
+        return true;
+    }
+
+    private int byteAt(long offset) {
+        return window.get((int) (offset - windowStart)) & 0xFF;
+    }
+
+    /**
+     * Parses the record starting at the given offset.
+     *
+     * @param decode true to unpack the message when the filter accepts it.
+     * @param out    receives the decoded event, if any.
+     * @return offset of the next record, or -1 when the end of the file is reached.
+     */
+    private long nextRecord(long offset, boolean decode, TLogReader.Event[] out) {
+        try {
+            if (!ensureMapped(offset, TIMESTAMP_SIZE + MAVLINK_HEADER_SIZE))
+                return -1;
+
+            final long timestamp = window.getLong((int) (offset - windowStart)) / 1000;
+
+            //Resync on the MAVLink start byte, skipping anything corrupted in between.
+            long packetStart = offset + TIMESTAMP_SIZE;
+            while (true) {
+                if (!ensureMapped(packetStart, MAVLINK_HEADER_SIZE))
+                    return -1;
+                if (byteAt(packetStart) == MAVLINK_STX)
+                    break;
+                packetStart++;
+            }
+
+            final int payloadLength = byteAt(packetStart + 1);
+            final int msgId = byteAt(packetStart + 5);
+            final int packetSize = MAVLINK_HEADER_SIZE + payloadLength + MAVLINK_CRC_SIZE;
+            if (!ensureMapped(packetStart, packetSize))
+                return -1;
+
+            final long nextOffset = packetStart + packetSize;
+            if (offset == indexedUpTo) {
+                addIndexEntry(timestamp, offset);
+                indexedUpTo = nextOffset;
+            }
+
+            if (decode && filter.accept(timestamp, msgId)) {
+                final MAVLinkMessage message = decodePacket(packetStart, packetSize);
+                if (message != null)
+                    out[0] = new TLogReader.Event(timestamp, message);
+            }
+
+            return nextOffset;
+        } catch (IOException e) {
+            Timber.e(e, "Unable to map tlog region at offset %d", offset);
+            return -1;
+        }
+    }
+
+    private MAVLinkMessage decodePacket(long packetStart, int packetSize) {
+        final Parser parser = new Parser();
+        MAVLinkPacket packet = null;
+        for (int i = 0; i < packetSize && packet == null; i++) {
+            packet = parser.mavlink_parse_char(byteAt(packetStart + i));
+        }
+
+        return packet == null ? null : packet.unpack();
+    }
+
+    private void addIndexEntry(long timestamp, long offset) {
+        if (recordsSinceIndexEntry++ % INDEX_INTERVAL != 0)
+            return;
+
+        if (indexSize == indexTimestamps.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, indexSize * 2);
+            indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+        }
+
+        //Log timestamps are not guaranteed to be monotonic; keep the index sorted for the search.
+        if (indexSize > 0 && timestamp < indexTimestamps[indexSize - 1])
+            timestamp = indexTimestamps[indexSize - 1];
+
+        indexTimestamps[indexSize] = timestamp;
+        indexOffsets[indexSize] = offset;
+        indexSize++;
+    }
+
+    private class Cursor {
+        private final TLogReader.Event[] holder = new TLogReader.Event[1];
+        private long offset;
+
+        Cursor(long offset) {
+            this.offset = offset;
+        }
+
+        TLogReader.Event next() {
+            while (offset >= 0 && offset < fileSize) {
+                holder[0] = null;
+                offset = nextRecord(offset, true, holder);
+                if (holder[0] != null)
+                    return holder[0];
+            }
+            return null;
+        }
+    }
+
+    private static class EventIterator implements Iterator<TLogReader.Event> {
+        private final Cursor cursor;
+        private TLogReader.Event next;
+
+        EventIterator(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        protected boolean skip(TLogReader.Event event) {
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                next = cursor.next();
+                if (next == null)
+                    return false;
+                if (skip(next))
+                    next = null;
+            }
+            return true;
+        }
+
+        @Override
+        public TLogReader.Event next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final TLogReader.Event event = next;
+            next = null;
+            return event;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.droidplanner.android.utils.file.IO;
+
+import com.MAVLink.common.msg_global_position_int;
+
+import java.util.BitSet;
+
+/**
+ * Time ordered index of the records of a tlog file.
+ *
+ * Each entry holds the record timestamp (ms), its MAVLink message id and its offset in the file,
+ * in primitive arrays. The messages themselves are decoded on demand through a
+ * {@link MappedTLogReader}, except for GLOBAL_POSITION_INT whose lat/lon/alt/heading can be kept
+ * in the index (see {@link #decodePositions(MappedTLogReader)}).
+ */
+public class TLogIndex {
+
+    static final int POSITION_MSG_ID = msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT;
+
+    /**
+     * GLOBAL_POSITION_INT heading value (cdeg) when unknown.
+     */
+    private static final int UNKNOWN_HEADING = 0xFFFF;
+
+    private final BitSet indexedMsgIds;
+    private final long[] timestamps;
+    private final long[] offsets;
+    private final byte[] msgIds;
+    private final int size;
+
+    /*
+    Decoded GLOBAL_POSITION_INT columns. positionEntries holds the index entry of each position.
+     */
+    private int[] positionEntries;
+    private int[] positionLats;
+    private int[] positionLons;
+    private int[] positionAlts;
+    private int[] positionHeadings;
+    private int positionCount = -1;
+
+    TLogIndex(BitSet indexedMsgIds, long[] timestamps, long[] offsets, byte[] msgIds, int size) {
+        this.indexedMsgIds = indexedMsgIds;
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+        this.msgIds = msgIds;
+        this.size = size;
+    }
+
+    void setPositions(int[] entries, int[] lats, int[] lons, int[] alts, int[] headings, int count) {
+        this.positionEntries = entries;
+        this.positionLats = lats;
+        this.positionLons = lons;
+        this.positionAlts = alts;
+        this.positionHeadings = headings;
+        this.positionCount = count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getMsgId(int index) {
+        return msgIds[index] & 0xFF;
+    }
+
+    /**
+     * @return true if every record of the given types is part of this index.
+     */
+    public boolean covers(BitSet msgIdSet) {
+        final BitSet missing = (BitSet) msgIdSet.clone();
+        missing.andNot(indexedMsgIds);
+        return missing.isEmpty();
+    }
+
+    BitSet getIndexedMsgIds() {
+        return indexedMsgIds;
+    }
+
+    long[] getTimestamps() {
+        return timestamps;
+    }
+
+    long[] getOffsets() {
+        return offsets;
+    }
+
+    byte[] getMsgIds() {
+        return msgIds;
+    }
+
+    public boolean hasPositions() {
+        return positionCount >= 0;
+    }
+
+    public int getPositionCount() {
+        return Math.max(positionCount, 0);
+    }
+
+    int[] getPositionEntries() {
+        return positionEntries;
+    }
+
+    int[] getPositionLats() {
+        return positionLats;
+    }
+
+    int[] getPositionLons() {
+        return positionLons;
+    }
+
+    int[] getPositionAlts() {
+        return positionAlts;
+    }
+
+    int[] getPositionHeadings() {
+        return positionHeadings;
+    }
+
+    /**
+     * @return position of the first entry with a timestamp greater or equal to the given one.
+     */
+    public int search(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Decodes every indexed GLOBAL_POSITION_INT record, and keeps its lat/lon/alt/heading in the
+     * index.
+     */
+    public void decodePositions(MappedTLogReader reader) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (getMsgId(i) == POSITION_MSG_ID)
+                count++;
+        }
+
+        final int[] entries = new int[count];
+        final int[] lats = new int[count];
+        final int[] lons = new int[count];
+        final int[] alts = new int[count];
+        final int[] headings = new int[count];
+
+        int pos = 0;
+        for (int i = 0; i < size && pos < count; i++) {
+            if (getMsgId(i) != POSITION_MSG_ID)
+                continue;
+
+            final TLogReader.Event event = reader.readEvent(offsets[i]);
+            if (event == null || !(event.getMavLinkMessage() instanceof msg_global_position_int))
+                continue;
+
+            final msg_global_position_int msg = (msg_global_position_int) event.getMavLinkMessage();
+            entries[pos] = i;
+            lats[pos] = msg.lat;
+            lons[pos] = msg.lon;
+            alts[pos] = msg.alt;
+            headings[pos] = msg.hdg;
+            pos++;
+        }
+
+        setPositions(entries, lats, lons, alts, headings, pos);
+    }
+
+    /**
+     * Applies the filter decimation to the decoded positions, and appends the accepted ones to the
+     * store. Requires {@link #hasPositions()}.
+     */
+    public void readPositions(TLogMessageFilter filter, TLogPositionStore store) {
+        filter.reset();
+        for (int i = 0; i < positionCount; i++) {
+            final long timestamp = timestamps[positionEntries[i]];
+            if (!filter.accept(timestamp, POSITION_MSG_ID))
+                continue;
+
+            final int heading = positionHeadings[i];
+            store.add(timestamp, positionLats[i], positionLons[i], positionAlts[i] / 1000f,
+                    heading == UNKNOWN_HEADING ? TLogPositionStore.UNKNOWN_HEADING : heading / 100f);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.droidplanner.android.utils.file.IO;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import timber.log.Timber;
+
+/**
+ * Columnar sidecar file persisting a {@link TLogIndex} next to its tlog.
+ *
+ * Layout (big endian):
+ * <magic><version><tlog size><tlog mtime><indexed msg ids bitset>
+ * <entry count><position count>
+ * <timestamps: long[entry count]><offsets: long[entry count]><msg ids: byte[entry count]>
+ * <position entries: int[position count]><lat: int[]><lon: int[]><alt: int[]><heading: int[]>
+ *
+ * A position count of -1 means positions were not decoded. The sidecar is ignored when the tlog
+ * size or modification time no longer match.
+ */
+public class TLogIndexFile {
+
+    public static final String FILENAME_EXT = ".idx";
+
+    private static final int MAGIC = 0x544C4758; // "TLGX"
+    private static final int VERSION = 2;
+
+    private static final int MSG_ID_SET_SIZE = TLogMessageFilter.MSG_ID_COUNT / Byte.SIZE;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + MSG_ID_SET_SIZE + 4 + 4;
+    private static final long ENTRY_SIZE = 8 + 8 + 1;
+    private static final long POSITION_SIZE = 5 * 4;
+
+    public static File getIndexFile(File tlogFile) {
+        return new File(tlogFile.getParentFile(), tlogFile.getName() + FILENAME_EXT);
+    }
+
+    /**
+     * @return the index stored next to the given tlog, or null if there is none or it is stale.
+     */
+    public static TLogIndex load(File tlogFile) {
+        final File indexFile = getIndexFile(tlogFile);
+        if (!indexFile.isFile() || !tlogFile.isFile())
+            return null;
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(indexFile);
+            final FileChannel channel = in.getChannel();
+            final long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE)
+                return null;
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return null;
+
+            if (buffer.getLong() != tlogFile.length() || buffer.getLong() != tlogFile.lastModified())
+                return null;
+
+            final byte[] msgIdSet = new byte[MSG_ID_SET_SIZE];
+            buffer.get(msgIdSet);
+
+            final int entryCount = buffer.getInt();
+            final int positionCount = buffer.getInt();
+            final long expectedSize = HEADER_SIZE + entryCount * ENTRY_SIZE + Math.max(positionCount, 0) * POSITION_SIZE;
+            if (entryCount < 0 || fileSize != expectedSize)
+                return null;
+
+            final long[] timestamps = new long[entryCount];
+            final long[] offsets = new long[entryCount];
+            final byte[] msgIds = new byte[entryCount];
+            readLongs(buffer, timestamps);
+            readLongs(buffer, offsets);
+            buffer.get(msgIds);
+
+            final TLogIndex index = new TLogIndex(toBitSet(msgIdSet), timestamps, offsets, msgIds,
+                    entryCount);
+
+            if (positionCount >= 0) {
+                final int[] entries = new int[positionCount];
+                final int[] lats = new int[positionCount];
+                final int[] lons = new int[positionCount];
+                final int[] alts = new int[positionCount];
+                final int[] headings = new int[positionCount];
+                readInts(buffer, entries);
+                readInts(buffer, lats);
+                readInts(buffer, lons);
+                readInts(buffer, alts);
+                readInts(buffer, headings);
+                index.setPositions(entries, lats, lons, alts, headings, positionCount);
+            }
+
+            return index;
+        } catch (IOException e) {
+            Timber.w(e, "Unable to load tlog index %s", indexFile);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Unable to close tlog index %s", indexFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the index next to the given tlog. Failures are logged, and otherwise ignored.
+     */
+    public static boolean save(File tlogFile, TLogIndex index) {
+        final File indexFile = getIndexFile(tlogFile);
+        final File tmpFile = new File(indexFile.getPath() + ".tmp");
+
+        final int entryCount = index.size();
+        final int positionCount = index.hasPositions() ? index.getPositionCount() : -1;
+        final long size = HEADER_SIZE + entryCount * ENTRY_SIZE + Math.max(positionCount, 0) * POSITION_SIZE;
+
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(tmpFile, "rw");
+            out.setLength(size);
+
+            final MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(tlogFile.length());
+            buffer.putLong(tlogFile.lastModified());
+            buffer.put(toBytes(index.getIndexedMsgIds()));
+            buffer.putInt(entryCount);
+            buffer.putInt(positionCount);
+
+            writeLongs(buffer, index.getTimestamps(), entryCount);
+            writeLongs(buffer, index.getOffsets(), entryCount);
+            buffer.put(index.getMsgIds(), 0, entryCount);
+
+            if (positionCount > 0) {
+                writeInts(buffer, index.getPositionEntries(), positionCount);
+                writeInts(buffer, index.getPositionLats(), positionCount);
+                writeInts(buffer, index.getPositionLons(), positionCount);
+                writeInts(buffer, index.getPositionAlts(), positionCount);
+                writeInts(buffer, index.getPositionHeadings(), positionCount);
+            }
+
+            buffer.force();
+            out.close();
+            out = null;
+
+            return tmpFile.renameTo(indexFile);
+        } catch (IOException e) {
+            Timber.w(e, "Unable to write tlog index %s", indexFile);
+            tmpFile.delete();
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Unable to close tlog index %s", tmpFile);
+                }
+            }
+        }
+    }
+
+    private static void readLongs(ByteBuffer buffer, long[] dst) {
+        buffer.asLongBuffer().get(dst);
+        buffer.position(buffer.position() + dst.length * 8);
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] dst) {
+        buffer.asIntBuffer().get(dst);
+        buffer.position(buffer.position() + dst.length * 4);
+    }
+
+    private static void writeLongs(ByteBuffer buffer, long[] src, int length) {
+        buffer.asLongBuffer().put(src, 0, length);
+        buffer.position(buffer.position() + length * 8);
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] src, int length) {
+        buffer.asIntBuffer().put(src, 0, length);
+        buffer.position(buffer.position() + length * 4);
+    }
+
+    private static byte[] toBytes(BitSet bitSet) {
+        final byte[] bytes = new byte[MSG_ID_SET_SIZE];
+        for (int i = bitSet.nextSetBit(0); i >= 0 && i < TLogMessageFilter.MSG_ID_COUNT;
+             i = bitSet.nextSetBit(i + 1)) {
+            bytes[i / Byte.SIZE] |= 1 << (i % Byte.SIZE);
+        }
+        return bytes;
+    }
+
+    private static BitSet toBitSet(byte[] bytes) {
+        final BitSet bitSet = new BitSet(TLogMessageFilter.MSG_ID_COUNT);
+        for (int i = 0; i < TLogMessageFilter.MSG_ID_COUNT; i++) {
+            if ((bytes[i / Byte.SIZE] & (1 << (i % Byte.SIZE))) != 0)
+                bitSet.set(i);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,339 @@
+package org.droidplanner.android.utils.file.IO;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.droidplanner.android.utils.file.IO.MappedTLogReader.MAVLINK_CRC_SIZE;
+import static org.droidplanner.android.utils.file.IO.MappedTLogReader.MAVLINK_HEADER_SIZE;
+import static org.droidplanner.android.utils.file.IO.MappedTLogReader.MAVLINK_MAX_PACKET_SIZE;
+import static org.droidplanner.android.utils.file.IO.MappedTLogReader.MAVLINK_STX;
+import static org.droidplanner.android.utils.file.IO.MappedTLogReader.TIMESTAMP_SIZE;
+
+/**
+ * Builds a {@link TLogIndex} by parsing a tlog file in parallel.
+ *
+ * The file is split into byte ranges, each parsed on a worker thread with its own
+ * {@link Parser}. A worker resynchronises on the first valid record of its range, and parses
+ * every record starting inside it. The partial results are then merged into a time ordered index.
+ */
+public class TLogIndexer {
+
+    public interface ProgressListener {
+        /**
+         * @param fraction fraction of the file bytes parsed so far, in [0, 1].
+         */
+        void onProgress(float fraction);
+    }
+
+    /**
+     * Upper bound for the size of a range, so each can be mapped in a single buffer.
+     */
+    private static final long MAX_RANGE_SIZE = 32L * 1024 * 1024;
+
+    private static final long MIN_RANGE_SIZE = 256L * 1024;
+
+    private static final int MAX_RECORD_SIZE = TIMESTAMP_SIZE + MAVLINK_MAX_PACKET_SIZE;
+
+    /**
+     * Number of bytes parsed between two progress reports from a worker.
+     */
+    private static final int PROGRESS_STEP = 512 * 1024;
+
+    private final int threadCount;
+
+    public TLogIndexer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public TLogIndexer(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Indexes the records of the given file whose message type is enabled in the filter.
+     * Decimation is not applied at this stage; see {@link TLogIndex#readPositions}.
+     */
+    public TLogIndex index(String file, TLogMessageFilter filter, final ProgressListener listener)
+            throws IOException, InterruptedException {
+        final FileInputStream inputStream = new FileInputStream(file);
+        final FileChannel channel = inputStream.getChannel();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+            final long fileSize = channel.size();
+            final AtomicLong bytesParsed = new AtomicLong();
+
+            long rangeSize = Math.max(MIN_RANGE_SIZE, (fileSize + threadCount - 1) / threadCount);
+            rangeSize = Math.min(rangeSize, MAX_RANGE_SIZE);
+
+            final List<Future<Chunk>> futures = new ArrayList<>();
+            for (long start = 0; start < fileSize; start += rangeSize) {
+                final long end = Math.min(fileSize, start + rangeSize);
+                futures.add(executor.submit(new RangeParser(channel, fileSize, start, end, filter,
+                        bytesParsed, listener)));
+            }
+
+            final List<Chunk> chunks = new ArrayList<>(futures.size());
+            for (Future<Chunk> future : futures) {
+                chunks.add(future.get());
+            }
+
+            if (listener != null)
+                listener.onProgress(1f);
+
+            return merge(chunks, filter.getMessageIds());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+            channel.close();
+            inputStream.close();
+        }
+    }
+
+    private static TLogIndex merge(List<Chunk> chunks, BitSet indexedMsgIds) {
+        int total = 0;
+        for (Chunk chunk : chunks)
+            total += chunk.size;
+
+        final long[] timestamps = new long[total];
+        final long[] offsets = new long[total];
+        final byte[] msgIds = new byte[total];
+
+        int pos = 0;
+        boolean sorted = true;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.timestamps, 0, timestamps, pos, chunk.size);
+            System.arraycopy(chunk.offsets, 0, offsets, pos, chunk.size);
+            System.arraycopy(chunk.msgIds, 0, msgIds, pos, chunk.size);
+            if (chunk.size > 0 && pos > 0 && chunk.timestamps[0] < timestamps[pos - 1])
+                sorted = false;
+            sorted &= chunk.sorted;
+            pos += chunk.size;
+        }
+
+        if (!sorted)
+            sortByTimestamp(timestamps, offsets, msgIds, total);
+
+        return new TLogIndex(indexedMsgIds, timestamps, offsets, msgIds, total);
+    }
+
+    /**
+     * Stable merge sort of the parallel arrays, keyed on the timestamps. Entries with equal
+     * timestamps stay in file order.
+     */
+    private static void sortByTimestamp(long[] timestamps, long[] offsets, byte[] msgIds, int size) {
+        long[] srcTs = timestamps, dstTs = new long[size];
+        long[] srcOff = offsets, dstOff = new long[size];
+        byte[] srcIds = msgIds, dstIds = new byte[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                final int mid = Math.min(low + width, size);
+                final int high = Math.min(low + 2 * width, size);
+                int i = low, j = mid, k = low;
+                while (i < mid && j < high) {
+                    final int from = srcTs[j] < srcTs[i] ? j++ : i++;
+                    dstTs[k] = srcTs[from];
+                    dstOff[k] = srcOff[from];
+                    dstIds[k++] = srcIds[from];
+                }
+                while (i < mid) {
+                    dstTs[k] = srcTs[i];
+                    dstOff[k] = srcOff[i];
+                    dstIds[k++] = srcIds[i++];
+                }
+                while (j < high) {
+                    dstTs[k] = srcTs[j];
+                    dstOff[k] = srcOff[j];
+                    dstIds[k++] = srcIds[j++];
+                }
+            }
+
+            long[] tmpTs = srcTs; srcTs = dstTs; dstTs = tmpTs;
+            long[] tmpOff = srcOff; srcOff = dstOff; dstOff = tmpOff;
+            byte[] tmpIds = srcIds; srcIds = dstIds; dstIds = tmpIds;
+        }
+
+        if (srcTs != timestamps) {
+            System.arraycopy(srcTs, 0, timestamps, 0, size);
+            System.arraycopy(srcOff, 0, offsets, 0, size);
+            System.arraycopy(srcIds, 0, msgIds, 0, size);
+        }
+    }
+
+    private static class Chunk {
+        long[] timestamps = new long[1024];
+        long[] offsets = new long[1024];
+        byte[] msgIds = new byte[1024];
+        int size;
+        boolean sorted = true;
+
+        void add(long timestamp, long offset, int msgId) {
+            if (size == timestamps.length) {
+                final int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                msgIds = Arrays.copyOf(msgIds, capacity);
+            }
+
+            if (size > 0 && timestamp < timestamps[size - 1])
+                sorted = false;
+
+            timestamps[size] = timestamp;
+            offsets[size] = offset;
+            msgIds[size] = (byte) msgId;
+            size++;
+        }
+    }
+
+    private static class RangeParser implements Callable<Chunk> {
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long start;
+        private final long end;
+        private final TLogMessageFilter filter;
+        private final AtomicLong bytesParsed;
+        private final ProgressListener listener;
+
+        private final Parser parser = new Parser();
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+        private long bufferEnd;
+
+        RangeParser(FileChannel channel, long fileSize, long start, long end, TLogMessageFilter filter,
+                    AtomicLong bytesParsed, ProgressListener listener) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.start = start;
+            this.end = end;
+            this.filter = filter;
+            this.bytesParsed = bytesParsed;
+            this.listener = listener;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            //Map the range, plus enough room for the record straddling its end.
+            bufferStart = start;
+            bufferEnd = Math.min(fileSize, end + MAX_RECORD_SIZE);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, bufferStart, bufferEnd - bufferStart);
+
+            final Chunk chunk = new Chunk();
+            long offset = start == 0 ? 0 : resync(start);
+            long reported = start;
+
+            while (offset >= 0 && offset < end) {
+                if (Thread.currentThread().isInterrupted())
+                    break;
+
+                final long packetStart = findPacketStart(offset);
+                if (packetStart < 0)
+                    break;
+
+                final int msgId = byteAt(packetStart + 5);
+                if (filter.isMessageEnabled(msgId))
+                    chunk.add(timestampAt(offset), offset, msgId);
+
+                offset = packetStart + packetSize(packetStart);
+
+                if (offset - reported >= PROGRESS_STEP) {
+                    reportProgress(Math.min(offset, end) - reported);
+                    reported = Math.min(offset, end);
+                }
+            }
+
+            reportProgress(end - reported);
+            return chunk;
+        }
+
+        private void reportProgress(long bytes) {
+            final long parsed = bytesParsed.addAndGet(bytes);
+            if (listener != null && fileSize > 0)
+                listener.onProgress((float) parsed / fileSize);
+        }
+
+        private boolean isMapped(long offset, int length) {
+            return offset >= bufferStart && offset + length <= bufferEnd;
+        }
+
+        private int byteAt(long offset) {
+            return buffer.get((int) (offset - bufferStart)) & 0xFF;
+        }
+
+        private long timestampAt(long offset) {
+            return buffer.getLong((int) (offset - bufferStart)) / 1000;
+        }
+
+        private int packetSize(long packetStart) {
+            return MAVLINK_HEADER_SIZE + byteAt(packetStart + 1) + MAVLINK_CRC_SIZE;
+        }
+
+        /**
+         * @return offset of the MAVLink packet of the record starting at the given offset, or -1 if
+         * the record is truncated.
+         */
+        private long findPacketStart(long recordOffset) {
+            long packetStart = recordOffset + TIMESTAMP_SIZE;
+            while (isMapped(packetStart, MAVLINK_HEADER_SIZE)) {
+                if (byteAt(packetStart) == MAVLINK_STX) {
+                    return isMapped(packetStart, packetSize(packetStart)) ? packetStart : -1;
+                }
+                packetStart++;
+            }
+            return -1;
+        }
+
+        /**
+         * Looks for the first offset, at or after the given one, where a record with a valid
+         * packet starts, followed by the start of another record.
+         */
+        private long resync(long from) {
+            for (long offset = from; offset < end; offset++) {
+                final long packetStart = offset + TIMESTAMP_SIZE;
+                if (!isMapped(packetStart, MAVLINK_HEADER_SIZE))
+                    return -1;
+
+                if (byteAt(packetStart) != MAVLINK_STX)
+                    continue;
+
+                final int packetSize = packetSize(packetStart);
+                if (!isMapped(packetStart, packetSize) || !isValidPacket(packetStart, packetSize))
+                    continue;
+
+                final long nextPacketStart = packetStart + packetSize + TIMESTAMP_SIZE;
+                if (nextPacketStart >= fileSize
+                        || (isMapped(nextPacketStart, 1) && byteAt(nextPacketStart) == MAVLINK_STX))
+                    return offset;
+            }
+            return -1;
+        }
+
+        private boolean isValidPacket(long packetStart, int packetSize) {
+            MAVLinkPacket packet = null;
+            for (int i = 0; i < packetSize && packet == null; i++) {
+                packet = parser.mavlink_parse_char(byteAt(packetStart + i));
+            }
+            return packet != null;
+        }
+    }
+}
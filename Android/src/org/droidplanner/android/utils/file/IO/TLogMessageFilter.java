@@ -0,0 +1,93 @@
+package org.droidplanner.android.utils.file.IO;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Tlog filter accepting a set of MAVLink message ids, each with its own decimation interval.
+ *
+ * The decision is taken from the packet header only, so rejected packets are skipped by length
+ * without being unpacked. This allows a single pass over a log to fill several message streams.
+ */
+public class TLogMessageFilter implements MappedTLogReader.Filter {
+
+    public static final int MSG_ID_COUNT = 256;
+
+    /**
+     * Interval (in ms) used when a message is added without an explicit one.
+     */
+    public static final long DEFAULT_DECIMATION_INTERVAL = 5000;
+
+    private final BitSet msgIds = new BitSet(MSG_ID_COUNT);
+    private final long[] decimationIntervals = new long[MSG_ID_COUNT];
+    private final long[] lastAcceptedTimestamps = new long[MSG_ID_COUNT];
+
+    /**
+     * Accepts the given message type, decimated with the default interval.
+     */
+    public TLogMessageFilter addMessage(int msgId) {
+        return addMessage(msgId, DEFAULT_DECIMATION_INTERVAL);
+    }
+
+    /**
+     * Accepts the given message type.
+     *
+     * @param msgId              MAVLink message id, in [0, 255].
+     * @param decimationInterval minimum time (in ms) between two accepted messages of this type.
+     *                           0 to accept every message.
+     */
+    public TLogMessageFilter addMessage(int msgId, long decimationInterval) {
+        if (msgId < 0 || msgId >= MSG_ID_COUNT)
+            throw new IllegalArgumentException("Invalid MAVLink message id: " + msgId);
+
+        msgIds.set(msgId);
+        decimationIntervals[msgId] = decimationInterval;
+        return this;
+    }
+
+    /**
+     * Accepts every message type with the given decimation interval.
+     */
+    public TLogMessageFilter addAllMessages(long decimationInterval) {
+        msgIds.set(0, MSG_ID_COUNT);
+        Arrays.fill(decimationIntervals, decimationInterval);
+        return this;
+    }
+
+    public TLogMessageFilter removeMessage(int msgId) {
+        if (msgId >= 0 && msgId < MSG_ID_COUNT)
+            msgIds.clear(msgId);
+        return this;
+    }
+
+    public boolean isMessageEnabled(int msgId) {
+        return msgId >= 0 && msgId < MSG_ID_COUNT && msgIds.get(msgId);
+    }
+
+    /**
+     * @return a copy of the set of accepted message ids.
+     */
+    public BitSet getMessageIds() {
+        return (BitSet) msgIds.clone();
+    }
+
+    /**
+     * Clears the decimation state, so the filter can be used for another pass.
+     */
+    public void reset() {
+        Arrays.fill(lastAcceptedTimestamps, 0);
+    }
+
+    @Override
+    public boolean accept(long timestamp, int msgId) {
+        if (!isMessageEnabled(msgId))
+            return false;
+
+        final long interval = decimationIntervals[msgId];
+        if (interval > 0 && (timestamp - lastAcceptedTimestamps[msgId]) <= interval)
+            return false;
+
+        lastAcceptedTimestamps[msgId] = timestamp;
+        return true;
+    }
+}
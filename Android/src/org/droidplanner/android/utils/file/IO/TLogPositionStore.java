@@ -0,0 +1,131 @@
+package org.droidplanner.android.utils.file.IO;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays store for decoded tlog positions.
+ *
+ * Positions are kept in primitive arrays split into fixed size chunks, so growing the store never
+ * copies the existing data, and no object is allocated per position.
+ */
+public class TLogPositionStore {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Value of {@link #getHeading(int)} when the heading is unknown.
+     */
+    public static final float UNKNOWN_HEADING = Float.NaN;
+
+    private long[][] timestamps = new long[0][];
+    private int[][] latitudesE7 = new int[0][];
+    private int[][] longitudesE7 = new int[0][];
+    private float[][] altitudes = new float[0][];
+    private float[][] headings = new float[0][];
+
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Resets the size. Allocated chunks are kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param timestamp log timestamp, in ms.
+     * @param latE7     latitude, in degrees * 1E7.
+     * @param lonE7     longitude, in degrees * 1E7.
+     * @param altitude  altitude, in meters.
+     * @param heading   heading, in degrees, or {@link #UNKNOWN_HEADING}.
+     */
+    public void add(long timestamp, int latE7, int lonE7, float altitude, float heading) {
+        final int chunk = size >> CHUNK_SHIFT;
+        if (chunk == timestamps.length)
+            addChunk();
+
+        final int pos = size & CHUNK_MASK;
+        timestamps[chunk][pos] = timestamp;
+        latitudesE7[chunk][pos] = latE7;
+        longitudesE7[chunk][pos] = lonE7;
+        altitudes[chunk][pos] = altitude;
+        headings[chunk][pos] = heading;
+        size++;
+    }
+
+    private void addChunk() {
+        final int count = timestamps.length + 1;
+        timestamps = Arrays.copyOf(timestamps, count);
+        latitudesE7 = Arrays.copyOf(latitudesE7, count);
+        longitudesE7 = Arrays.copyOf(longitudesE7, count);
+        altitudes = Arrays.copyOf(altitudes, count);
+        headings = Arrays.copyOf(headings, count);
+
+        final int chunk = count - 1;
+        timestamps[chunk] = new long[CHUNK_SIZE];
+        latitudesE7[chunk] = new int[CHUNK_SIZE];
+        longitudesE7[chunk] = new int[CHUNK_SIZE];
+        altitudes[chunk] = new float[CHUNK_SIZE];
+        headings[chunk] = new float[CHUNK_SIZE];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public int getLatitudeE7(int index) {
+        checkIndex(index);
+        return latitudesE7[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public int getLongitudeE7(int index) {
+        checkIndex(index);
+        return longitudesE7[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public double getLatitude(int index) {
+        return getLatitudeE7(index) / 1E7;
+    }
+
+    public double getLongitude(int index) {
+        return getLongitudeE7(index) / 1E7;
+    }
+
+    /**
+     * @return altitude, in meters.
+     */
+    public float getAltitude(int index) {
+        checkIndex(index);
+        return altitudes[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * @return heading, in degrees, or {@link #UNKNOWN_HEADING}.
+     */
+    public float getHeading(int index) {
+        checkIndex(index);
+        return headings[index >> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    public LatLong getCoordinate(int index) {
+        return new LatLong(getLatitude(index), getLongitude(index));
+    }
+}
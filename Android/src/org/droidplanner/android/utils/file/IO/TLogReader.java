@@ -1,23 +1,26 @@
 package org.droidplanner.android.utils.file.IO;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
+import android.util.SparseArray;
+
+import java.io.File;
 import java.io.FileDescriptor;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.droidplanner.android.utils.file.FileStream;
 
-import com.MAVLink.MAVLinkPacket;
-import com.MAVLink.Parser;
 import com.MAVLink.Messages.MAVLinkMessage;
 
 /**
  * Read tlog file w/ optional message filter
  *
+ * Parsing is delegated to {@link MappedTLogReader}, which can also be used directly to stream
+ * large logs without keeping every event in memory.
+ *
  * <timestamp><MavLink packet>...
  *
  * See http://qgroundcontrol.org/mavlink for details
@@ -47,13 +50,22 @@ public class TLogReader {
         }
     }
 
-    private static final int TIMESTAMP_SIZE = Long.SIZE / Byte.SIZE;
-
-    private final int msgFilter;
+    private final TLogMessageFilter msgFilter;
     private final List<Event> logEvents = new LinkedList<Event>();
+    private final SparseArray<List<Event>> logEventsByType = new SparseArray<List<Event>>();
 
 
     public TLogReader(int msgFilter) {
+        this(msgFilter == MSGFILTER_NONE
+                ? new TLogMessageFilter().addAllMessages(TLogMessageFilter.DEFAULT_DECIMATION_INTERVAL)
+                : new TLogMessageFilter().addMessage(msgFilter));
+    }
+
+    /**
+     * @param msgFilter set of message types to keep, so several streams can be filled in a single
+     *                  pass over the file.
+     */
+    public TLogReader(TLogMessageFilter msgFilter) {
         this.msgFilter = msgFilter;
     }
 
@@ -61,52 +73,82 @@ public class TLogReader {
         return logEvents;
     }
 
-    public boolean openTLog(FileDescriptor fd){
-        final Parser parser = new Parser();
-        DataInputStream in = null;
-        try {
-            // open file
-            in = new DataInputStream(new BufferedInputStream(new FileInputStream(fd)));
+    /**
+     * @return the kept events of the given message type, in file order.
+     */
+    public List<Event> getLogEvents(int msgId) {
+        final List<Event> events = logEventsByType.get(msgId);
+        return events == null ? Collections.<Event>emptyList() : events;
+    }
 
-            // read events, filter (if specified)
-            long timestamp;
-            long prevTimestamp = 0;
-            while(in.available() > 0) {
-                // read timestamp
-                timestamp = in.readLong() / 1000;
-
-                // read packet
-                MAVLinkPacket packet;
-                while((packet = parser.mavlink_parse_char(in.readUnsignedByte())) == null);
-
-                if(msgFilter == MSGFILTER_NONE || packet.msgid == msgFilter) {
-                    if((timestamp - prevTimestamp) > 5000) {
-                        logEvents.add(new Event(timestamp, packet.unpack()));
-                        prevTimestamp = timestamp;
-                    }
-                }
+    /**
+     * Returns the index of the given tlog for the filter's message types.
+     *
+     * The index is loaded from the sidecar file next to the tlog when it is up to date, and
+     * covers the requested types. Otherwise the tlog is indexed in parallel and the sidecar is
+     * (re)written, so later opens of the same file skip the scan.
+     *
+     * @return the index, or null if the file could not be read.
+     */
+    public static TLogIndex openIndex(String file, TLogMessageFilter msgFilter,
+                                      TLogIndexer.ProgressListener listener) throws InterruptedException {
+        if (!FileStream.isExternalStorageAvailable()) {
+            return null;
+        }
+
+        final File tlogFile = new File(file);
+        final BitSet requestedMsgIds = msgFilter.getMessageIds();
+        final boolean needsPositions = requestedMsgIds.get(TLogIndex.POSITION_MSG_ID);
+
+        final TLogIndex savedIndex = TLogIndexFile.load(tlogFile);
+        if (savedIndex != null && savedIndex.covers(requestedMsgIds)
+                && (!needsPositions || savedIndex.hasPositions())) {
+            if (listener != null)
+                listener.onProgress(1f);
+            return savedIndex;
+        }
+
+        //Keep the types already indexed in the sidecar, so it only ever grows.
+        final BitSet indexedMsgIds = requestedMsgIds;
+        if (savedIndex != null)
+            indexedMsgIds.or(savedIndex.getIndexedMsgIds());
+
+        final TLogMessageFilter indexFilter = new TLogMessageFilter();
+        for (int msgId = indexedMsgIds.nextSetBit(0); msgId >= 0; msgId = indexedMsgIds.nextSetBit(msgId + 1)) {
+            indexFilter.addMessage(msgId, 0);
+        }
+
+        MappedTLogReader reader = null;
+        try {
+            final TLogIndex index = new TLogIndexer().index(file, indexFilter, listener);
+            if (indexedMsgIds.get(TLogIndex.POSITION_MSG_ID)) {
+                reader = new MappedTLogReader(file);
+                index.decodePositions(reader);
             }
 
-        } catch (EOFException e) {
-            // NOP - file may be incomplete - take what we have
-            // fall thru...
-        } catch (Exception e) {
+            TLogIndexFile.save(tlogFile, index);
+            return index;
+        } catch (IOException e) {
             e.printStackTrace();
-            return false;
-        }
-        finally {
-            // close file
-            if(in != null) {
+            return null;
+        } finally {
+            if (reader != null) {
                 try {
-                    in.close();
+                    reader.close();
                 } catch (IOException e) {
                     e.printStackTrace();
-                    // NOP
                 }
             }
         }
+    }
 
-        return true;
+    public boolean openTLog(FileDescriptor fd){
+        try {
+            return readTLog(new MappedTLogReader(fd));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     public boolean openTLog(String file) {
@@ -114,47 +156,47 @@ public class TLogReader {
             return false;
         }
 
-        final Parser parser = new Parser();
-        DataInputStream in = null;
         try {
-            // open file
-            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return readTLog(new MappedTLogReader(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
+    private boolean readTLog(MappedTLogReader reader) {
+        try {
             // read events, filter (if specified)
-            long timestamp;
-            long prevTimestamp = 0;
-            while(in.available() > 0) {
-                // read timestamp
-                timestamp = in.readLong() / 1000;
-
-                // read packet
-                MAVLinkPacket packet;
-                while((packet = parser.mavlink_parse_char(in.readUnsignedByte())) == null);
-
-                if(msgFilter == MSGFILTER_NONE || packet.msgid == msgFilter) {
-                    if((timestamp - prevTimestamp) > 5000) {
-                        logEvents.add(new Event(timestamp, packet.unpack()));
-                        prevTimestamp = timestamp;
-            }
+            // a truncated file simply ends the stream - take what we have
+            msgFilter.reset();
+            reader.setFilter(msgFilter);
+
+            reader.read(new MappedTLogReader.Callback() {
+                @Override
+                public boolean onEvent(Event event) {
+                    logEvents.add(event);
+
+                    final int msgId = event.getMavLinkMessage().msgid;
+                    List<Event> events = logEventsByType.get(msgId);
+                    if (events == null) {
+                        events = new ArrayList<Event>();
+                        logEventsByType.put(msgId, events);
+                    }
+                    events.add(event);
+                    return true;
                 }
-            }
-
-        } catch (EOFException e) {
-            // NOP - file may be incomplete - take what we have
-            // fall thru...
+            });
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         }
         finally {
             // close file
-            if(in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    // NOP
-                }
+            try {
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                // NOP
             }
         }
 
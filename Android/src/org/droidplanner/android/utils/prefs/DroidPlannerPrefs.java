@@ -124,6 +124,9 @@ public class DroidPlannerPrefs {
     private static final String PREF_UI_REALTIME_FOOTPRINTS = "pref_ui_realtime_footprints_key";
     private static final boolean DEFAULT_UI_REALTIME_FOOTPRINTS = false;
 
+    public static final String PREF_UI_FOOTPRINTS_HEATMAP = "pref_ui_footprints_heatmap_key";
+    private static final boolean DEFAULT_UI_FOOTPRINTS_HEATMAP = false;
+
     private static final String PREF_DSHARE_USERNAME = "dshare_username";
     private static final String DEFAULT_DSHARE_USERNAME = "";
 
@@ -390,6 +393,10 @@ public class DroidPlannerPrefs {
         return prefs.getBoolean(PREF_UI_REALTIME_FOOTPRINTS, DEFAULT_UI_REALTIME_FOOTPRINTS);
     }
 
+    public boolean isFootprintsHeatmapEnabled() {
+        return prefs.getBoolean(PREF_UI_FOOTPRINTS_HEATMAP, DEFAULT_UI_FOOTPRINTS_HEATMAP);
+    }
+
     public String getMapProviderName() {
         return prefs.getString(PREF_MAPS_PROVIDERS, DEFAULT_MAPS_PROVIDER);
     }
@@ -6,16 +6,12 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import com.MAVLink.common.msg_global_position_int;
-
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.LocatorListFragment;
-import org.droidplanner.android.utils.file.IO.TLogReader;
-import org.droidplanner.android.utils.file.IO.TLogReader.Event;
+import org.droidplanner.android.utils.file.IO.TLogPositionStore;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -41,11 +37,12 @@ public class LocatorItemAdapter extends RecyclerView.Adapter<LocatorItemAdapter.
     private static final SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.US);
 
     private int selectedPosition = -1;
-    private final List<Event> msgList;
+    private final Date eventDate = new Date();
+    private final TLogPositionStore positions;
     private final LocatorListFragment.OnLocatorListListener listener;
 
-    public LocatorItemAdapter(List<TLogReader.Event> list, LocatorListFragment.OnLocatorListListener listener) {
-        this.msgList = list;
+    public LocatorItemAdapter(TLogPositionStore positions, LocatorListFragment.OnLocatorListListener listener) {
+        this.positions = positions;
         this.listener = listener;
     }
 
@@ -60,8 +57,6 @@ public class LocatorItemAdapter extends RecyclerView.Adapter<LocatorItemAdapter.
 
     @Override
     public void onBindViewHolder(ViewHolder holder, final int position) {
-        final Event msgEvent = msgList.get(position);
-
         final View container = holder.viewContainer;
         container.setActivated(isSelected(position));
         container.setOnClickListener(new View.OnClickListener() {
@@ -70,21 +65,21 @@ public class LocatorItemAdapter extends RecyclerView.Adapter<LocatorItemAdapter.
                 setSelection(position);
                 if (listener != null) {
                     if (isSelected(position)) {
-                        listener.onItemClick((msg_global_position_int) msgEvent.getMavLinkMessage());
+                        listener.onItemClick(position);
                     } else {
-                        listener.onItemClick(null);
+                        listener.onItemClick(-1);
                     }
                 }
             }
         });
 
-        Date eventDate = new Date(msgEvent.getTimestamp());
+        eventDate.setTime(positions.getTimestamp(position));
         holder.timeView.setText(sdf.format(eventDate));
     }
 
     @Override
     public int getItemCount() {
-        return msgList.size();
+        return positions.size();
     }
 
     private void setSelection(int selection) {